@@ -0,0 +1,84 @@
+package sml;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Reports the heap taken by a translated program, in bytes per instruction, with and without equal unlabeled
+ * instructions sharing one instance.
+ *
+ * The program is a generated source of a million lines by default, or of the number of lines given as the only
+ * argument.  The heap is measured after a full collection both while the program is held and once it has been let
+ * go, so the figures count what the program keeps alive and nothing the translation threw away.  They are estimates: run
+ * with a fixed heap (-Xms equal to -Xmx) and the serial collector for the steadiest numbers.
+ *
+ * @author lhickley
+ */
+public final class HeapFootprint {
+
+    private HeapFootprint() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        String fileName = Workloads.write(Workloads.generate(lines)).getAbsolutePath();
+
+        // translate once each way first, so that the classes loaded are not counted against either
+        measure(fileName, false);
+        measure(fileName, true);
+
+        long unshared = measure(fileName, false);
+        long shared = measure(fileName, true);
+        System.out.printf("%,d lines%n", lines);
+        System.out.printf("one instance per line:             %,12d bytes, %6.1f bytes per instruction%n",
+                unshared, (double) unshared / lines);
+        System.out.printf("equal unlabeled instances shared:  %,12d bytes, %6.1f bytes per instruction%n",
+                shared, (double) shared / lines);
+        System.out.printf("saving:                            %,12d bytes, %6.1f%%%n",
+                unshared - shared, 100.0 * (unshared - shared) / unshared);
+    }
+
+    /*
+     * Returns the bytes the translated program keeps alive: its instructions and their operands, its labels and the
+     * list holding it.  These are measured as the bytes freed when the program is let go.
+     */
+    private static long measure(String fileName, boolean interning) throws IOException {
+        Object[] held = new Object[2];
+        translate(fileName, interning, held);
+        long with = usedAfterCollection();
+        Arrays.fill(held, null);
+        long without = usedAfterCollection();
+        return with - without;
+    }
+
+    private static void translate(String fileName, boolean interning, Object[] held) throws IOException {
+        Labels labels = new Labels();
+        List<Instruction> program = new ArrayList<>();
+        Translator translator = new Translator(fileName, InstructionFactory.getInstance());
+        translator.setInterning(interning);
+        translator.readAndTranslate(labels, program);
+        System.out.printf("interning %-5s %,d instructions, %,d distinct instances%n", interning, program.size(),
+                distinct(program));
+        held[0] = labels;
+        held[1] = program;
+    }
+
+    private static long usedAfterCollection() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static int distinct(List<Instruction> program) {
+        IdentityHashMap<Instruction, Boolean> instances = new IdentityHashMap<>();
+        for (Instruction instruction : program)
+            instances.put(instruction, Boolean.TRUE);
+        return instances.size();
+    }
+}
@@ -0,0 +1,40 @@
+package sml;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-program throughput of {@link Machine#execute()} on the standard workloads, for each engine.
+ *
+ * @author lhickley
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MachineBenchmark {
+    @Param({"FACTORIAL", "FIBONACCI", "GCD", "PRIMES"})
+    public String workload;
+
+    @Param({"INTERPRETER", "COMPACT", "BYTECODE"})
+    public Machine.Engine engine;
+
+    private Machine machine;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        String source = (String) Workloads.class.getField(workload).get(null);
+        machine = Workloads.translate(source);
+        machine.setEngine(engine);
+        machine.setOutput(NullOutputSink.INSTANCE);
+    }
+
+    @Benchmark
+    public Registers execute() {
+        machine.execute();
+        return machine.getRegisters();
+    }
+}
@@ -0,0 +1,48 @@
+package sml;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static sml.Registers.Register.*;
+
+/**
+ * Cost of reading and writing {@link Registers}.
+ *
+ * @author lhickley
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistersBenchmark {
+    private final Registers registers = new Registers();
+
+    // Read from a field so that the register is not a constant to the JIT compiler
+    private RegisterName register = ECX;
+
+    private int value = 42;
+
+    @Benchmark
+    public int get() {
+        return registers.get(register);
+    }
+
+    @Benchmark
+    public void set() {
+        registers.set(register, value);
+    }
+
+    @Benchmark
+    public long getLong() {
+        return registers.getLong(register);
+    }
+
+    @Benchmark
+    public int setThenGet() {
+        registers.set(register, value);
+        return registers.get(register);
+    }
+}
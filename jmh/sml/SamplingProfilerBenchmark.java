@@ -0,0 +1,52 @@
+package sml;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-program throughput of the interpreter on the standard workloads, with and without a {@link SamplingProfiler}
+ * sampling it at the default interval, to show what sampling costs.
+ *
+ * @author lhickley
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplingProfilerBenchmark {
+    @Param({"FACTORIAL", "FIBONACCI", "GCD", "PRIMES"})
+    public String workload;
+
+    @Param({"false", "true"})
+    public boolean sampled;
+
+    private Machine machine;
+
+    private SamplingProfiler profiler;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        String source = (String) Workloads.class.getField(workload).get(null);
+        machine = Workloads.translate(source);
+        machine.setOutput(NullOutputSink.INSTANCE);
+        if (sampled) {
+            profiler = new SamplingProfiler(machine);
+            profiler.start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (profiler != null)
+            profiler.stop();
+    }
+
+    @Benchmark
+    public Registers execute() {
+        machine.execute();
+        return machine.getRegisters();
+    }
+}
@@ -0,0 +1,66 @@
+package sml;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Translator#readAndTranslate(Labels, List)} on generated sources of increasing size, reading the
+ * file through a reader, by memory-mapping it, and in parallel on the common fork/join pool; and of loading the same
+ * program from its binary form with {@link BinaryProgram#load(Path, Labels, List)}.
+ *
+ * @author lhickley
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranslatorBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int lines;
+
+    private String fileName;
+
+    private Path binaryFile;
+
+    private final Labels labels = new Labels();
+    private final List<Instruction> program = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        fileName = Workloads.write(Workloads.generate(lines)).getAbsolutePath();
+        binaryFile = Path.of(fileName + BinaryProgram.EXTENSION);
+        BinaryProgram.compile(fileName, binaryFile.toString());
+        binaryFile.toFile().deleteOnExit();
+    }
+
+    @Benchmark
+    public List<Instruction> readAndTranslate() throws IOException {
+        new Translator(fileName, InstructionFactory.getInstance()).readAndTranslate(labels, program);
+        return program;
+    }
+
+    @Benchmark
+    public List<Instruction> readAndTranslateMapped() throws IOException {
+        Translator.mapped(fileName, InstructionFactory.getInstance()).readAndTranslate(labels, program);
+        return program;
+    }
+
+    @Benchmark
+    public List<Instruction> readAndTranslateParallel() throws IOException {
+        Translator.parallel(fileName, InstructionFactory.getInstance()).readAndTranslate(labels, program);
+        return program;
+    }
+
+    @Benchmark
+    public List<Instruction> loadBinary() throws IOException {
+        BinaryProgram.load(binaryFile, labels, program);
+        return program;
+    }
+}
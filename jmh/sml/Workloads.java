@@ -0,0 +1,181 @@
+package sml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * The standard SML programs and generated sources used by the benchmarks.
+ *
+ * SML has no memory to hold a sieve in, so the prime workload counts primes by trial division instead.
+ *
+ * @author lhickley
+ */
+public final class Workloads {
+
+    /** Computes 12! one thousand times; leaves 479001600 in EBX. */
+    public static final String FACTORIAL = """
+                  mov EDI 1000
+                  mov ESI 1
+            outer: mov EAX 12
+                  mov EBX 1
+            fact: mul EBX EAX
+                  sub EAX ESI
+                  jnz EAX fact
+                  sub EDI ESI
+                  jnz EDI outer
+                  out EBX
+            """;
+
+    /** Computes the 45th Fibonacci number one thousand times; leaves 1134903170 in EAX. */
+    public static final String FIBONACCI = """
+                  mov EDI 1000
+                  mov ESI 1
+            outer: mov EAX 0
+                  mov EBX 1
+                  mov ECX 45
+            fib: mov EDX 0
+                  add EDX EBX
+                  add EBX EAX
+                  mov EAX 0
+                  add EAX EDX
+                  sub ECX ESI
+                  jnz ECX fib
+                  sub EDI ESI
+                  jnz EDI outer
+                  out EAX
+            """;
+
+    /** Computes the greatest common divisor of two consecutive Fibonacci numbers one thousand times; leaves 1 in EAX. */
+    public static final String GCD = """
+                  mov EDI 1000
+                  mov ESI 1
+            outer: mov EAX 1836311903
+                  mov EBX 1134903170
+            gcd: mov ECX 0
+                  add ECX EAX
+                  div ECX EBX
+                  mul ECX EBX
+                  mov EDX 0
+                  add EDX EAX
+                  sub EDX ECX
+                  mov EAX 0
+                  add EAX EBX
+                  mov EBX 0
+                  add EBX EDX
+                  jnz EBX gcd
+                  sub EDI ESI
+                  jnz EDI outer
+                  out EAX
+            """;
+
+    /** Counts the primes up to 500 by trial division; leaves 95 in EBP. */
+    public static final String PRIMES = """
+                  mov ESI 1
+                  mov EBP 0
+                  mov EAX 500
+            next: mov EBX 0
+                  add EBX EAX
+                  sub EBX ESI
+                  mov ECX 0
+                  add ECX EBX
+                  sub ECX ESI
+                  jnz ECX trial
+                  jnz ESI prime
+            trial: mov ECX 0
+                  add ECX EAX
+                  div ECX EBX
+                  mul ECX EBX
+                  mov EDX 0
+                  add EDX EAX
+                  sub EDX ECX
+                  jnz EDX notdiv
+                  jnz ESI composite
+            notdiv: sub EBX ESI
+                  mov ECX 0
+                  add ECX EBX
+                  sub ECX ESI
+                  jnz ECX trial
+            prime: add EBP ESI
+            composite: sub EAX ESI
+                  mov ECX 0
+                  add ECX EAX
+                  sub ECX ESI
+                  jnz ECX next
+                  out EBP
+            """;
+
+    private static final String[] REGISTERS = {"EAX", "EBX", "ECX", "EDX", "ESP", "EBP", "ESI", "EDI"};
+
+    private Workloads() {
+    }
+
+    /**
+     * Writes an SML source to a temporary file, which is deleted when the JVM exits.
+     *
+     * @param source the program text
+     * @return the file written
+     */
+    public static File write(String source) {
+        try {
+            File file = File.createTempFile("workload", ".sml");
+            file.deleteOnExit();
+            try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8)) {
+                out.print(source);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Translates an SML source into a new machine.
+     *
+     * @param source the program text
+     * @return a machine holding the translated program
+     */
+    public static Machine translate(String source) {
+        Machine machine = new Machine(new Registers());
+        try {
+            new Translator(write(source).getAbsolutePath(), InstructionFactory.getInstance())
+                    .readAndTranslate(machine.getLabels(), machine.getProgram());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return machine;
+    }
+
+    /**
+     * Generates a source of the given number of lines, with a mix of every instruction and a label on every tenth
+     * line.  The same number of lines always gives the same source.
+     *
+     * @param lines the number of lines
+     * @return the program text
+     */
+    public static String generate(int lines) {
+        Random random = new Random(lines);
+        StringBuilder source = new StringBuilder(lines * 16);
+        for (int line = 0; line < lines; line++) {
+            if (line % 10 == 0) {
+                source.append('L').append(line).append(": ");
+            }
+            String first = REGISTERS[random.nextInt(REGISTERS.length)];
+            String second = REGISTERS[random.nextInt(REGISTERS.length)];
+            switch (random.nextInt(7)) {
+                case 0 -> source.append("add ").append(first).append(' ').append(second);
+                case 1 -> source.append("sub ").append(first).append(' ').append(second);
+                case 2 -> source.append("mul ").append(first).append(' ').append(second);
+                case 3 -> source.append("div ").append(first).append(' ').append(second);
+                case 4 -> source.append("out ").append(first);
+                case 5 -> source.append("jnz ").append(first).append(" L").append(random.nextInt(lines) / 10 * 10);
+                default -> source.append("mov ").append(first).append(' ').append(random.nextInt());
+            }
+            source.append('\n');
+        }
+        return source.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package sml.instruction;
+
+import org.openjdk.jmh.annotations.*;
+import sml.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static sml.Registers.Register.*;
+
+/**
+ * Cost of a single {@link Instruction#execute(Machine)} for each class in {@code sml.instruction}.
+ *
+ * The registers are set up so that repeating an instruction never changes its operands: EAX holds 7, EBX holds 0,
+ * ECX holds 1 and EDX holds 3.
+ *
+ * @author lhickley
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstructionBenchmark {
+    private Machine machine;
+
+    private final Instruction add = new AddInstruction(null, EAX, EBX);
+    private final Instruction sub = new SubInstruction(null, EAX, EBX);
+    private final Instruction mul = new MulInstruction(null, EAX, ECX);
+    private final Instruction div = new DivInstruction(null, EAX, ECX);
+    private final Instruction mov = new MovInstruction(null, EDX, 3);
+    private final Instruction out = new OutInstruction(null, EAX);
+    private final Instruction jnzTaken = new JnzInstruction(null, EAX, "loop");
+    private final Instruction jnzNotTaken = new JnzInstruction(null, EBX, "loop");
+    private final Instruction subJnz = new SubJnzInstruction(new SubInstruction(null, EDX, EBX),
+            new JnzInstruction(null, EDX, "loop"), 1, 0);
+    private final Instruction wrapping = WrappingInstruction.of(null, AddInstruction.OP_CODE, EAX, EBX);
+    private final Instruction saturating = SaturatingInstruction.of(null, AddInstruction.OP_CODE, EAX, EBX);
+    private final Instruction widening = WideningInstruction.of(null, AddInstruction.OP_CODE, EAX, EBX);
+
+    private Instruction jnzLinked;
+
+    @Setup
+    public void setUp() {
+        machine = new Machine(new Registers());
+        machine.setOutput(NullOutputSink.INSTANCE);
+        machine.getLabels().addLabel("loop", 0);
+        jnzLinked = jnzTaken.link(machine.getLabels());
+        Registers registers = machine.getRegisters();
+        registers.set(EAX, 7);
+        registers.set(EBX, 0);
+        registers.set(ECX, 1);
+        registers.set(EDX, 3);
+    }
+
+    @Benchmark
+    public int add() {
+        return add.execute(machine);
+    }
+
+    @Benchmark
+    public int sub() {
+        return sub.execute(machine);
+    }
+
+    @Benchmark
+    public int mul() {
+        return mul.execute(machine);
+    }
+
+    @Benchmark
+    public int div() {
+        return div.execute(machine);
+    }
+
+    @Benchmark
+    public int mov() {
+        return mov.execute(machine);
+    }
+
+    @Benchmark
+    public int out() {
+        return out.execute(machine);
+    }
+
+    @Benchmark
+    public int jnzTakenUnlinked() {
+        return jnzTaken.execute(machine);
+    }
+
+    @Benchmark
+    public int jnzTakenLinked() {
+        return jnzLinked.execute(machine);
+    }
+
+    @Benchmark
+    public int jnzNotTaken() {
+        return jnzNotTaken.execute(machine);
+    }
+
+    @Benchmark
+    public int subJnz() {
+        return subJnz.execute(machine);
+    }
+
+    @Benchmark
+    public int wrapping() {
+        return wrapping.execute(machine);
+    }
+
+    @Benchmark
+    public int saturating() {
+        return saturating.execute(machine);
+    }
+
+    @Benchmark
+    public int widening() {
+        return widening.execute(machine);
+    }
+}
@@ -0,0 +1,62 @@
+package sml;
+
+import java.util.Objects;
+
+/**
+ * A program to be translated and executed by a {@link BatchRunner}, read either from a file or from text in memory.
+ *
+ * @author lhickley
+ */
+public final class BatchJob {
+    private final String name;
+    private final String fileName;
+    private final String source;
+
+    private BatchJob(String name, String fileName, String source) {
+        this.name = Objects.requireNonNull(name);
+        this.fileName = fileName;
+        this.source = source;
+    }
+
+    /**
+     * Creates a job for the program in a file.  The job is named after the file.
+     *
+     * @param fileName the file containing the program text
+     * @return the job
+     */
+    public static BatchJob ofFile(String fileName) {
+        return new BatchJob(fileName, Objects.requireNonNull(fileName), null);
+    }
+
+    /**
+     * Creates a job for a program held in memory.
+     *
+     * @param name the name to report the job under
+     * @param source the program text
+     * @return the job
+     */
+    public static BatchJob ofSource(String name, String source) {
+        return new BatchJob(name, null, Objects.requireNonNull(source));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Creates a translator for the program of this job.
+     *
+     * @param instructionFactory the factory to create instructions with
+     * @return a new translator
+     */
+    public Translator translator(InstructionFactory instructionFactory) {
+        return (source != null)
+                ? Translator.fromSource(source, instructionFactory)
+                : new Translator(fileName, instructionFactory);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
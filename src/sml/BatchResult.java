@@ -0,0 +1,75 @@
+package sml;
+
+/**
+ * The outcome of one {@link BatchJob}: the values it output, the final state of its registers, how long it took and
+ * the error which ended it, if any.
+ *
+ * @author lhickley
+ */
+public final class BatchResult {
+    private final BatchJob job;
+    private final long[] output;
+    private final Registers registers;
+    private final Exception error;
+    private final long translationNanos;
+    private final long executionNanos;
+
+    BatchResult(BatchJob job, long[] output, Registers registers, Exception error,
+                long translationNanos, long executionNanos) {
+        this.job = job;
+        this.output = output;
+        this.registers = registers;
+        this.error = error;
+        this.translationNanos = translationNanos;
+        this.executionNanos = executionNanos;
+    }
+
+    public BatchJob getJob() {
+        return job;
+    }
+
+    /**
+     * Returns the values output by the program, in order.
+     *
+     * @return a copy of the values
+     */
+    public long[] getOutput() {
+        return output.clone();
+    }
+
+    /**
+     * Returns the registers of the machine the program ran on, as they were when the job ended.
+     *
+     * @return the registers
+     */
+    public Registers getRegisters() {
+        return registers;
+    }
+
+    /**
+     * Returns the exception which ended the job, or null if the program ran to completion.
+     *
+     * @return the error, or null
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    public long getTranslationNanos() {
+        return translationNanos;
+    }
+
+    public long getExecutionNanos() {
+        return executionNanos;
+    }
+
+    @Override
+    public String toString() {
+        return job + ": " + (isSuccessful() ? "completed" : "failed (" + error.getMessage() + ")") +
+                " in " + (translationNanos + executionNanos) / 1_000 + "us, registers " + registers;
+    }
+}
@@ -0,0 +1,103 @@
+package sml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Translates and executes many programs concurrently on a fixed pool of threads.
+ *
+ * Each job is given its own {@link Machine}, {@link Registers} and {@link MemoryOutputSink}, so jobs share nothing
+ * but the instruction factory.  Results are returned in the order the jobs were given.
+ *
+ * A program which cannot be translated is not run: the line which could not be translated, or the label supplied
+ * twice, becomes the error of its job's result, and nothing is written to {@link System#out}.
+ *
+ * @author lhickley
+ */
+public final class BatchRunner implements AutoCloseable {
+    private final ExecutorService executor;
+
+    private final InstructionFactory instructionFactory;
+
+    /**
+     * Constructor: a runner with the given number of threads.
+     *
+     * @param threads the number of jobs to run at once
+     */
+    public BatchRunner(int threads) {
+        this(threads, InstructionFactory.getInstance());
+    }
+
+    /**
+     * Constructor: a runner with the given number of threads, creating instructions with the given factory.
+     *
+     * @param threads the number of jobs to run at once
+     * @param instructionFactory the factory to create instructions with
+     */
+    public BatchRunner(int threads, InstructionFactory instructionFactory) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A batch runner needs at least one thread, not " + threads);
+        }
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.instructionFactory = instructionFactory;
+    }
+
+    /**
+     * Runs every job, waiting until all have finished.
+     *
+     * @param jobs the jobs to run
+     * @return the result of each job, in the order of jobs
+     * @throws InterruptedException if interrupted while waiting for the jobs
+     */
+    public List<BatchResult> run(List<BatchJob> jobs) throws InterruptedException {
+        List<Future<BatchResult>> futures = new ArrayList<>(jobs.size());
+        for (BatchJob job : jobs) {
+            futures.add(executor.submit(() -> runJob(job)));
+        }
+        List<BatchResult> results = new ArrayList<>(jobs.size());
+        for (Future<BatchResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A batch job failed outside its program", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private BatchResult runJob(BatchJob job) {
+        Machine machine = new Machine(new Registers());
+        MemoryOutputSink output = new MemoryOutputSink();
+        machine.setOutput(output);
+        Exception error = null;
+        long start = System.nanoTime();
+        long translationEnd = 0;
+        boolean translated = false;
+        try {
+            job.translator(instructionFactory).readAndTranslateStrictly(machine.getLabels(), machine.getProgram());
+            translationEnd = System.nanoTime();
+            translated = true;
+            machine.execute();
+        } catch (Exception e) {
+            error = e;
+        }
+        long end = System.nanoTime();
+        if (!translated) {
+            translationEnd = end;
+        }
+        return new BatchResult(job, output.getValues(), machine.getRegisters(), error,
+                translationEnd - start, end - translationEnd);
+    }
+
+    /**
+     * Stops the threads of the runner once any jobs still running have finished.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,297 @@
+package sml;
+
+import sml.instruction.*;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static sml.Registers.Register;
+
+/**
+ * Reads and writes programs in the SML binary format, so that a program can be loaded without translating its text.
+ *
+ * A binary program is laid out as follows, with every int written big-endian:
+ * <pre>
+ *   header        int magic ("SMLB"), int version, int instruction count, int label count, int string count
+ *   strings       for each string, an int length followed by that many bytes of UTF-8
+ *   labels        for each label, an int string index followed by the int address the label refers to
+ *   instructions  for each instruction, 12 bytes: a byte opcode, a byte for each of two register operands, a byte of
+ *                 padding, an int operand and the int string index of the instruction label, or -1 if it has none
+ * </pre>
+ * The operand of a mov is its value, and the operand of a jnz is the address it jumps to, resolved from its label
+ * when the program is written; the label at that address is the one the loaded jnz names.
+ *
+ * A program is loaded straight from the mapped file, so only its strings are copied out of it.  A file of a different
+ * version is rejected rather than misread, so the version must change whenever the layout or the opcodes do.
+ *
+ * Only the instructions of the language can be written.
+ *
+ * @author lhickley
+ */
+public final class BinaryProgram {
+    /** The file name extension of binary programs. */
+    public static final String EXTENSION = ".smlb";
+
+    /** The version of the format written. */
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = ('S' << 24) | ('M' << 16) | ('L' << 8) | 'B';
+
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+    private static final int INSTRUCTION_SIZE = 12;
+    private static final int NO_LABEL = -1;
+
+    private static final int ADD = 0;
+    private static final int SUB = 1;
+    private static final int MUL = 2;
+    private static final int DIV = 3;
+    private static final int MOV = 4;
+    private static final int OUT = 5;
+    private static final int JNZ = 6;
+
+    private static final Register[] REGISTERS = Register.values();
+
+    private BinaryProgram() {
+    }
+
+    /**
+     * Translates a program from its text and writes it in binary form.
+     *
+     * @param sourceFile the name of the file holding the text of the program
+     * @param binaryFile the name of the file to write the binary program to
+     * @throws IOException if the source cannot be read or the binary program cannot be written
+     * @throws InstructionFormatException if a line of the source cannot be translated, in which case nothing is
+     *          written
+     * @throws IllegalArgumentException if the source supplies a label more than once, or the program contains an
+     *          instruction which cannot be written, in which case nothing is written
+     */
+    public static void compile(String sourceFile, String binaryFile) throws IOException {
+        Labels labels = new Labels();
+        List<Instruction> program = new ArrayList<>();
+        Translator.mapped(sourceFile, InstructionFactory.getInstance()).readAndTranslateStrictly(labels, program);
+        write(program, labels, Path.of(binaryFile));
+    }
+
+    /**
+     * Writes a program in binary form.
+     *
+     * @param program the instructions of the program
+     * @param labels the labels of the program
+     * @param file the file to write to
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the program contains an instruction which cannot be written, or a jnz to a
+     *          label which does not exist
+     */
+    public static void write(List<Instruction> program, Labels labels, Path file) throws IOException {
+        ByteBuffer buffer = encode(program, labels);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Encodes a program in binary form.
+     *
+     * @param program the instructions of the program
+     * @param labels the labels of the program
+     * @return a buffer holding the binary program between its position and limit
+     * @throws IllegalArgumentException if the program contains an instruction which cannot be written, or a jnz to a
+     *          label which does not exist
+     */
+    public static ByteBuffer encode(List<Instruction> program, Labels labels) {
+        Map<String, Integer> indexes = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] words = new int[program.size() * 3];
+        for (int address = 0; address < program.size(); address++) {
+            Instruction ins = program.get(address);
+            int word;
+            int operand = 0;
+            if (ins instanceof AddInstruction add) {
+                word = encode(ADD, add.getResult(), add.getSource());
+            } else if (ins instanceof SubInstruction sub) {
+                word = encode(SUB, sub.getResult(), sub.getSource());
+            } else if (ins instanceof MulInstruction mul) {
+                word = encode(MUL, mul.getResult(), mul.getSource());
+            } else if (ins instanceof DivInstruction div) {
+                word = encode(DIV, div.getResult(), div.getSource());
+            } else if (ins instanceof MovInstruction mov) {
+                word = encode(MOV, mov.getRegisterToSet(), null);
+                operand = mov.getValue();
+            } else if (ins instanceof OutInstruction out) {
+                word = encode(OUT, out.getSource(), null);
+            } else if (ins instanceof JnzInstruction jnz) {
+                word = encode(JNZ, jnz.getRegisterToCheck(), null);
+                Integer target = labels.getAddresses().get(jnz.getLabelToJumpTo());
+                if (target == null)
+                    throw new IllegalArgumentException("The instruction '" + ins + "' jumps to a label which does not "
+                            + "exist.");
+                operand = target;
+            } else {
+                throw new IllegalArgumentException("The instruction '" + ins + "' cannot be compiled.");
+            }
+            words[address * 3] = word;
+            words[address * 3 + 1] = operand;
+            words[address * 3 + 2] = (ins.getLabel() == null) ? NO_LABEL : index(ins.getLabel(), indexes, strings);
+        }
+
+        // the labels are written in address order, so the same program is always written the same way
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(labels.getAddresses().entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+        int[] labelTable = new int[entries.size() * 2];
+        for (int i = 0; i < entries.size(); i++) {
+            labelTable[i * 2] = index(entries.get(i).getKey(), indexes, strings);
+            labelTable[i * 2 + 1] = entries.get(i).getValue();
+        }
+
+        int size = HEADER_SIZE + labelTable.length * Integer.BYTES + program.size() * INSTRUCTION_SIZE;
+        for (byte[] string : strings)
+            size += Integer.BYTES + string.length;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(program.size()).putInt(entries.size()).putInt(strings.size());
+        for (byte[] string : strings)
+            buffer.putInt(string.length).put(string);
+        for (int value : labelTable)
+            buffer.putInt(value);
+        for (int address = 0; address < program.size(); address++) {
+            buffer.putInt(words[address * 3]);
+            buffer.putInt(words[address * 3 + 1]);
+            buffer.putInt(words[address * 3 + 2]);
+        }
+        return buffer.flip();
+    }
+
+    // opcode, first register, second register and padding, in the order they are written
+    private static int encode(int opcode, RegisterName first, RegisterName second) {
+        int word = opcode << 24 | ((Register) first).ordinal() << 16;
+        return (second == null) ? word : word | ((Register) second).ordinal() << 8;
+    }
+
+    private static int index(String string, Map<String, Integer> indexes, List<byte[]> strings) {
+        return indexes.computeIfAbsent(string, s -> {
+            strings.add(s.getBytes(StandardCharsets.UTF_8));
+            return strings.size() - 1;
+        });
+    }
+
+    /**
+     * Loads a binary program by memory-mapping the file, replacing the contents of the labels and program.
+     *
+     * @param file the file holding the binary program
+     * @param labels the labels to replace with the labels of the program
+     * @param program the list to replace with the instructions of the program
+     * @throws IOException if the file cannot be read, or does not hold a binary program of this version
+     */
+    public static void load(Path file, Labels labels, List<Instruction> program) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), labels, program);
+        }
+    }
+
+    /**
+     * Decodes a binary program, replacing the contents of the labels and program.  The buffer is read from its
+     * position to its limit and is left unchanged.
+     *
+     * @param buffer the buffer holding the binary program
+     * @param labels the labels to replace with the labels of the program
+     * @param program the list to replace with the instructions of the program
+     * @throws IOException if the buffer does not hold a binary program of this version
+     */
+    public static void decode(ByteBuffer buffer, Labels labels, List<Instruction> program) throws IOException {
+        ByteBuffer in = buffer.slice();
+        try {
+            if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC)
+                throw new IOException("The file does not hold an SML binary program.");
+            int version = in.getInt();
+            if (version != VERSION)
+                throw new IOException("SML binary programs of version " + version + " cannot be loaded; the version must be "
+                        + VERSION + ".");
+            int instructions = in.getInt();
+            int labelCount = in.getInt();
+            int stringCount = in.getInt();
+            if (instructions < 0 || labelCount < 0 || stringCount < 0
+                    || (long) instructions * INSTRUCTION_SIZE > in.remaining())
+                throw new IOException("The SML binary program is corrupt.");
+
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                int length = in.getInt();
+                if (length < 0 || length > in.remaining())
+                    throw new IOException("The SML binary program is corrupt.");
+                strings[i] = StandardCharsets.UTF_8.decode(in.slice(in.position(), length)).toString();
+                in.position(in.position() + length);
+            }
+
+            // the label at each address, which the jnz instructions jumping there name
+            String[] labelled = new String[instructions];
+            labels.reset();
+            for (int i = 0; i < labelCount; i++) {
+                String label = string(strings, in.getInt());
+                int address = in.getInt();
+                if (address < 0 || address >= instructions || labelled[address] != null
+                        || labels.getAddresses().containsKey(label))
+                    throw new IOException("The SML binary program is corrupt.");
+                labels.addLabel(label, address);
+                labelled[address] = label;
+            }
+
+            program.clear();
+            if (program instanceof ArrayList<Instruction> list)
+                list.ensureCapacity(instructions);
+            for (int address = 0; address < instructions; address++) {
+                int word = in.getInt();
+                int operand = in.getInt();
+                int labelIndex = in.getInt();
+                String label = (labelIndex == NO_LABEL) ? null : string(strings, labelIndex);
+                program.add(instruction(word, operand, label, labelled));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("The SML binary program is truncated.", e);
+        }
+    }
+
+    private static Instruction instruction(int word, int operand, String label, String[] labelled) throws IOException {
+        int opcode = word >>> 24;
+        Register first = register((word >>> 16) & 0xFF);
+        return switch (opcode) {
+            case ADD -> new AddInstruction(label, first, register((word >>> 8) & 0xFF));
+            case SUB -> new SubInstruction(label, first, register((word >>> 8) & 0xFF));
+            case MUL -> new MulInstruction(label, first, register((word >>> 8) & 0xFF));
+            case DIV -> new DivInstruction(label, first, register((word >>> 8) & 0xFF));
+            case MOV -> new MovInstruction(label, first, operand);
+            case OUT -> new OutInstruction(label, first);
+            case JNZ -> new JnzInstruction(label, first, string(labelled, operand));
+            default -> throw new IOException("The SML binary program contains the unknown opcode " + opcode + ".");
+        };
+    }
+
+    private static Register register(int ordinal) throws IOException {
+        if (ordinal >= REGISTERS.length)
+            throw new IOException("The SML binary program refers to the unknown register " + ordinal + ".");
+        return REGISTERS[ordinal];
+    }
+
+    private static String string(String[] strings, int index) throws IOException {
+        if (index < 0 || index >= strings.length || strings[index] == null)
+            throw new IOException("The SML binary program is corrupt.");
+        return strings[index];
+    }
+
+    /**
+     * Returns whether the named file holds a binary program, judging by its extension.
+     *
+     * @param fileName the name of the file
+     * @return true if the file name ends with {@link #EXTENSION}
+     */
+    public static boolean isBinary(String fileName) {
+        return fileName.endsWith(EXTENSION);
+    }
+}
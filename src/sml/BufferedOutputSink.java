@@ -0,0 +1,94 @@
+package sml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An output sink which writes each value on its own line, exactly as {@link java.io.PrintStream#println(long)} does,
+ * but formats the digits straight into a reusable byte buffer and writes the buffer out in blocks.
+ *
+ * This is the sink a machine uses unless told otherwise.  Without a stream of its own it writes to whatever
+ * {@link System#out} is at the time of each flush.
+ *
+ * @author lhickley
+ */
+public final class BufferedOutputSink implements OutputSink {
+    private static final int BUFFER_SIZE = 8192;
+
+    // The longest value, -9223372036854775808, has 20 characters
+    private static final int MAX_DIGITS = 20;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count = 0;
+
+    /**
+     * Constructor: a sink writing to {@link System#out}.
+     */
+    public BufferedOutputSink() {
+        this(null);
+    }
+
+    /**
+     * Constructor: a sink writing to the given stream.
+     *
+     * @param out the stream to write to, or null to write to {@link System#out}
+     */
+    public BufferedOutputSink(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(long value) {
+        if (count + MAX_DIGITS + LINE_SEPARATOR.length > buffer.length) {
+            flush();
+        }
+        count = appendDigits(value);
+        for (byte b : LINE_SEPARATOR) {
+            buffer[count++] = b;
+        }
+    }
+
+    /*
+     * Formats value into the buffer at count, returning the new count.  The digits are produced from the right, using
+     * the negative of the value so that the smallest long needs no special case.
+     */
+    private int appendDigits(long value) {
+        int length = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            length++;
+        }
+        int end = count + length + (value < 0 ? 1 : 0);
+        int position = end;
+        long negative = (value < 0) ? value : -value;
+        do {
+            buffer[--position] = (byte) ('0' - (negative % 10));
+            negative /= 10;
+        } while (negative != 0);
+        if (value < 0) {
+            buffer[--position] = '-';
+        }
+        return end;
+    }
+
+    @Override
+    public void flush() {
+        if (count == 0) {
+            return;
+        }
+        OutputStream stream = (out == null) ? System.out : out;
+        try {
+            stream.write(buffer, 0, count);
+            stream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,692 @@
+package sml;
+
+import sml.instruction.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static sml.Registers.Register;
+
+/**
+ * A program compiled into a JVM class, so that the JIT compiler can optimise the SML program itself.
+ *
+ * The program becomes a single static method of a hidden class.  Each of the registers is held in a local int
+ * variable, each jnz becomes a conditional branch, and add, sub and mul use {@link Math#addExact(int, int)},
+ * {@link Math#subtractExact(int, int)} and {@link Math#multiplyExact(int, int)} to detect overflow.  Arithmetic
+ * specialised for the {@link OverflowPolicy#WRAP} policy becomes the plain int instruction, and arithmetic specialised
+ * for the {@link OverflowPolicy#SATURATE} policy is done on longs and clamped by
+ * {@link SaturatingInstruction#saturate(long)}.
+ *
+ * When an instruction fails, the registers are copied back into the machine and the original instruction is executed
+ * there, so the exception raised is exactly the one the instruction itself raises.
+ *
+ * The generated method counts the instructions it completes in a local variable, and returns the count, or passes it
+ * to the trap code when an instruction fails, so that it can be recorded on the machine.  It counts the jnz
+ * instructions which jump and which fall through in two more, which it stores into an array it is passed.
+ *
+ * Each jnz which jumps backwards compares the count with a budget it is passed, and asks the machine whether its
+ * execution has been cancelled; once the budget is used up, or the execution is cancelled, it stores the registers
+ * and returns, recording the address it was jumping to.  The method can begin at any such
+ * address, so that a paused program can be resumed; forward jumps and straight-line code pay nothing for this.
+ *
+ * Only the instructions of the language can be compiled, which excludes a program linked for the
+ * {@link OverflowPolicy#WIDEN} policy since its registers do not fit in ints, and the generated method is bound by
+ * the JVM limit of 64KB of bytecode, which allows a few thousand instructions.
+ *
+ * @author lhickley
+ */
+public final class BytecodeProgram {
+    private static final Register[] REGISTERS = Register.values();
+
+    private static final String CLASS_NAME = "sml/CompiledSmlProgram";
+    private static final String METHOD_NAME = "run";
+    private static final MethodType METHOD_TYPE =
+            MethodType.methodType(long.class, Machine.class, int[].class, Instruction[].class, long[].class, int.class,
+                    long.class);
+
+    // Local variable slots of the generated method
+    private static final int MACHINE_SLOT = 0;
+    private static final int REGISTERS_SLOT = 1;
+    private static final int INSTRUCTIONS_SLOT = 2;
+    private static final int COUNTERS_SLOT = 3;
+    private static final int START_SLOT = 4;
+    private static final int BUDGET_SLOT = 5; // a long, so it takes two slots
+    private static final int FIRST_REGISTER_SLOT = 7;
+    private static final int ADDRESS_SLOT = FIRST_REGISTER_SLOT + REGISTERS.length;
+    private static final int COUNT_SLOT = ADDRESS_SLOT + 1; // a long, so it takes two slots
+    private static final int TAKEN_SLOT = COUNT_SLOT + 2;
+    private static final int NOT_TAKEN_SLOT = TAKEN_SLOT + 2;
+
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    private final MethodHandle method;
+
+    // The instructions the program was compiled from, indexed by address
+    private final Instruction[] instructions;
+
+    // The addresses of the labels the program was compiled with
+    private final Map<String, Integer> addresses;
+
+    // Whether execution can begin at each address, as the target of a backward jump or the first instruction
+    private final boolean[] entries;
+
+    private BytecodeProgram(MethodHandle method, Instruction[] instructions, Map<String, Integer> addresses,
+                            boolean[] entries) {
+        this.method = method;
+        this.instructions = instructions;
+        this.addresses = addresses;
+        this.entries = entries;
+    }
+
+    /**
+     * Compiles a linked program into a hidden class.
+     *
+     * @param instructions the linked instructions of the program, indexed by address
+     * @param labels the labels of the program
+     * @return the compiled program
+     * @throws IllegalArgumentException if the program contains an instruction which cannot be compiled, or is too
+     *          large to be compiled
+     * @throws RuntimeException if a jnz instruction refers to a label which does not exist
+     */
+    public static BytecodeProgram compile(Instruction[] instructions, Labels labels) {
+        boolean[] entries = new boolean[instructions.length + 1];
+        entries[0] = true;
+        for (int address = 0; address < instructions.length; address++) {
+            if (instructions[address] instanceof JnzInstruction jnz) {
+                int target = labels.getAddress(jnz.getLabelToJumpTo());
+                if (target <= address)
+                    entries[target] = true;
+            }
+        }
+        byte[] classBytes = new ClassWriter(instructions, labels, entries).write();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classBytes, true);
+            MethodHandle method = lookup.findStatic(lookup.lookupClass(), METHOD_NAME, METHOD_TYPE);
+            return new BytecodeProgram(method, instructions.clone(), Map.copyOf(labels.getAddresses()), entries);
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException("The compiled program could not be loaded.", e);
+        }
+    }
+
+    /**
+     * Returns whether the program was compiled from the given instructions and labels, so that it can be executed in
+     * place of them without being compiled again.
+     *
+     * @param instructions the linked instructions of a program, indexed by address
+     * @param labels the labels of the program
+     * @return true if the program was compiled from equal instructions and labels
+     */
+    public boolean isCompiledFrom(Instruction[] instructions, Labels labels) {
+        return Arrays.equals(this.instructions, instructions) && addresses.equals(labels.getAddresses());
+    }
+
+    /**
+     * Executes the program on the given machine, beginning at instruction 0 with the registers of the machine as
+     * they currently stand.
+     *
+     * @param machine the machine whose registers the program reads and updates
+     * @throws RuntimeException if an instruction fails, with the registers of the machine holding the values they had
+     *          at the point of failure
+     */
+    public void execute(Machine machine) {
+        execute(machine, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Executes the program on the given machine, beginning at the given address with the registers of the machine as
+     * they currently stand, and pausing at the first backward jump taken once budget instructions have completed or
+     * the execution of the machine has been cancelled.
+     *
+     * @param machine the machine whose registers the program reads and updates
+     * @param start the address of the first instruction to execute: 0, or the target of a backward jump
+     * @param budget the number of instructions after which the program may be paused
+     * @return the address of the next instruction to execute if the program was paused, otherwise the length of the
+     *          program
+     * @throws IllegalArgumentException if execution cannot begin at start
+     * @throws RuntimeException if an instruction fails, with the registers of the machine holding the values they had
+     *          at the point of failure
+     */
+    public int execute(Machine machine, int start, long budget) {
+        if (start < 0 || start >= entries.length || !entries[start]) {
+            throw new IllegalArgumentException("The compiled program cannot begin at address " + start);
+        }
+        Registers registers = machine.getRegisters();
+        int[] r = new int[REGISTERS.length];
+        for (Register register : REGISTERS)
+            r[register.ordinal()] = registers.get(register);
+        long[] counters = {0, 0, instructions.length}; // branches taken, not taken, and the address paused at
+        try {
+            long executed = (long) method.invokeExact(machine, r, instructions, counters, start, budget);
+            machine.setInstructionsExecuted(executed);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        } finally {
+            machine.setBranches(counters[0], counters[1]);
+        }
+        store(r, registers);
+        return (int) counters[2];
+    }
+
+    /*
+     * Called by compiled code when a jnz jumps backwards within its budget.
+     */
+    static boolean cancelled(Machine machine) {
+        return machine.isCancelled();
+    }
+
+    /*
+     * Called by compiled code to output a value.
+     */
+    static void out(Machine machine, int value) {
+        machine.getOutput().write(value);
+    }
+
+    /*
+     * Called by compiled code when the instruction at address fails, after executed instructions have completed.
+     * Copies the registers back into the machine and re-executes the instruction there, so that the exception returned
+     * is the one the instruction itself throws.
+     */
+    static RuntimeException trap(Machine machine, int[] r, Instruction[] instructions, int address, long executed) {
+        machine.setInstructionsExecuted(executed);
+        store(r, machine.getRegisters());
+        Instruction ins = instructions[address];
+        try {
+            ins.execute(machine);
+        } catch (RuntimeException e) {
+            return e;
+        }
+        return new IllegalStateException("The instruction '" + ins + "' was expected to fail but did not.");
+    }
+
+    private static void store(int[] r, Registers registers) {
+        for (Register register : REGISTERS)
+            registers.set(register, r[register.ordinal()]);
+    }
+
+    /**
+     * Writes the class file for a program.  The class file uses version 49, which does not require stack map frames.
+     */
+    private static final class ClassWriter {
+        // Opcodes used by the generated code
+        private static final int ICONST_0 = 0x03;
+        private static final int LCONST_0 = 0x09;
+        private static final int LCONST_1 = 0x0A;
+        private static final int BIPUSH = 0x10;
+        private static final int SIPUSH = 0x11;
+        private static final int LDC_W = 0x13;
+        private static final int ILOAD = 0x15;
+        private static final int LLOAD = 0x16;
+        private static final int ALOAD = 0x19;
+        private static final int IALOAD = 0x2E;
+        private static final int ISTORE = 0x36;
+        private static final int LSTORE = 0x37;
+        private static final int IASTORE = 0x4F;
+        private static final int LASTORE = 0x50;
+        private static final int I2L = 0x85;
+        private static final int LCMP = 0x94;
+        private static final int IFGE = 0x9C;
+        private static final int IF_ICMPNE = 0xA0;
+        private static final int POP = 0x57;
+        private static final int IADD = 0x60;
+        private static final int LADD = 0x61;
+        private static final int ISUB = 0x64;
+        private static final int LSUB = 0x65;
+        private static final int IMUL = 0x68;
+        private static final int LMUL = 0x69;
+        private static final int IDIV = 0x6C;
+        private static final int LDIV = 0x6D;
+        private static final int IFEQ = 0x99;
+        private static final int LRETURN = 0xAD;
+        private static final int INVOKESTATIC = 0xB8;
+        private static final int ATHROW = 0xBF;
+        private static final int GOTO_W = 0xC8;
+
+        private final Instruction[] instructions;
+        private final Labels labels;
+        private final boolean[] entries;
+
+        private final List<byte[]> constants = new ArrayList<>();
+        private final Map<String, Integer> constantIndexes = new HashMap<>();
+
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+
+        // {offset of a branch, offset it jumps to}, patched once the code is complete
+        private final List<int[]> branches = new ArrayList<>();
+
+        ClassWriter(Instruction[] instructions, Labels labels, boolean[] entries) {
+            this.instructions = instructions;
+            this.labels = labels;
+            this.entries = entries;
+        }
+
+        byte[] write() {
+            int thisClass = classConstant(CLASS_NAME);
+            int superClass = classConstant("java/lang/Object");
+            int methodName = utf8Constant(METHOD_NAME);
+            int methodDescriptor = utf8Constant(METHOD_TYPE.toMethodDescriptorString());
+            int codeAttribute = utf8Constant("Code");
+            byte[] exceptionTable = writeCode();
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(49);
+                out.writeShort(constants.size() + 1);
+                for (byte[] constant : constants)
+                    out.write(constant);
+                out.writeShort(0x0031); // public final super
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(0); // interfaces
+                out.writeShort(0); // fields
+                out.writeShort(1); // methods
+                out.writeShort(0x0009); // public static
+                out.writeShort(methodName);
+                out.writeShort(methodDescriptor);
+                out.writeShort(1); // attributes of the method
+                out.writeShort(codeAttribute);
+                out.writeInt(10 + code.size() + exceptionTable.length);
+                out.writeShort(6); // max stack
+                out.writeShort(NOT_TAKEN_SLOT + 2); // max locals
+                out.writeInt(code.size());
+                code.writeTo(out);
+                out.write(exceptionTable);
+                out.writeShort(0); // attributes of the code
+                out.writeShort(0); // attributes of the class
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        /*
+         * Writes the body of the method into code and returns its exception table.
+         */
+        private byte[] writeCode() {
+            int[] offsets = new int[instructions.length];
+            List<int[]> jumps = new ArrayList<>(); // {offset of the goto_w, address jumped to}
+            List<int[]> traps = new ArrayList<>(); // {start offset, end offset, address}
+            List<int[]> pauses = new ArrayList<>(); // {offset of the goto_w, address jumped to}
+
+            for (int slot = 0; slot < REGISTERS.length; slot++) {
+                load(REGISTERS_SLOT, ALOAD);
+                push(slot);
+                emit(IALOAD);
+                load(FIRST_REGISTER_SLOT + slot, ISTORE);
+            }
+            for (int slot : new int[] {COUNT_SLOT, TAKEN_SLOT, NOT_TAKEN_SLOT}) {
+                emit(LCONST_0);
+                load(slot, LSTORE);
+            }
+            // A resumed program begins at the target of the backward jump it was paused at
+            for (int address = 1; address < instructions.length; address++) {
+                if (entries[address]) {
+                    load(START_SLOT, ILOAD);
+                    push(address);
+                    int elsewhere = branch(IF_ICMPNE);
+                    jumps.add(new int[] {branch(GOTO_W), address});
+                    land(elsewhere);
+                }
+            }
+
+            for (int address = 0; address < instructions.length; address++) {
+                offsets[address] = code.size();
+                Instruction ins = instructions[address];
+                if (ins instanceof SubJnzInstruction fused) {
+                    ins = fused.getSub(); // the jnz following it is lowered in its own right
+                }
+                if (ins instanceof AddInstruction add) {
+                    arithmetic(add.getResult(), add.getSource(), "addExact");
+                } else if (ins instanceof SubInstruction sub) {
+                    arithmetic(sub.getResult(), sub.getSource(), "subtractExact");
+                } else if (ins instanceof MulInstruction mul) {
+                    arithmetic(mul.getResult(), mul.getSource(), "multiplyExact");
+                } else if (ins instanceof DivInstruction div) {
+                    wrapping(div.getResult(), div.getSource(), IDIV);
+                } else if (ins instanceof WrappingInstruction wrapping) {
+                    wrapping(wrapping.getResult(), wrapping.getSource(), opcode(wrapping, IADD, ISUB, IMUL, IDIV));
+                } else if (ins instanceof SaturatingInstruction saturating) {
+                    saturating(saturating.getResult(), saturating.getSource(),
+                            opcode(saturating, LADD, LSUB, LMUL, LDIV));
+                } else if (ins instanceof MovInstruction mov) {
+                    push(mov.getValue());
+                    load(slot(mov.getRegisterToSet()), ISTORE);
+                } else if (ins instanceof OutInstruction out) {
+                    load(MACHINE_SLOT, ALOAD);
+                    load(slot(out.getSource()), ILOAD);
+                    invokeStatic("sml/BytecodeProgram", "out", "(Lsml/Machine;I)V");
+                } else if (ins instanceof JnzInstruction jnz) {
+                    int target = labels.getAddress(jnz.getLabelToJumpTo());
+                    boolean backward = target <= address;
+                    count(); // before the jump, which leaves this instruction
+                    load(slot(jnz.getRegisterToCheck()), ILOAD);
+                    int notTaken = branch(IFEQ);
+                    increment(TAKEN_SLOT);
+                    if (backward) {
+                        load(COUNT_SLOT, LLOAD);
+                        load(BUDGET_SLOT, LLOAD);
+                        emit(LCMP);
+                        int exhausted = branch(IFGE);
+                        load(MACHINE_SLOT, ALOAD);
+                        invokeStatic("sml/BytecodeProgram", "cancelled", "(Lsml/Machine;)Z");
+                        int running = branch(IFEQ);
+                        land(exhausted);
+                        pauses.add(new int[] {branch(GOTO_W), target});
+                        land(running);
+                    }
+                    jumps.add(new int[] {branch(GOTO_W), target});
+                    land(notTaken);
+                    increment(NOT_TAKEN_SLOT);
+                } else {
+                    throw new IllegalArgumentException("The instruction '" + ins + "' cannot be compiled.");
+                }
+                if (!(ins instanceof MovInstruction || ins instanceof OutInstruction || ins instanceof JnzInstruction)) {
+                    traps.add(new int[] {offsets[address], code.size(), address});
+                }
+                if (!(ins instanceof JnzInstruction)) {
+                    count();
+                }
+            }
+
+            storeRegisters();
+            storeBranches();
+            load(COUNT_SLOT, LLOAD);
+            emit(LRETURN);
+
+            // Each failing instruction pushes its address and joins the shared trap code
+            List<Integer> toTrapCode = new ArrayList<>();
+            ByteArrayOutputStream exceptionTable = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(exceptionTable)) {
+                int catchType = classConstant("java/lang/ArithmeticException");
+                out.writeShort(traps.size());
+                for (int[] trap : traps) {
+                    int handler = code.size();
+                    out.writeShort(trap[0]);
+                    out.writeShort(trap[1]);
+                    out.writeShort(handler);
+                    out.writeShort(catchType);
+                    emit(POP);
+                    emit(SIPUSH);
+                    emitShort(trap[2]);
+                    toTrapCode.add(branch(GOTO_W));
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            toTrapCode.forEach(this::land);
+            load(ADDRESS_SLOT, ISTORE);
+            storeRegisters();
+            storeBranches();
+            load(MACHINE_SLOT, ALOAD);
+            load(REGISTERS_SLOT, ALOAD);
+            load(INSTRUCTIONS_SLOT, ALOAD);
+            load(ADDRESS_SLOT, ILOAD);
+            load(COUNT_SLOT, LLOAD);
+            invokeStatic("sml/BytecodeProgram", "trap",
+                    "(Lsml/Machine;[I[Lsml/Instruction;IJ)Ljava/lang/RuntimeException;");
+            emit(ATHROW);
+
+            // Each backward jump which pauses pushes its target and joins the shared pause code
+            List<Integer> toPauseCode = new ArrayList<>();
+            for (int[] pause : pauses) {
+                land(pause[0]);
+                emit(SIPUSH);
+                emitShort(pause[1]);
+                toPauseCode.add(branch(GOTO_W));
+            }
+            toPauseCode.forEach(this::land);
+            load(ADDRESS_SLOT, ISTORE);
+            storeRegisters();
+            storeBranches();
+            load(COUNTERS_SLOT, ALOAD);
+            push(2);
+            load(ADDRESS_SLOT, ILOAD);
+            emit(I2L);
+            emit(LASTORE);
+            load(COUNT_SLOT, LLOAD);
+            emit(LRETURN);
+
+            if (code.size() > MAX_CODE_LENGTH || instructions.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("The program of " + instructions.length +
+                        " instructions is too large to be compiled.");
+            }
+
+            for (int[] jump : jumps)
+                branches.add(new int[] {jump[0], offsets[jump[1]]});
+            byte[] body = code.toByteArray();
+            for (int[] branch : branches)
+                patch(body, branch[0], branch[1] - branch[0]);
+            code.reset();
+            code.writeBytes(body);
+            return exceptionTable.toByteArray();
+        }
+
+        /*
+         * Emits a branch whose offset is set once the code is complete, and returns its offset.
+         */
+        private int branch(int opcode) {
+            int position = code.size();
+            emit(opcode);
+            if (opcode == GOTO_W)
+                emitInt(0);
+            else
+                emitShort(0);
+            return position;
+        }
+
+        /*
+         * Makes the branch at the given offset jump to the end of the code written so far.
+         */
+        private void land(int position) {
+            branches.add(new int[] {position, code.size()});
+        }
+
+        /*
+         * Sets the offset of the branch at the given position of body: four bytes for a goto_w, two for the others.
+         */
+        private static void patch(byte[] body, int position, int offset) {
+            if ((body[position] & 0xFF) == GOTO_W) {
+                body[position + 1] = (byte) (offset >>> 24);
+                body[position + 2] = (byte) (offset >>> 16);
+                body[position + 3] = (byte) (offset >>> 8);
+                body[position + 4] = (byte) offset;
+            } else {
+                if (offset != (short) offset)
+                    throw new IllegalStateException("The branch at offset " + position + " is too far to encode");
+                body[position + 1] = (byte) (offset >>> 8);
+                body[position + 2] = (byte) offset;
+            }
+        }
+
+        private void arithmetic(RegisterName result, RegisterName source, String method) {
+            load(slot(result), ILOAD);
+            load(slot(source), ILOAD);
+            invokeStatic("java/lang/Math", method, "(II)I");
+            load(slot(result), ISTORE);
+        }
+
+        /*
+         * Applies an int instruction to the two registers, wrapping around on overflow.
+         */
+        private void wrapping(RegisterName result, RegisterName source, int opcode) {
+            load(slot(result), ILOAD);
+            load(slot(source), ILOAD);
+            emit(opcode);
+            load(slot(result), ISTORE);
+        }
+
+        /*
+         * Applies a long instruction to the two registers and clamps the result to the range of an int.  A division by
+         * zero throws an ArithmeticException, which traps as usual.
+         */
+        private void saturating(RegisterName result, RegisterName source, int opcode) {
+            load(slot(result), ILOAD);
+            emit(I2L);
+            load(slot(source), ILOAD);
+            emit(I2L);
+            emit(opcode);
+            invokeStatic("sml/instruction/SaturatingInstruction", "saturate", "(J)I");
+            load(slot(result), ISTORE);
+        }
+
+        // the instruction for a specialised add, sub, mul or div
+        private static int opcode(OverflowPolicyInstruction ins, int add, int sub, int mul, int div) {
+            return switch (ins.getOpcode()) {
+                case AddInstruction.OP_CODE -> add;
+                case SubInstruction.OP_CODE -> sub;
+                case MulInstruction.OP_CODE -> mul;
+                default -> div;
+            };
+        }
+
+        /*
+         * Adds one to the count of instructions completed.
+         */
+        private void count() {
+            increment(COUNT_SLOT);
+        }
+
+        /*
+         * Adds one to the long in the given slot, in six bytes.
+         */
+        private void increment(int slot) {
+            load(slot, LLOAD);
+            emit(LCONST_1);
+            emit(LADD);
+            load(slot, LSTORE);
+        }
+
+        private void storeBranches() {
+            load(COUNTERS_SLOT, ALOAD);
+            push(0);
+            load(TAKEN_SLOT, LLOAD);
+            emit(LASTORE);
+            load(COUNTERS_SLOT, ALOAD);
+            push(1);
+            load(NOT_TAKEN_SLOT, LLOAD);
+            emit(LASTORE);
+        }
+
+        private void storeRegisters() {
+            for (int slot = 0; slot < REGISTERS.length; slot++) {
+                load(REGISTERS_SLOT, ALOAD);
+                push(slot);
+                load(FIRST_REGISTER_SLOT + slot, ILOAD);
+                emit(IASTORE);
+            }
+        }
+
+        private static int slot(RegisterName register) {
+            return FIRST_REGISTER_SLOT + ((Register) register).ordinal();
+        }
+
+        private void load(int slot, int opcode) {
+            emit(opcode);
+            emit(slot);
+        }
+
+        private void push(int value) {
+            if (value >= -1 && value <= 5) {
+                emit(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                emit(BIPUSH);
+                emit(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                emit(SIPUSH);
+                emitShort(value);
+            } else {
+                emit(LDC_W);
+                emitShort(integerConstant(value));
+            }
+        }
+
+        private void invokeStatic(String owner, String name, String descriptor) {
+            emit(INVOKESTATIC);
+            emitShort(methodConstant(owner, name, descriptor));
+        }
+
+        private void emit(int b) {
+            code.write(b);
+        }
+
+        private void emitShort(int s) {
+            code.write(s >>> 8);
+            code.write(s);
+        }
+
+        private void emitInt(int i) {
+            emitShort(i >>> 16);
+            emitShort(i);
+        }
+
+        private int utf8Constant(String value) {
+            return constant("U" + value, out -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        private int integerConstant(int value) {
+            return constant("I" + value, out -> {
+                out.writeByte(3);
+                out.writeInt(value);
+            });
+        }
+
+        private int classConstant(String name) {
+            int nameIndex = utf8Constant(name);
+            return constant("C" + name, out -> {
+                out.writeByte(7);
+                out.writeShort(nameIndex);
+            });
+        }
+
+        private int methodConstant(String owner, String name, String descriptor) {
+            int ownerIndex = classConstant(owner);
+            int nameIndex = utf8Constant(name);
+            int descriptorIndex = utf8Constant(descriptor);
+            int nameAndTypeIndex = constant("N" + name + descriptor, out -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return constant("M" + owner + "." + name + descriptor, out -> {
+                out.writeByte(10);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndTypeIndex);
+            });
+        }
+
+        private interface ConstantWriter {
+            void write(DataOutputStream out) throws IOException;
+        }
+
+        private int constant(String key, ConstantWriter writer) {
+            Integer index = constantIndexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                writer.write(out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            constants.add(bytes.toByteArray());
+            constantIndexes.put(key, constants.size());
+            return constants.size();
+        }
+    }
+}
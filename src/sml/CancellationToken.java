@@ -0,0 +1,86 @@
+package sml;
+
+import java.time.Duration;
+
+/**
+ * A request, from outside a running program, that it stop: either when {@link #cancel()} is called or when a deadline
+ * passes.
+ *
+ * A machine polls the token it is given only when a jnz jumps backwards, so a program is stopped at the next turn of
+ * a loop rather than immediately, and a program without loops always runs to its end.  A token may be cancelled from
+ * any thread, and may be shared by several machines to stop them all.
+ *
+ * @author lhickley
+ */
+public final class CancellationToken {
+    private volatile boolean cancelled = false;
+
+    private final boolean hasDeadline;
+
+    // the value of System.nanoTime() at the deadline, if there is one
+    private final long deadline;
+
+    /**
+     * Constructor: a token which is cancelled only by {@link #cancel()}.
+     */
+    public CancellationToken() {
+        this.hasDeadline = false;
+        this.deadline = 0;
+    }
+
+    private CancellationToken(long deadline) {
+        this.hasDeadline = true;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Returns a token which is cancelled once the given time has passed, or by {@link #cancel()} before then.
+     *
+     * @param timeout the time from now until the token is cancelled
+     * @return the token
+     * @throws IllegalArgumentException if the timeout is negative
+     */
+    public static CancellationToken withTimeout(Duration timeout) {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("The timeout must not be negative, not " + timeout);
+        }
+        long nanos;
+        try {
+            nanos = timeout.toNanos();
+        } catch (ArithmeticException e) {
+            return new CancellationToken();
+        }
+        return new CancellationToken(System.nanoTime() + nanos);
+    }
+
+    /**
+     * Cancels the token, so that the machines polling it stop.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns whether the token has been cancelled, or its deadline has passed.
+     *
+     * @return true if the token is cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled || (hasDeadline && System.nanoTime() - deadline >= 0);
+    }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    /**
+     * representation of this instance,
+     * in the form "CancellationToken[cancelled = false, deadline = true]"
+     *
+     * @return the string representation of the token
+     */
+    @Override
+    public String toString() {
+        return "CancellationToken[cancelled = " + isCancelled() + ", deadline = " + hasDeadline + "]";
+    }
+}
@@ -0,0 +1,309 @@
+package sml;
+
+import sml.instruction.*;
+
+import static sml.Instruction.NORMAL_PROGRAM_COUNTER_UPDATE;
+import static sml.Registers.Register;
+
+/**
+ * A program lowered into a packed array of ints, executed by a single switch-dispatch loop.
+ *
+ * Each instruction occupies two consecutive ints.  The first holds the opcode in its low byte, the first register
+ * operand in its second byte and the second register operand in its third byte.  The second holds the immediate
+ * value of a mov, or the resolved target address of a jnz.
+ *
+ * While the program runs the registers are held in a local array, and are copied back into the registers of the
+ * machine when the program ends.  When an instruction would fail, the registers are copied back first and the
+ * original instruction is executed on the machine, so the exception raised is exactly the one the instruction
+ * itself raises.
+ *
+ * Arithmetic specialised for the {@link OverflowPolicy#WRAP} and {@link OverflowPolicy#SATURATE} policies is lowered to
+ * opcodes of its own, which wrap or clamp their results in the loop as the specialised instructions do.  A program
+ * linked for the {@link OverflowPolicy#WIDEN} policy cannot be lowered, since its registers do not fit in ints.
+ *
+ * Other instructions this class does not know how to lower are executed through {@link Instruction#execute(Machine)}.
+ *
+ * The number of instructions completed is recorded on the machine, whether or not the program fails.
+ *
+ * Execution may be given a budget of instructions, which is checked only when a jnz jumps backwards along with
+ * whether the machine's execution has been cancelled, and may begin at the address such a jump went to, so that a
+ * program can be paused and resumed.
+ *
+ * @author lhickley
+ */
+public final class CompactProgram {
+    private static final int ADD = 0;
+    private static final int SUB = 1;
+    private static final int MUL = 2;
+    private static final int DIV = 3;
+    private static final int WRAPPING_ADD = 4;
+    private static final int WRAPPING_SUB = 5;
+    private static final int WRAPPING_MUL = 6;
+    private static final int SATURATING_ADD = 7;
+    private static final int SATURATING_SUB = 8;
+    private static final int SATURATING_MUL = 9;
+    private static final int SATURATING_DIV = 10;
+    private static final int MOV = 11;
+    private static final int OUT = 12;
+    private static final int JNZ = 13;
+    private static final int DELEGATE = 14;
+
+    private static final Register[] REGISTERS = Register.values();
+
+    private final int[] code;
+
+    // The instructions the code was lowered from, indexed by address
+    private final Instruction[] instructions;
+
+    private CompactProgram(int[] code, Instruction[] instructions) {
+        this.code = code;
+        this.instructions = instructions;
+    }
+
+    /**
+     * Lowers a linked program into its packed form.
+     *
+     * @param instructions the linked instructions of the program, indexed by address
+     * @param labels the labels of the program
+     * @return the packed program
+     * @throws IllegalArgumentException if the program was linked for the {@link OverflowPolicy#WIDEN} policy
+     * @throws RuntimeException if a jnz instruction refers to a label which does not exist
+     */
+    public static CompactProgram compile(Instruction[] instructions, Labels labels) {
+        int[] code = new int[instructions.length * 2];
+        for (int address = 0; address < instructions.length; address++) {
+            Instruction ins = instructions[address];
+            if (ins instanceof SubJnzInstruction fused) {
+                ins = fused.getSub(); // the jnz following it is lowered in its own right
+            }
+            int word;
+            int operand = 0;
+            if (ins instanceof AddInstruction add) {
+                word = encode(ADD, add.getResult(), add.getSource());
+            } else if (ins instanceof SubInstruction sub) {
+                word = encode(SUB, sub.getResult(), sub.getSource());
+            } else if (ins instanceof MulInstruction mul) {
+                word = encode(MUL, mul.getResult(), mul.getSource());
+            } else if (ins instanceof DivInstruction div) {
+                word = encode(DIV, div.getResult(), div.getSource());
+            } else if (ins instanceof WrappingInstruction wrapping) {
+                word = encode(opcode(wrapping, WRAPPING_ADD, WRAPPING_SUB, WRAPPING_MUL, DIV),
+                        wrapping.getResult(), wrapping.getSource());
+            } else if (ins instanceof SaturatingInstruction saturating) {
+                word = encode(opcode(saturating, SATURATING_ADD, SATURATING_SUB, SATURATING_MUL, SATURATING_DIV),
+                        saturating.getResult(), saturating.getSource());
+            } else if (ins instanceof WideningInstruction) {
+                throw new IllegalArgumentException("The instruction '" + ins + "' has 64-bit registers, so cannot be "
+                        + "lowered.");
+            } else if (ins instanceof MovInstruction mov) {
+                word = encode(MOV, mov.getRegisterToSet(), null);
+                operand = mov.getValue();
+            } else if (ins instanceof OutInstruction out) {
+                word = encode(OUT, out.getSource(), null);
+            } else if (ins instanceof JnzInstruction jnz) {
+                word = encode(JNZ, jnz.getRegisterToCheck(), null);
+                operand = labels.getAddress(jnz.getLabelToJumpTo());
+            } else {
+                word = DELEGATE;
+            }
+            code[address * 2] = word;
+            code[address * 2 + 1] = operand;
+        }
+        return new CompactProgram(code, instructions.clone());
+    }
+
+    // the opcode of a specialised instruction, which is an add, sub, mul or div
+    private static int opcode(OverflowPolicyInstruction ins, int add, int sub, int mul, int div) {
+        return switch (ins.getOpcode()) {
+            case AddInstruction.OP_CODE -> add;
+            case SubInstruction.OP_CODE -> sub;
+            case MulInstruction.OP_CODE -> mul;
+            default -> div;
+        };
+    }
+
+    private static int encode(int opcode, RegisterName first, RegisterName second) {
+        int word = opcode | ((Register) first).ordinal() << 8;
+        return (second == null) ? word : word | ((Register) second).ordinal() << 16;
+    }
+
+    /**
+     * Returns the number of instructions in the program.
+     *
+     * @return the number of instructions
+     */
+    public int size() {
+        return instructions.length;
+    }
+
+    /**
+     * Executes the program on the given machine, beginning at instruction 0 with the registers of the machine as
+     * they currently stand.
+     *
+     * @param machine the machine whose registers the program reads and updates
+     * @throws RuntimeException if an instruction fails, with the registers of the machine holding the values they had
+     *          at the point of failure
+     */
+    public void execute(Machine machine) {
+        execute(machine, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Executes the program on the given machine, beginning at the given address with the registers of the machine as
+     * they currently stand, and pausing at the first backward jump taken once budget instructions have completed or
+     * the execution of the machine has been cancelled.
+     *
+     * @param machine the machine whose registers the program reads and updates
+     * @param start the address of the first instruction to execute
+     * @param budget the number of instructions after which the program may be paused
+     * @return the address of the next instruction to execute if the program was paused, otherwise the length of the
+     *          program
+     * @throws RuntimeException if an instruction fails, with the registers of the machine holding the values they had
+     *          at the point of failure
+     */
+    public int execute(Machine machine, int start, long budget) {
+        Registers registers = machine.getRegisters();
+        OutputSink output = machine.getOutput();
+        int[] r = new int[REGISTERS.length];
+        load(registers, r);
+        int[] code = this.code;
+        int end = code.length;
+        int pc = start * 2;
+        long limit = budget - 1; // the count before the jump which uses up the budget
+        long executed = 0;
+        long taken = 0;
+        long notTaken = 0;
+        try {
+            run:
+            while (pc < end) {
+                int word = code[pc];
+                int a = (word >>> 8) & 0xFF;
+                int b = (word >>> 16) & 0xFF;
+                switch (word & 0xFF) {
+                    case ADD -> {
+                        int x = r[a], y = r[b], res = x + y;
+                        if (UnderOverFlowHandling.addOverUnderFlows(x, y, res)) throw trap(machine, r, pc);
+                        r[a] = res;
+                        pc += 2;
+                    }
+                    case SUB -> {
+                        int x = r[a], y = r[b], res = x - y;
+                        if (UnderOverFlowHandling.subtractOverUnderFlows(x, y, res)) throw trap(machine, r, pc);
+                        r[a] = res;
+                        pc += 2;
+                    }
+                    case MUL -> {
+                        int x = r[a], y = r[b];
+                        if (UnderOverFlowHandling.multiplyOverUnderFlows(x, y)) throw trap(machine, r, pc);
+                        r[a] = x * y;
+                        pc += 2;
+                    }
+                    case DIV -> {
+                        int y = r[b];
+                        if (y == 0) throw trap(machine, r, pc);
+                        r[a] = r[a] / y;
+                        pc += 2;
+                    }
+                    case WRAPPING_ADD -> {
+                        r[a] += r[b];
+                        pc += 2;
+                    }
+                    case WRAPPING_SUB -> {
+                        r[a] -= r[b];
+                        pc += 2;
+                    }
+                    case WRAPPING_MUL -> {
+                        r[a] *= r[b];
+                        pc += 2;
+                    }
+                    case SATURATING_ADD -> {
+                        r[a] = SaturatingInstruction.saturate((long) r[a] + r[b]);
+                        pc += 2;
+                    }
+                    case SATURATING_SUB -> {
+                        r[a] = SaturatingInstruction.saturate((long) r[a] - r[b]);
+                        pc += 2;
+                    }
+                    case SATURATING_MUL -> {
+                        r[a] = SaturatingInstruction.saturate((long) r[a] * r[b]);
+                        pc += 2;
+                    }
+                    case SATURATING_DIV -> {
+                        int y = r[b];
+                        if (y == 0) throw trap(machine, r, pc);
+                        r[a] = SaturatingInstruction.saturate((long) r[a] / y);
+                        pc += 2;
+                    }
+                    case MOV -> {
+                        r[a] = code[pc + 1];
+                        pc += 2;
+                    }
+                    case OUT -> {
+                        output.write(r[a]);
+                        pc += 2;
+                    }
+                    case JNZ -> {
+                        if (r[a] != 0) {
+                            int target = code[pc + 1] * 2;
+                            taken++;
+                            if (target <= pc && (executed >= limit || machine.isCancelled())) {
+                                pc = target;
+                                executed++;
+                                break run;
+                            }
+                            pc = target;
+                        } else {
+                            pc += 2;
+                            notTaken++;
+                        }
+                    }
+                    default -> {
+                        store(r, registers);
+                        int update = instructions[pc / 2].execute(machine);
+                        load(registers, r);
+                        if (update == NORMAL_PROGRAM_COUNTER_UPDATE) {
+                            pc += 2;
+                        } else if (update * 2 <= pc && (executed >= limit || machine.isCancelled())) {
+                            pc = update * 2;
+                            executed++;
+                            break run;
+                        } else {
+                            pc = update * 2;
+                        }
+                    }
+                }
+                executed++;
+            }
+        } finally {
+            machine.setInstructionsExecuted(executed);
+            machine.setBranches(taken, notTaken);
+        }
+        store(r, registers);
+        return Math.min(pc, end) / 2;
+    }
+
+    /*
+     * Copies the registers back into the machine and re-executes the failing instruction there, so that the
+     * exception returned is the one the instruction itself throws.
+     */
+    private RuntimeException trap(Machine machine, int[] r, int pc) {
+        store(r, machine.getRegisters());
+        Instruction ins = instructions[pc / 2];
+        try {
+            ins.execute(machine);
+        } catch (RuntimeException e) {
+            return e;
+        }
+        return new IllegalStateException("The instruction '" + ins + "' was expected to fail but did not.");
+    }
+
+    private static void load(Registers registers, int[] r) {
+        for (Register register : REGISTERS)
+            r[register.ordinal()] = registers.get(register);
+    }
+
+    private static void store(int[] r, Registers registers) {
+        for (Register register : REGISTERS)
+            registers.set(register, r[register.ordinal()]);
+    }
+}
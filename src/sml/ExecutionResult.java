@@ -0,0 +1,181 @@
+package sml;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static sml.Registers.Register;
+
+/**
+ * The outcome of one execution of a program by a {@link Machine}: why it ended, what it did, and what it cost.
+ *
+ * A result is immutable.  Its registers are a copy of those of the machine when the execution ended, so running the
+ * machine again does not change them.
+ *
+ * @author lhickley
+ */
+public final class ExecutionResult {
+
+    /**
+     * The ways in which an execution can end.
+     */
+    public enum Termination {
+        /** The program ran past its last instruction. */
+        NORMAL,
+        /** An instruction failed, such as by overflowing or dividing by zero; see {@link #getFailure()}. */
+        TRAP,
+        /** The machine used up the instructions it was allowed before the program ended. */
+        BUDGET_EXHAUSTED,
+        /** The execution was cancelled before the program ended. */
+        CANCELLED
+    }
+
+    private static final Register[] REGISTERS = Register.values();
+
+    private final Termination termination;
+
+    private final RuntimeException failure;
+
+    private final long instructionsRetired;
+
+    private final long branchesTaken;
+
+    private final long branchesNotTaken;
+
+    private final long wallNanos;
+
+    private final long cpuNanos;
+
+    private final long outputs;
+
+    private final long[] registers;
+
+    ExecutionResult(Termination termination, RuntimeException failure, long instructionsRetired, long branchesTaken,
+                    long branchesNotTaken, long wallNanos, long cpuNanos, long outputs, Registers registers) {
+        this.termination = termination;
+        this.failure = failure;
+        this.instructionsRetired = instructionsRetired;
+        this.branchesTaken = branchesTaken;
+        this.branchesNotTaken = branchesNotTaken;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+        this.outputs = outputs;
+        this.registers = new long[REGISTERS.length];
+        for (Register register : REGISTERS)
+            this.registers[register.ordinal()] = registers.getLong(register);
+    }
+
+    public Termination getTermination() {
+        return termination;
+    }
+
+    /**
+     * Returns whether the program ran to its end.
+     *
+     * @return true if the termination is {@link Termination#NORMAL}
+     */
+    public boolean isCompleted() {
+        return termination == Termination.NORMAL;
+    }
+
+    /**
+     * Returns the exception raised by the instruction which failed.
+     *
+     * @return the exception, or null unless the termination is {@link Termination#TRAP}
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns the number of instructions completed.  A fused superinstruction counts as the instructions it replaced,
+     * and an instruction which failed is not counted.
+     *
+     * @return the number of instructions retired
+     */
+    public long getInstructionsRetired() {
+        return instructionsRetired;
+    }
+
+    /**
+     * Returns the number of jnz instructions which jumped, finding their register not zero.
+     *
+     * @return the number of branches taken
+     */
+    public long getBranchesTaken() {
+        return branchesTaken;
+    }
+
+    /**
+     * Returns the number of jnz instructions which fell through, finding their register zero.
+     *
+     * @return the number of branches not taken
+     */
+    public long getBranchesNotTaken() {
+        return branchesNotTaken;
+    }
+
+    /**
+     * Returns the time the execution took, from linking the program to its end.
+     *
+     * @return the elapsed time, in nanoseconds
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * Returns the CPU time the executing thread spent on the execution.
+     *
+     * @return the CPU time, in nanoseconds, or -1 if the platform cannot measure it
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * Returns the number of values written to the output sink.
+     *
+     * @return the number of values output
+     */
+    public long getOutputs() {
+        return outputs;
+    }
+
+    /**
+     * Returns the value a register held when the execution ended.
+     *
+     * @param register the register
+     * @return its value
+     */
+    public long getRegister(RegisterName register) {
+        return registers[((Register) register).ordinal()];
+    }
+
+    /**
+     * Returns the values the registers held when the execution ended.
+     *
+     * @return an unmodifiable map from each register to its value, in register order
+     */
+    public Map<Register, Long> getRegisters() {
+        Map<Register, Long> values = new EnumMap<>(Register.class);
+        for (Register register : REGISTERS)
+            values.put(register, registers[register.ordinal()]);
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * representation of this instance,
+     * in the form "ExecutionResult[NORMAL, instructions = 35, taken = 4, not taken = 1, outputs = 1, wall = 10us,
+     * cpu = 9us, registers = {EAX=0, ...}]"
+     *
+     * @return the string representation of the result
+     */
+    @Override
+    public String toString() {
+        return "ExecutionResult[" + termination + ", instructions = " + instructionsRetired + ", taken = "
+                + branchesTaken + ", not taken = " + branchesNotTaken + ", outputs = " + outputs + ", wall = "
+                + wallNanos / 1_000 + "us, cpu = " + ((cpuNanos < 0) ? "unknown" : cpuNanos / 1_000 + "us")
+                + ", registers = " + getRegisters() + "]";
+    }
+}
@@ -0,0 +1,47 @@
+package sml;
+
+import sml.instruction.JnzInstruction;
+import sml.instruction.SubInstruction;
+import sml.instruction.SubJnzInstruction;
+
+/**
+ * The pass which replaces common sequences of instructions in a linked program with superinstructions, so that each
+ * sequence costs a single dispatch.
+ *
+ * A superinstruction takes the place of the first instruction of its sequence, and the remaining instructions are
+ * left where they are.  The program therefore keeps its length, every label keeps its address, and a jump into the
+ * middle of a sequence still executes the instructions from that point on.
+ *
+ * The sequences fused are:
+ * <ul>
+ *     <li>{@code sub R S} followed by {@code jnz R label}, fused into a {@link SubJnzInstruction}</li>
+ * </ul>
+ *
+ * @author lhickley
+ */
+public final class Fuser {
+
+    private Fuser() {
+    }
+
+    /**
+     * Fuses the sequences found in code, replacing their first instructions in place.
+     *
+     * @param code the linked instructions of a program, indexed by address
+     * @param labels the labels of the program
+     * @return the number of fusions applied
+     */
+    public static int fuse(Instruction[] code, Labels labels) {
+        int fusions = 0;
+        for (int address = 0; address + 1 < code.length; address++) {
+            if (code[address] instanceof SubInstruction sub
+                    && code[address + 1] instanceof JnzInstruction jnz
+                    && sub.getResult().equals(jnz.getRegisterToCheck())) {
+                int addressToJumpTo = labels.getAddress(jnz.getLabelToJumpTo());
+                code[address] = new SubJnzInstruction(sub, jnz, address, addressToJumpTo);
+                fusions++;
+            }
+        }
+        return fusions;
+    }
+}
@@ -48,6 +48,20 @@ public abstract class Instruction {
 
 	public abstract int execute(Machine machine);
 
+	/**
+	 * Resolves any label references made by the instruction against the labels of the program it belongs to.
+	 *
+	 * Called once by the machine before execution begins, so that no label lookups are needed while the program runs.
+	 * Instructions which do not refer to labels have nothing to resolve and return themselves.
+	 *
+	 * @param labels the labels of the program the instruction belongs to
+	 * @return an instruction equivalent to this one with its label references resolved
+	 * @throws RuntimeException if a label referred to does not exist
+	 */
+	public Instruction link(Labels labels) {
+		return this;
+	}
+
 	protected String getLabelString() {
 		return (getLabel() == null) ? "" : getLabel() + ": ";
 	}
@@ -0,0 +1,174 @@
+package sml;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static sml.Registers.Register;
+
+/**
+ * Describes an instruction of the language to the {@link InstructionFactory}: its opcode, the kinds of operand it
+ * takes, and the class which implements it.
+ *
+ * The class must have a public constructor taking the label of the instruction followed by one parameter for each
+ * operand, of the type given by the kind of the operand.  A handle on the constructor is found once, when the
+ * definition is made, so creating an instruction needs no reflection.
+ *
+ * @author lhickley
+ */
+public final class InstructionDefinition {
+
+    /**
+     * The kinds of operand an instruction may take.
+     */
+    public enum Operand {
+        /** The name of a register, passed to the constructor as a {@link RegisterName}. */
+        REGISTER(RegisterName.class),
+        /** An integer which fits in a register, passed to the constructor as an int. */
+        INTEGER(int.class),
+        /** The name of a label, passed to the constructor as a String. */
+        LABEL(String.class);
+
+        private final Class<?> parameterType;
+
+        Operand(Class<?> parameterType) {
+            this.parameterType = parameterType;
+        }
+
+        public Class<?> getParameterType() {
+            return parameterType;
+        }
+    }
+
+    // never changed once made, so it is shared by every thread without a lock
+    private static final Map<String, Register> REGISTERS = registers();
+
+    private static Map<String, Register> registers() {
+        Map<String, Register> registers = new HashMap<>();
+        for (Register register : Register.values())
+            registers.put(register.name(), register);
+        return Map.copyOf(registers);
+    }
+
+    private final String opcode;
+
+    private final Class<? extends Instruction> type;
+
+    private final Operand[] operands;
+
+    // (String label, Object[] operands) -> Instruction
+    private final MethodHandle constructor;
+
+    private InstructionDefinition(String opcode, Class<? extends Instruction> type, Operand[] operands,
+                                  MethodHandle constructor) {
+        this.opcode = opcode;
+        this.type = type;
+        this.operands = operands;
+        this.constructor = constructor;
+    }
+
+    /**
+     * Defines an instruction.
+     *
+     * @param opcode the opcode of the instruction, which must be a single word
+     * @param type the class implementing the instruction
+     * @param operands the kinds of operand the instruction takes, in order
+     * @return the definition
+     * @throws IllegalArgumentException if the opcode is not a single word, or the class has no public constructor
+     *          taking a label and the given operands
+     */
+    public static InstructionDefinition of(String opcode, Class<? extends Instruction> type, Operand... operands) {
+        Objects.requireNonNull(type);
+        if (opcode.isEmpty() || opcode.chars().anyMatch(c -> c <= ' ') || opcode.endsWith(":")) {
+            throw new IllegalArgumentException("The opcode '" + opcode + "' is not a single word.");
+        }
+        Class<?>[] parameterTypes = new Class<?>[operands.length + 1];
+        parameterTypes[0] = String.class;
+        for (int i = 0; i < operands.length; i++)
+            parameterTypes[i + 1] = operands[i].getParameterType();
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.publicLookup()
+                    .findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                    .asSpreader(Object[].class, operands.length)
+                    .asType(MethodType.methodType(Instruction.class, String.class, Object[].class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("The class " + type.getName() + " has no public constructor taking "
+                    + List.of(parameterTypes) + ".", e);
+        }
+        return new InstructionDefinition(opcode, type, operands.clone(), constructor);
+    }
+
+    public String getOpcode() {
+        return opcode;
+    }
+
+    public Class<? extends Instruction> getType() {
+        return type;
+    }
+
+    public List<Operand> getOperands() {
+        return List.of(operands);
+    }
+
+    /**
+     * Returns the number of operands the instruction takes.
+     *
+     * @return the number of operands
+     */
+    public int getArity() {
+        return operands.length;
+    }
+
+    /**
+     * Creates an instruction from the words of a line.
+     *
+     * @param label the label of the instruction, or null
+     * @param arguments the words following the opcode
+     * @return the instruction
+     * @throws InstructionFormatException if the words are not operands of the right number and kinds, or the
+     *          instruction rejects them
+     */
+    public Instruction create(String label, List<String> arguments) {
+        if (arguments.size() != operands.length) {
+            throw InstructionFormatException.wrongNumberOfOperands(opcode, operands.length);
+        }
+        Object[] values = new Object[operands.length];
+        for (int i = 0; i < operands.length; i++) {
+            String argument = arguments.get(i);
+            values[i] = switch (operands[i]) {
+                case REGISTER -> {
+                    Register register = REGISTERS.get(argument);
+                    if (register == null) throw InstructionFormatException.invalidRegister(opcode);
+                    yield register;
+                }
+                case INTEGER -> {
+                    try {
+                        yield Integer.parseInt(argument);
+                    } catch (NumberFormatException e) {
+                        throw InstructionFormatException.invalidInteger(opcode, e);
+                    }
+                }
+                case LABEL -> argument;
+            };
+        }
+        try {
+            return (Instruction) constructor.invokeExact(label, values);
+        } catch (IllegalArgumentException e) {
+            throw InstructionFormatException.invalidOperands(opcode, e);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("The constructor of " + type.getName() + " failed.", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return opcode + " " + List.of(operands) + " -> " + type.getName();
+    }
+}
@@ -2,10 +2,9 @@ package sml;
 
 import sml.instruction.*;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.*;
 
-import static sml.Registers.Register;
+import static sml.InstructionDefinition.Operand.*;
 
 /**
  * The InstructionFactory class is responsible for creating instances of Instruction objects based on the
@@ -13,30 +12,96 @@ import static sml.Registers.Register;
  *
  * It uses the singleton design pattern to ensure that there is only one instance of the factory.
  *
- * The create method takes a label, an opcode, and an ArrayList of arguments, and returns an Instruction object
- * based on the opcode and arguments.
+ * A factory never changes once made, so it may be shared by any number of translators on any number of threads.
  *
- * The class throws a RuntimeException if an invalid opcode or an incorrect number or type of arguments is provided.
+ * Each opcode is registered with an {@link InstructionDefinition}, giving the number and kinds of its operands and a
+ * handle on the constructor of its class, so creating an instruction costs one lookup in a hash table.  Besides the
+ * instructions of the language, the factory registers those of every {@link InstructionProvider} found by
+ * {@link ServiceLoader}, so other jars can add opcodes without changing this class.
  *
- * The class throws a RuntimeException if an invalid register value or integer value is provided.
+ * The create method takes a label, an opcode, and an ArrayList of arguments, and returns an Instruction object
+ * based on the opcode and arguments.
  *
- * The class uses the Registers enum to ensure that only valid register values are accepted.
+ * The class throws an InstructionFormatException if an invalid opcode, an incorrect number of arguments, an invalid
+ * register or an invalid integer value is provided; its reason tells which.
  *
  * @author lhickley
  */
 
 public class InstructionFactory {
 
-    private static InstructionFactory instance = null;
+    private static final List<InstructionDefinition> STANDARD_INSTRUCTIONS = List.of(
+            InstructionDefinition.of(AddInstruction.OP_CODE, AddInstruction.class, REGISTER, REGISTER),
+            InstructionDefinition.of(SubInstruction.OP_CODE, SubInstruction.class, REGISTER, REGISTER),
+            InstructionDefinition.of(MulInstruction.OP_CODE, MulInstruction.class, REGISTER, REGISTER),
+            InstructionDefinition.of(DivInstruction.OP_CODE, DivInstruction.class, REGISTER, REGISTER),
+            InstructionDefinition.of(OutInstruction.OP_CODE, OutInstruction.class, REGISTER),
+            InstructionDefinition.of(MovInstruction.OP_CODE, MovInstruction.class, REGISTER, INTEGER),
+            InstructionDefinition.of(JnzInstruction.OP_CODE, JnzInstruction.class, REGISTER, LABEL));
 
-    private InstructionFactory() {
+    private final Map<String, InstructionDefinition> definitions;
+
+    private InstructionFactory(ClassLoader loader) {
+        Map<String, InstructionDefinition> definitions = new HashMap<>();
+        for (InstructionDefinition definition : STANDARD_INSTRUCTIONS)
+            register(definitions, definition);
+        for (InstructionProvider provider : ServiceLoader.load(InstructionProvider.class, loader)) {
+            for (InstructionDefinition definition : provider.getInstructions())
+                register(definitions, definition);
+        }
+        this.definitions = Map.copyOf(definitions);
     }
 
-    public static InstructionFactory getInstance() {
-        if (instance == null) {
-            instance = new InstructionFactory();
+    private static void register(Map<String, InstructionDefinition> definitions, InstructionDefinition definition) {
+        InstructionDefinition previous = definitions.putIfAbsent(definition.getOpcode(), definition);
+        if (previous != null) {
+            throw new IllegalStateException("The opcode '" + definition.getOpcode() + "' is defined by both "
+                    + previous.getType().getName() + " and " + definition.getType().getName() + ".");
         }
-        return instance;
+    }
+
+    /*
+     * Holds the single instance, which the JVM creates the first time getInstance() reads it.  Class initialisation is
+     * thread-safe, so every thread sees the one fully built factory without taking a lock.
+     */
+    private static final class Holder {
+        private static final InstructionFactory INSTANCE =
+                new InstructionFactory(InstructionFactory.class.getClassLoader());
+    }
+
+    public static InstructionFactory getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Creates a factory for the instructions of the language and those of the providers visible to the given class
+     * loader, rather than to the loader of this class.
+     *
+     * @param loader the class loader to find providers with
+     * @return the new factory
+     * @throws IllegalStateException if two instructions have the same opcode
+     */
+    public static InstructionFactory withProviders(ClassLoader loader) {
+        return new InstructionFactory(loader);
+    }
+
+    /**
+     * Returns the definition of the instruction with the given opcode.
+     *
+     * @param opcode the opcode
+     * @return the definition, or null if there is no instruction with the opcode
+     */
+    public InstructionDefinition getDefinition(String opcode) {
+        return definitions.get(opcode);
+    }
+
+    /**
+     * Returns the opcodes of every instruction the factory can create.
+     *
+     * @return the opcodes
+     */
+    public Set<String> getOpcodes() {
+        return definitions.keySet();
     }
 
     /**
@@ -45,44 +110,14 @@ public class InstructionFactory {
      * @param opcode the opcode for the instruction
      * @param args an ArrayList of Strings representing the arguments for the instruction
      * @return an Instruction object based on the opcode and arguments
-     * @throws RuntimeException if the opcode is invalid or the number or type of arguments is incorrect
-     * @throws RuntimeException if an invalid register value or integer value is provided
-     * @return
+     * @throws InstructionFormatException if the opcode is invalid, the number of arguments is incorrect, or an
+     *          invalid register value or integer value is provided
      */
     public Instruction create(String label, String opcode, ArrayList<String> args) {
-        try {
-            if (opcode.equals("out")) {
-                if (args.size() != 1) {
-                    throw new RuntimeException("For out instructions, only one argument is accepted after the opcode");
-                }
-            } else {
-                if (args.size() != 2) {
-                    throw new RuntimeException("For " + opcode + " instructions, only two arguments are accepted after the opcode");
-                }
-            }
-            return switch (opcode) {
-                case "add" -> new AddInstruction(label, Register.valueOf(args.get(0)), Register.valueOf(args.get(1)));
-                case "sub" -> new SubInstruction(label, Register.valueOf(args.get(0)), Register.valueOf(args.get(1)));
-                case "mul" -> new MulInstruction(label, Register.valueOf(args.get(0)), Register.valueOf(args.get(1)));
-                case "div" -> new DivInstruction(label, Register.valueOf(args.get(0)), Register.valueOf(args.get(1)));
-                case "out" -> new OutInstruction(label, Register.valueOf(args.get(0)));
-                case "mov" -> new MovInstruction(label, Register.valueOf(args.get(0)), Integer.parseInt(args.get(1)));
-                case "jnz" -> new JnzInstruction(label, Register.valueOf(args.get(0)), args.get(1));
-                default -> throw new IllegalArgumentException("Unknown instruction '" + opcode + "'");
-            };
-        } catch (IllegalArgumentException e) {
-            String eString = e.toString();
-            String errorMessage = "Illegal arguments passed for '" + opcode + "'\n";
-            if (eString.contains("No enum constant")) {
-                errorMessage = errorMessage + "Permitted register values are: \n" + Arrays.toString(Register.values());
-            } else if (eString.contains("Unknown instruction")) {
-                errorMessage = errorMessage + "Unknown instruction '" + opcode + "'";
-            } else if (eString.contains("NumberFormatException")) {
-                errorMessage = errorMessage + "Value passed was not an acceptable integer value.\n" +
-                        "Value stored in registers must be between -2,147,483,648 and 2,147,483,647 inclusive.";
-            }
-            throw new RuntimeException(errorMessage);
+        InstructionDefinition definition = definitions.get(opcode);
+        if (definition == null) {
+            throw InstructionFormatException.unknownOpcode(opcode);
         }
+        return definition.create(label, args);
     }
 }
-
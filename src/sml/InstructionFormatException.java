@@ -0,0 +1,87 @@
+package sml;
+
+import java.io.Serial;
+import java.util.Arrays;
+
+import static sml.Registers.Register;
+
+/**
+ * Thrown when a line of a program cannot be made into an instruction.  The reason says what was wrong with it, so
+ * that callers need not inspect the message.
+ *
+ * @author lhickley
+ */
+public class InstructionFormatException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The ways in which a line can fail to make an instruction.
+     */
+    public enum Reason {
+        /** No instruction has the opcode. */
+        UNKNOWN_OPCODE,
+        /** The instruction was given the wrong number of operands. */
+        WRONG_NUMBER_OF_OPERANDS,
+        /** An operand which should name a register does not. */
+        INVALID_REGISTER,
+        /** An operand which should be an integer is not one, or does not fit in a register. */
+        INVALID_INTEGER,
+        /** The instruction rejected its operands. */
+        INVALID_OPERANDS
+    }
+
+    private final Reason reason;
+
+    private final String opcode;
+
+    private InstructionFormatException(Reason reason, String opcode, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+        this.opcode = opcode;
+    }
+
+    static InstructionFormatException unknownOpcode(String opcode) {
+        return new InstructionFormatException(Reason.UNKNOWN_OPCODE, opcode,
+                illegalArguments(opcode) + "Unknown instruction '" + opcode + "'", null);
+    }
+
+    static InstructionFormatException wrongNumberOfOperands(String opcode, int arity) {
+        String accepted = switch (arity) {
+            case 0 -> "no arguments are";
+            case 1 -> "only one argument is";
+            case 2 -> "only two arguments are";
+            case 3 -> "only three arguments are";
+            default -> "only " + arity + " arguments are";
+        };
+        return new InstructionFormatException(Reason.WRONG_NUMBER_OF_OPERANDS, opcode,
+                "For " + opcode + " instructions, " + accepted + " accepted after the opcode", null);
+    }
+
+    static InstructionFormatException invalidRegister(String opcode) {
+        return new InstructionFormatException(Reason.INVALID_REGISTER, opcode,
+                illegalArguments(opcode) + "Permitted register values are: \n" + Arrays.toString(Register.values()), null);
+    }
+
+    static InstructionFormatException invalidInteger(String opcode, NumberFormatException cause) {
+        return new InstructionFormatException(Reason.INVALID_INTEGER, opcode,
+                illegalArguments(opcode) + "Value passed was not an acceptable integer value.\n" +
+                        "Value stored in registers must be between -2,147,483,648 and 2,147,483,647 inclusive.", cause);
+    }
+
+    static InstructionFormatException invalidOperands(String opcode, IllegalArgumentException cause) {
+        return new InstructionFormatException(Reason.INVALID_OPERANDS, opcode, illegalArguments(opcode), cause);
+    }
+
+    private static String illegalArguments(String opcode) {
+        return "Illegal arguments passed for '" + opcode + "'\n";
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public String getOpcode() {
+        return opcode;
+    }
+}
@@ -0,0 +1,49 @@
+package sml;
+
+import java.util.HashMap;
+
+/**
+ * Shares one instance between the equal unlabeled instructions of a program, so that a program repeating the same
+ * line many times holds that instruction only once.
+ *
+ * Instructions are immutable, and an unlabeled instruction is equal to another only when it does the same thing, so
+ * either may stand in for the other.  Labeled instructions are left alone: a label belongs to a single address, and
+ * the {@link Labels} of the program already map each one to its address.
+ *
+ * An interner is used by one thread at a time.
+ *
+ * @author lhickley
+ */
+final class InstructionInterner {
+    private final HashMap<Instruction, Instruction> instructions = new HashMap<>();
+
+    /**
+     * Returns the instance shared by instructions equal to the given one, which becomes that instance if there is none
+     * yet.  A labeled instruction is returned as it is.
+     *
+     * @param instruction the instruction
+     * @return an instruction equal to the given one
+     */
+    Instruction intern(Instruction instruction) {
+        if (instruction.getLabel() != null)
+            return instruction;
+        Instruction shared = instructions.putIfAbsent(instruction, instruction);
+        return (shared == null) ? instruction : shared;
+    }
+
+    /**
+     * Forgets every instruction interned so far, so that they are not kept alive by the interner.
+     */
+    void clear() {
+        instructions.clear();
+    }
+
+    /**
+     * Returns the number of distinct unlabeled instructions interned since the interner was last cleared.
+     *
+     * @return the number of instructions
+     */
+    int size() {
+        return instructions.size();
+    }
+}
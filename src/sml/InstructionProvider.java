@@ -0,0 +1,25 @@
+package sml;
+
+import java.util.List;
+
+/**
+ * A source of instructions to add to the language, found through {@link java.util.ServiceLoader}.
+ *
+ * A jar adds opcodes by implementing this interface and naming the implementation in
+ * {@code META-INF/services/sml.InstructionProvider}.  The {@link InstructionFactory} then creates its instructions
+ * alongside those of the language itself.  An opcode may be defined only once.
+ *
+ * Like those of the language, the instructions must be immutable, and an unlabeled instruction must equal another
+ * only when either may stand in for the other, since the translator shares one instance between equal ones.
+ *
+ * @author lhickley
+ */
+public interface InstructionProvider {
+
+    /**
+     * Returns the definitions of the instructions this provider adds.
+     *
+     * @return the instruction definitions
+     */
+    List<InstructionDefinition> getInstructions();
+}
@@ -1,5 +1,6 @@
 package sml;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -53,6 +54,15 @@ public final class Labels {
 		}
 	}
 
+	/**
+	 * Returns the labels and the addresses they refer to.
+	 *
+	 * @return an unmodifiable view of the labels
+	 */
+	public Map<String, Integer> getAddresses() {
+		return Collections.unmodifiableMap(labels);
+	}
+
 	/**
 	 * representation of this instance,
 	 * in the form "[label -> address, label -> address, ..., label -> address]"
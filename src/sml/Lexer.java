@@ -0,0 +1,121 @@
+package sml;
+
+import sml.instruction.*;
+
+import static sml.Registers.Register;
+
+/**
+ * Splits a line of SML source into its label and words by moving a cursor over the characters of the line.
+ *
+ * Words are separated by spaces, and any other whitespace at the start or end of the line, or either side of a
+ * separating space, is ignored.  A word which is an opcode or a register name is returned as the constant string for
+ * that opcode or register, so only labels and numbers cause a new string to be created.
+ *
+ * A lexer is reset to each line in turn, and is not safe for use by more than one thread at a time.
+ *
+ * @author lhickley
+ */
+final class Lexer {
+    private static final String[] KEYWORDS = keywords();
+
+    private CharSequence line = "";
+
+    private int position;
+
+    // one past the last character of the line which is not whitespace
+    private int end;
+
+    /**
+     * Moves the lexer to the start of the given line.
+     *
+     * @param line the line to split, which must not change until the lexer is reset again
+     */
+    void reset(CharSequence line) {
+        int end = line.length();
+        while (end > 0 && line.charAt(end - 1) <= ' ')
+            end--;
+        this.line = line;
+        this.position = 0;
+        this.end = end;
+        skipWhitespace();
+    }
+
+    /**
+     * Returns whether any words remain on the line.
+     *
+     * @return true if there is another word to read
+     */
+    boolean hasNext() {
+        return position < end;
+    }
+
+    /**
+     * Reads the next word of the line.
+     *
+     * @return the next word, or "" if there are no more words
+     */
+    String next() {
+        int start = position;
+        int stop = wordEnd(start);
+        position = stop;
+        skipWhitespace();
+        return word(start, stop);
+    }
+
+    /**
+     * Reads the label at the start of the line, if the first word is a label.  Otherwise nothing is read.
+     *
+     * @return the label without its trailing colon, or null if the line has no label
+     */
+    String nextLabel() {
+        int start = position;
+        int stop = wordEnd(start);
+        if (stop == start || line.charAt(stop - 1) != ':')
+            return null;
+        position = stop;
+        skipWhitespace();
+        return line.subSequence(start, stop - 1).toString();
+    }
+
+    private int wordEnd(int start) {
+        int stop = start;
+        while (stop < end && line.charAt(stop) != ' ')
+            stop++;
+        return stop;
+    }
+
+    private void skipWhitespace() {
+        while (position < end && line.charAt(position) <= ' ')
+            position++;
+    }
+
+    private String word(int start, int stop) {
+        int length = stop - start;
+        for (String keyword : KEYWORDS) {
+            if (keyword.length() == length && matches(start, keyword))
+                return keyword;
+        }
+        return line.subSequence(start, stop).toString();
+    }
+
+    private boolean matches(int start, String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            if (line.charAt(start + i) != keyword.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static String[] keywords() {
+        String[] opcodes = {
+                AddInstruction.OP_CODE, SubInstruction.OP_CODE, MulInstruction.OP_CODE, DivInstruction.OP_CODE,
+                OutInstruction.OP_CODE, MovInstruction.OP_CODE, JnzInstruction.OP_CODE
+        };
+        Register[] registers = Register.values();
+        String[] keywords = new String[opcodes.length + registers.length];
+        System.arraycopy(opcodes, 0, keywords, 0, opcodes.length);
+        for (int i = 0; i < registers.length; i++)
+            keywords[opcodes.length + i] = registers[i].name();
+        return keywords;
+    }
+}
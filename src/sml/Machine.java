@@ -1,8 +1,23 @@
 package sml;
 
+import jdk.jfr.FlightRecorder;
+import sml.instruction.JnzInstruction;
+import sml.instruction.SubJnzInstruction;
+import sml.jfr.Events;
+import sml.jfr.ExecutionEvent;
+import sml.jfr.ProgressEvent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static sml.Instruction.NORMAL_PROGRAM_COUNTER_UPDATE;
@@ -15,34 +30,770 @@ import static sml.Instruction.NORMAL_PROGRAM_COUNTER_UPDATE;
  */
 public final class Machine {
 
+	/**
+	 * The ways in which a machine can execute its program.
+	 */
+	public enum Engine {
+		/** Executes each instruction object in turn through {@link Instruction#execute(Machine)}. */
+		INTERPRETER,
+		/** Lowers the program into a {@link CompactProgram} and executes that. */
+		COMPACT,
+		/** Compiles the program into a JVM class through {@link BytecodeProgram} and executes that. */
+		BYTECODE
+	}
+
+	/**
+	 * The budget of an execution which is never paused.
+	 */
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
 	private final Labels labels = new Labels();
 
 	private final List<Instruction> program = new ArrayList<>();
 
 	private final Registers registers;
 
+	private final OverflowPolicy overflowPolicy;
+
+	private OutputSink output = new BufferedOutputSink();
+
+	// The linked form of program which is actually executed; built by link()
+	private Instruction[] code = new Instruction[0];
+
+	// The kind of each instruction in code, so that the interpreter can count branches without type checks
+	private byte[] kinds = new byte[0];
+
+	private static final byte PLAIN = 0;
+	private static final byte BRANCH = 1;
+	private static final byte FUSED_BRANCH = 2;
+
+	private Engine engine = Engine.INTERPRETER;
+
+	private boolean fusing = false;
+
+	// The number of superinstructions created by the last call to link()
+	private int fusions = 0;
+
+	// The number of instructions completed by the last call to execute()
+	private long instructionsExecuted = 0;
+
+	// The number of jnz instructions which jumped, and which fell through, in the last call to execute()
+	private long branchesTaken = 0;
+	private long branchesNotTaken = 0;
+
+	// Whether the last execution used up its budget or was cancelled, so that it can be resumed from programCounter
+	private boolean paused = false;
+
+	// The token the running execution polls, or null if it is stopped only by interruption
+	private CancellationToken cancellation = null;
+
+	// Whether the running execution has been found to be cancelled
+	private boolean cancelled = false;
+
+	// The forms of code the other engines execute, kept while an execution is paused so that it resumes without
+	// building them again; the hidden class of the compiled program is also kept for later runs of the same program
+	private CompactProgram compact = null;
+	private BytecodeProgram compiled = null;
+
+	private boolean profiling = false;
+
+	// The profile of the last call to execute() while profiling, otherwise null
+	private Profile profile = null;
+
 	// The program counter; it contains the index (in program)
 	// of the next instruction to be executed.
+	// The interpreter publishes it as it goes with opaque writes, for a SamplingProfiler to read from another thread.
 	private int programCounter = 0;
 
+	// Whether the interpreter is running, so that programCounter may be being published
+	private volatile boolean interpreting = false;
+
+	// The number of samplers reading the published program counter; the interpreter publishes it only while there are
+	// any, and otherwise pays nothing for it
+	private final AtomicInteger samplers = new AtomicInteger();
+
+	private static final VarHandle PROGRAM_COUNTER;
+
+	static {
+		try {
+			PROGRAM_COUNTER = MethodHandles.lookup().findVarHandle(Machine.class, "programCounter", int.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
 	public Machine(Registers registers) {
+		this(registers, OverflowPolicy.TRAP);
+	}
+
+	/**
+	 * Constructor: a machine whose arithmetic follows the given overflow policy.
+	 *
+	 * @param registers the registers of the machine
+	 * @param overflowPolicy how arithmetic results which do not fit in a register are treated
+	 */
+	public Machine(Registers registers, OverflowPolicy overflowPolicy) {
 		this.registers = registers;
+		this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
 	}
 
 	/**
-	 * Execute the program in program, beginning at instruction 0.
+	 * Resolves the label references of every instruction in program against labels, ready for execution.
+	 * Any reference to a label which does not exist is reported here, before any instruction has been executed.
+	 * When fusing is enabled the linked program is passed through the {@link Fuser}, and arithmetic instructions,
+	 * including those within superinstructions, are then specialised for the overflow policy of the machine.
+	 *
+	 * @throws RuntimeException if an instruction refers to a label which does not exist
+	 */
+	public void link() {
+		Instruction[] linked = new Instruction[program.size()];
+		for (int i = 0; i < linked.length; i++) {
+			linked[i] = program.get(i).link(labels);
+		}
+		fusions = fusing ? Fuser.fuse(linked, labels) : 0;
+		for (int i = 0; i < linked.length; i++) {
+			linked[i] = overflowPolicy.specialise(linked[i]);
+		}
+		byte[] linkedKinds = new byte[linked.length];
+		for (int i = 0; i < linked.length; i++) {
+			if (linked[i] instanceof JnzInstruction) linkedKinds[i] = BRANCH;
+			else if (linked[i] instanceof SubJnzInstruction) linkedKinds[i] = FUSED_BRANCH;
+		}
+		code = linked;
+		kinds = linkedKinds;
+	}
+
+	/**
+	 * Execute the program in program, beginning at instruction 0, using the engine of the machine.
+	 * The output sink is flushed when execution ends, whether or not an instruction fails.
+	 * The program is linked first, so jumps to undefined labels are reported before execution begins.
 	 * Precondition: the program and its labels have been stored properly.
+	 *
+	 * @throws RuntimeException if an instruction fails
+	 * @throws CancellationException if the executing thread is interrupted
+	 * @see #run()
+	 * @see #run(long)
 	 */
 	public void execute() {
-		programCounter = 0;
-		registers.clear();
-		while (programCounter < program.size()) {
-			Instruction ins = program.get(programCounter);
-			int programCounterUpdate = ins.execute(this);
-			programCounter = (programCounterUpdate == NORMAL_PROGRAM_COUNTER_UPDATE)
-				? programCounter + 1
-				: programCounterUpdate;
+		// the result is not returned, so the CPU time it would give is not measured
+		ExecutionResult result = run(false, UNLIMITED, null, false);
+		switch (result.getTermination()) {
+			case TRAP -> throw result.getFailure();
+			case CANCELLED -> throw new CancellationException("The execution was interrupted after "
+					+ result.getInstructionsRetired() + " instructions");
+			default -> { }
+		}
+	}
+
+	/**
+	 * Executes the program as {@link #execute()} does, but returns the result of the execution rather than throwing
+	 * when an instruction fails.  The result gives the number of instructions retired and branches taken and not
+	 * taken, the time taken, the number of values output and the final registers.
+	 * If the executing thread is interrupted the run stops at the next backward jump, as {@link #run(long,
+	 * CancellationToken)} describes; the interrupt status is left set.
+	 * Each execution is recorded by Java Flight Recorder as an {@link ExecutionEvent}, and while it runs its progress
+	 * is recorded periodically as a {@link ProgressEvent}.  Neither touches Java Flight Recorder until it has been
+	 * started, as {@link Events} describes, nor costs more than a check unless a recording enables it.
+	 *
+	 * @return the result of the execution
+	 * @throws RuntimeException if an instruction refers to a label which does not exist
+	 */
+	public ExecutionResult run() {
+		return run(UNLIMITED);
+	}
+
+	/**
+	 * Executes the program as {@link #run()} does, pausing it once it has used up a budget of instructions.
+	 * The budget is checked only when a jump goes backwards, so a run may complete a few more instructions than its
+	 * budget before it pauses, and straight-line code pays nothing for the check.  A paused run ends with the
+	 * termination {@link ExecutionResult.Termination#BUDGET_EXHAUSTED}, keeping its program counter and registers,
+	 * and can be continued by {@link #resume(long)}.
+	 *
+	 * @param budget the number of instructions after which the run may be paused, or {@link #UNLIMITED}
+	 * @return the result of the run
+	 * @throws IllegalArgumentException if the budget is not positive
+	 * @throws RuntimeException if an instruction refers to a label which does not exist
+	 */
+	public ExecutionResult run(long budget) {
+		return run(false, budget, null, true);
+	}
+
+	/**
+	 * Executes the program as {@link #run(long)} does, stopping it early if the token is cancelled or the executing
+	 * thread is interrupted.  Both are polled only when a jump goes backwards, so that loops can be stopped and
+	 * straight-line code pays nothing.  A stopped run ends with the termination
+	 * {@link ExecutionResult.Termination#CANCELLED}, giving the instructions it retired and the registers as they
+	 * stood, and can be continued by {@link #resume(long, CancellationToken)}.  The interrupt status of the thread is
+	 * left set.
+	 *
+	 * @param budget the number of instructions after which the run may be paused, or {@link #UNLIMITED}
+	 * @param token the token to poll
+	 * @return the result of the run
+	 * @throws IllegalArgumentException if the budget is not positive
+	 * @throws RuntimeException if an instruction refers to a label which does not exist
+	 */
+	public ExecutionResult run(long budget, CancellationToken token) {
+		return run(false, budget, Objects.requireNonNull(token), true);
+	}
+
+	/**
+	 * Continues a run which used up its budget or was cancelled from where it was paused, with the registers as they
+	 * stand, until it uses up the given budget in turn.  The result counts only the instructions, branches and
+	 * outputs of this part of the run, so that many machines can be given slices of time in turn.
+	 *
+	 * @param budget the number of instructions after which the run may be paused again, or {@link #UNLIMITED}
+	 * @return the result of this part of the run
+	 * @throws IllegalStateException if the last run of the machine was not paused
+	 * @throws IllegalArgumentException if the budget is not positive
+	 */
+	public ExecutionResult resume(long budget) {
+		if (!paused) {
+			throw new IllegalStateException("There is no paused run to resume");
+		}
+		return run(true, budget, null, true);
+	}
+
+	/**
+	 * Continues a paused run as {@link #resume(long)} does, stopping it early if the token is cancelled or the
+	 * executing thread is interrupted, as {@link #run(long, CancellationToken)} describes.
+	 *
+	 * @param budget the number of instructions after which the run may be paused again, or {@link #UNLIMITED}
+	 * @param token the token to poll
+	 * @return the result of this part of the run
+	 * @throws IllegalStateException if the last run of the machine was not paused
+	 * @throws IllegalArgumentException if the budget is not positive
+	 */
+	public ExecutionResult resume(long budget, CancellationToken token) {
+		if (!paused) {
+			throw new IllegalStateException("There is no paused run to resume");
+		}
+		return run(true, budget, Objects.requireNonNull(token), true);
+	}
+
+	/**
+	 * Returns whether the last run of the machine used up its budget or was cancelled, so that it can be resumed.
+	 *
+	 * @return true if the machine is paused
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/*
+	 * Runs or resumes the program, measuring the CPU time taken only when timed, since doing so costs two system
+	 * calls.
+	 */
+	private ExecutionResult run(boolean resuming, long budget, CancellationToken token, boolean timed) {
+		if (budget <= 0) {
+			throw new IllegalArgumentException("The budget of instructions must be positive, not " + budget);
+		}
+		ExecutionEvent event = Events.isStarted() ? new ExecutionEvent() : null;
+		if (event != null)
+			event.begin();
+		Progress progress = Progress.start(this);
+		long wallStart = System.nanoTime();
+		long cpuStart = timed ? cpuTime() : -1;
+		RuntimeException failure = null;
+		Throwable thrown = null;
+		CountingOutputSink counting;
+		try {
+			profile = null;
+			if (!resuming) {
+				compact = null;
+				link();
+				programCounter = 0;
+				registers.clear();
+			}
+			paused = false;
+			cancellation = token;
+			cancelled = false;
+			instructionsExecuted = 0;
+			branchesTaken = 0;
+			branchesNotTaken = 0;
+			OutputSink output = this.output;
+			counting = new CountingOutputSink(output);
+			this.output = counting;
+			try {
+				switch (engine) {
+					case INTERPRETER -> {
+						interpreting = true;
+						try {
+							if (profiling) interpretProfiled(budget);
+							else interpretAll(budget);
+						} finally {
+							interpreting = false;
+						}
+					}
+					case COMPACT -> {
+						if (compact == null)
+							compact = CompactProgram.compile(code, labels);
+						programCounter = compact.execute(this, programCounter, budget);
+					}
+					case BYTECODE -> {
+						if (compiled == null || !compiled.isCompiledFrom(code, labels))
+							compiled = BytecodeProgram.compile(code, labels);
+						programCounter = compiled.execute(this, programCounter, budget);
+					}
+				}
+				paused = programCounter < code.length;
+			} catch (RuntimeException e) {
+				failure = e;
+			} finally {
+				cancellation = null;
+				if (!paused)
+					compact = null;
+				this.output = output;
+				output.flush();
+			}
+		} catch (RuntimeException | Error e) {
+			thrown = e;
+			throw e;
+		} finally {
+			if (progress != null)
+				progress.stop();
+			if (event != null)
+				event.end(engine.name(), program.size(), instructionsExecuted,
+						(thrown != null) ? ExecutionResult.Termination.TRAP.name() : termination(failure).name(),
+						(thrown != null) ? thrown : failure);
+		}
+		long wallNanos = System.nanoTime() - wallStart;
+		long cpuNanos = (cpuStart < 0) ? -1 : cpuTime() - cpuStart;
+		return new ExecutionResult(termination(failure), failure, instructionsExecuted, branchesTaken,
+				branchesNotTaken, wallNanos, cpuNanos, counting.count, registers);
+	}
+
+	private ExecutionResult.Termination termination(RuntimeException failure) {
+		if (failure != null)
+			return ExecutionResult.Termination.TRAP;
+		if (!paused)
+			return ExecutionResult.Termination.NORMAL;
+		return cancelled ? ExecutionResult.Termination.CANCELLED : ExecutionResult.Termination.BUDGET_EXHAUSTED;
+	}
+
+	/*
+	 * The code made by the last call to link(), indexed by address.
+	 */
+	Instruction[] getCode() {
+		return code;
+	}
+
+	/*
+	 * Polled by the engines when a jump goes backwards: whether the running execution is to stop because its thread
+	 * has been interrupted or its token cancelled.
+	 */
+	boolean isCancelled() {
+		if (Thread.currentThread().isInterrupted() || (cancellation != null && cancellation.isCancelled())) {
+			cancelled = true;
+		}
+		return cancelled;
+	}
+
+	/*
+	 * Holds the bean measuring CPU time, so that the management classes are loaded the first time a run is timed
+	 * rather than when the machine is.
+	 */
+	private static final class CpuClock {
+		static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+		static final boolean SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported();
+	}
+
+	// the CPU time of the current thread in nanoseconds, or -1 if it cannot be measured
+	private static long cpuTime() {
+		return CpuClock.SUPPORTED ? CpuClock.THREADS.getCurrentThreadCpuTime() : -1;
+	}
+
+	/*
+	 * Passes every value output on to another sink, counting them.
+	 */
+	private static final class CountingOutputSink implements OutputSink {
+		private final OutputSink output;
+		private long count = 0;
+
+		CountingOutputSink(OutputSink output) {
+			this.output = output;
+		}
+
+		@Override
+		public void write(long value) {
+			output.write(value);
+			count++;
 		}
+
+		@Override
+		public void flush() {
+			output.flush();
+		}
+	}
+
+	/*
+	 * An execution whose progress Java Flight Recorder is recording.
+	 */
+	private static final class Progress {
+		private final Machine machine;
+		private final long start = System.nanoTime();
+		private final int size;
+		private final SourceLocations locations;
+
+		private Progress(Machine machine) {
+			this.machine = machine;
+			this.size = machine.program.size();
+			this.locations = new SourceLocations(size, machine.labels);
+		}
+
+		/*
+		 * Begins reporting the progress of an execution of the machine, returning null if progress is not being
+		 * recorded.  The periodic hook is registered the first time progress might be recorded, once Java Flight
+		 * Recorder has been started, rather than when the machine is loaded.
+		 */
+		static Progress start(Machine machine) {
+			if (!Events.isStarted())
+				return null;
+			ProgressRecorder.register();
+			if (!ProgressEvent.isRecorded())
+				return null;
+			Progress progress = new Progress(machine);
+			machine.attachSampler();
+			ProgressRecorder.EXECUTIONS.add(progress);
+			return progress;
+		}
+
+		void stop() {
+			ProgressRecorder.EXECUTIONS.remove(this);
+			machine.detachSampler();
+		}
+
+		void record() {
+			int address = machine.getLiveProgramCounter();
+			String location = (address >= 0 && address < size) ? locations.get(address) : null;
+			ProgressEvent.emit(System.identityHashCode(machine), machine.engine.name(), address, location,
+					System.nanoTime() - start);
+		}
+	}
+
+	/*
+	 * Registers the periodic hook recording the progress of executions with Java Flight Recorder, when first touched
+	 * once it has started.
+	 */
+	private static final class ProgressRecorder {
+		// The executions to report the progress of, while Java Flight Recorder is recording progress
+		static final Set<Progress> EXECUTIONS = ConcurrentHashMap.newKeySet();
+
+		static {
+			FlightRecorder.addPeriodicEvent(ProgressEvent.class, () -> {
+				for (Progress progress : EXECUTIONS)
+					progress.record();
+			});
+		}
+
+		// does nothing, but initialises the class, and so registers the hook, the first time it is called
+		static void register() {
+		}
+	}
+
+	/*
+	 * Interprets the program, in the loop which publishes the program counter while a sampler is attached and in the
+	 * one which does not otherwise, moving between them at backward jumps as samplers attach and detach.
+	 */
+	private void interpretAll(long budget) {
+		boolean switching;
+		do {
+			switching = (samplers.get() > 0) ? interpretSampled(budget) : interpret(budget);
+		} while (switching);
+	}
+
+	/*
+	 * The interpreter loop.  Stops at the first backward jump once budget instructions have completed, or the
+	 * execution is cancelled, leaving programCounter at the instruction jumped to.  Returns true if it stopped
+	 * instead because a sampler has attached, so that execution carries on in interpretSampled().
+	 */
+	private boolean interpret(long budget) {
+		Instruction[] code = this.code;
+		byte[] kinds = this.kinds;
+		int pc = programCounter;
+		long executed = instructionsExecuted;
+		long taken = branchesTaken;
+		long notTaken = branchesNotTaken;
+		try {
+			while (pc < code.length) {
+				Instruction ins = code[pc];
+				int programCounterUpdate = ins.execute(this);
+				executed++;
+				byte kind = kinds[pc];
+				if (kind == BRANCH) {
+					if (programCounterUpdate == NORMAL_PROGRAM_COUNTER_UPDATE) notTaken++;
+					else taken++;
+				} else if (kind == FUSED_BRANCH) {
+					if (fusedBranchTaken(ins)) taken++;
+					else notTaken++;
+					executed++;
+				}
+				if (programCounterUpdate == NORMAL_PROGRAM_COUNTER_UPDATE) {
+					pc++;
+				} else {
+					boolean backward = programCounterUpdate <= pc;
+					pc = programCounterUpdate;
+					if (backward) {
+						if (executed >= budget || isCancelled())
+							break;
+						if (samplers.get() > 0)
+							return true;
+					}
+				}
+			}
+		} finally {
+			programCounter = pc;
+			instructionsExecuted = executed;
+			branchesTaken = taken;
+			branchesNotTaken = notTaken;
+		}
+		return false;
+	}
+
+	/*
+	 * The interpreter loop while a sampler is attached: interpret() but publishing the program counter before each
+	 * instruction executes.  Returns true if it stopped because the last sampler has detached.
+	 */
+	private boolean interpretSampled(long budget) {
+		Instruction[] code = this.code;
+		byte[] kinds = this.kinds;
+		int pc = programCounter;
+		long executed = instructionsExecuted;
+		long taken = branchesTaken;
+		long notTaken = branchesNotTaken;
+		try {
+			while (pc < code.length) {
+				PROGRAM_COUNTER.setOpaque(this, pc);
+				Instruction ins = code[pc];
+				int programCounterUpdate = ins.execute(this);
+				executed++;
+				byte kind = kinds[pc];
+				if (kind == BRANCH) {
+					if (programCounterUpdate == NORMAL_PROGRAM_COUNTER_UPDATE) notTaken++;
+					else taken++;
+				} else if (kind == FUSED_BRANCH) {
+					if (fusedBranchTaken(ins)) taken++;
+					else notTaken++;
+					executed++;
+				}
+				if (programCounterUpdate == NORMAL_PROGRAM_COUNTER_UPDATE) {
+					pc++;
+				} else {
+					boolean backward = programCounterUpdate <= pc;
+					pc = programCounterUpdate;
+					if (backward) {
+						if (executed >= budget || isCancelled())
+							break;
+						if (samplers.get() == 0)
+							return true;
+					}
+				}
+			}
+		} finally {
+			programCounter = pc;
+			instructionsExecuted = executed;
+			branchesTaken = taken;
+			branchesNotTaken = notTaken;
+		}
+		return false;
+	}
+
+	// whether the jnz of a superinstruction which has just executed jumped
+	private boolean fusedBranchTaken(Instruction ins) {
+		return registers.getLong(((SubJnzInstruction) ins).getJnz().getRegisterToCheck()) != 0;
+	}
+
+	/*
+	 * The interpreter loop, counting and timing every instruction by its address.  Kept apart from interpret() so that
+	 * execution without profiling pays nothing for it.
+	 */
+	private void interpretProfiled(long budget) {
+		Instruction[] code = this.code;
+		byte[] kinds = this.kinds;
+		long[] counts = new long[code.length];
+		long[] nanos = new long[code.length];
+		int pc = programCounter;
+		long executed = 0;
+		long taken = 0;
+		long notTaken = 0;
+		long last = System.nanoTime();
+		try {
+			while (pc < code.length) {
+				int address = pc;
+				PROGRAM_COUNTER.setOpaque(this, address);
+				Instruction ins = code[address];
+				int programCounterUpdate = ins.execute(this);
+				executed++;
+				byte kind = kinds[address];
+				if (kind == BRANCH) {
+					if (programCounterUpdate == NORMAL_PROGRAM_COUNTER_UPDATE) notTaken++;
+					else taken++;
+				} else if (kind == FUSED_BRANCH) {
+					if (fusedBranchTaken(ins)) taken++;
+					else notTaken++;
+					executed++;
+				}
+				pc = (programCounterUpdate == NORMAL_PROGRAM_COUNTER_UPDATE)
+					? address + 1
+					: programCounterUpdate;
+				long now = System.nanoTime();
+				counts[address]++;
+				nanos[address] += now - last;
+				last = now;
+				if (pc <= address && (executed >= budget || isCancelled())) {
+					break;
+				}
+			}
+		} finally {
+			programCounter = pc;
+			instructionsExecuted = executed;
+			branchesTaken = taken;
+			branchesNotTaken = notTaken;
+			profile = new Profile(program, labels, counts, nanos);
+		}
+	}
+
+	/*
+	 * Attaches a sampler, so that the interpreter publishes its program counter: from the start of the next run, or
+	 * from the next backward jump of a run under way.
+	 */
+	void attachSampler() {
+		samplers.incrementAndGet();
+	}
+
+	/*
+	 * Detaches a sampler, so that once none are attached the interpreter stops publishing its program counter.
+	 */
+	void detachSampler() {
+		samplers.decrementAndGet();
+	}
+
+	/*
+	 * Returns the address of the instruction the interpreter is executing, as published just before it began; or -1
+	 * if the interpreter is not running.  Safe to call from any thread, though the address may be slightly stale, and
+	 * is only kept up to date while a sampler is attached.
+	 */
+	int getLiveProgramCounter() {
+		if (!interpreting)
+			return -1;
+		return (int) PROGRAM_COUNTER.getOpaque(this);
+	}
+
+	/**
+	 * Returns the number of instructions completed by the last call to {@link #execute()}.  An instruction which
+	 * failed is not counted, and a fused superinstruction counts as the instructions it replaced.
+	 *
+	 * @return the number of instructions executed
+	 */
+	public long getInstructionsExecuted() {
+		return this.instructionsExecuted;
+	}
+
+	/*
+	 * Records the number of instructions completed by an engine other than the interpreter.
+	 */
+	void setInstructionsExecuted(long instructionsExecuted) {
+		this.instructionsExecuted = instructionsExecuted;
+	}
+
+	/*
+	 * Records the number of branches taken and not taken by an engine other than the interpreter.
+	 */
+	void setBranches(long taken, long notTaken) {
+		this.branchesTaken = taken;
+		this.branchesNotTaken = notTaken;
+	}
+
+	public OutputSink getOutput() {
+		return this.output;
+	}
+
+	/**
+	 * Sets the sink which out instructions write to.  By default a machine writes to {@link System#out} through a
+	 * {@link BufferedOutputSink}.
+	 *
+	 * @param output the sink to write to
+	 */
+	public void setOutput(OutputSink output) {
+		this.output = Objects.requireNonNull(output);
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return this.overflowPolicy;
+	}
+
+	public Engine getEngine() {
+		return this.engine;
+	}
+
+	/**
+	 * Selects the engine used by {@link #execute()}.  Every engine leaves the registers in the same final state.
+	 * Only the interpreter can run a machine whose overflow policy is {@link OverflowPolicy#WIDEN}, since the other
+	 * engines hold the registers as ints, and only the interpreter can profile.
+	 *
+	 * @param engine the engine to use
+	 * @throws UnsupportedOperationException if the engine is not the interpreter and the overflow policy is WIDEN, or
+	 *          profiling is enabled
+	 */
+	public void setEngine(Engine engine) {
+		Objects.requireNonNull(engine);
+		if (engine != Engine.INTERPRETER && overflowPolicy == OverflowPolicy.WIDEN) {
+			throw new UnsupportedOperationException("Only the " + Engine.INTERPRETER + " engine supports the "
+					+ OverflowPolicy.WIDEN + " overflow policy");
+		}
+		if (engine != Engine.INTERPRETER && profiling) {
+			throw new UnsupportedOperationException("Only the " + Engine.INTERPRETER + " engine can profile programs");
+		}
+		this.engine = engine;
+	}
+
+	public boolean isProfiling() {
+		return this.profiling;
+	}
+
+	/**
+	 * Enables or disables profiling.  While profiling, {@link #execute()} counts and times every instruction it
+	 * executes, and afterwards {@link #getProfile()} reports where the time went.  Only the interpreter can profile.
+	 *
+	 * @param profiling whether to profile
+	 * @throws UnsupportedOperationException if profiling is enabled and the engine is not the interpreter
+	 */
+	public void setProfiling(boolean profiling) {
+		if (profiling && engine != Engine.INTERPRETER) {
+			throw new UnsupportedOperationException("Only the " + Engine.INTERPRETER + " engine can profile programs");
+		}
+		this.profiling = profiling;
+	}
+
+	/**
+	 * Returns the profile of the last call to {@link #execute()}, which is kept even if an instruction failed.
+	 *
+	 * @return the profile, or null if profiling was not enabled
+	 */
+	public Profile getProfile() {
+		return this.profile;
+	}
+
+	public boolean isFusing() {
+		return this.fusing;
+	}
+
+	/**
+	 * Enables or disables the fusion of common instruction sequences into superinstructions when the program is
+	 * linked.  The program itself, and so its string representation, is not changed by fusion.
+	 *
+	 * @param fusing whether to fuse instructions
+	 */
+	public void setFusing(boolean fusing) {
+		this.fusing = fusing;
+	}
+
+	/**
+	 * Returns the number of superinstructions created when the program was last linked.
+	 *
+	 * @return the number of fusions applied
+	 */
+	public int getFusions() {
+		return this.fusions;
 	}
 
 	public Labels getLabels() {
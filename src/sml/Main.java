@@ -1,23 +1,45 @@
 package sml;
 
 import java.io.IOException;
+import java.nio.file.Path;
 
 public class Main {
 	/**
-	 * Initialises the system and executes the program.
+	 * Initialises the system and executes the program, or compiles the program into a binary program.
 	 *
-	 * @param args name of the file containing the program text.
+	 * @param args name of the file containing the program, either as text or as a binary program ending in
+	 *             {@value BinaryProgram#EXTENSION}, optionally preceded by -p to profile its execution; or -c followed
+	 *             by the names of a file containing the program text and of the binary program to write it to.
 	 */
 	public static void main(String... args) {
+		boolean profiling = args.length == 2 && args[0].equals("-p");
+		if (profiling) {
+			args = new String[] {args[1]};
+		}
+		if (args.length == 3 && args[0].equals("-c")) {
+			try {
+				BinaryProgram.compile(args[1], args[2]);
+			}
+			catch (IOException | RuntimeException e) {
+				System.out.println("Error compiling the program from " + args[1] + " to " + args[2] + ":\n"
+						+ e.getMessage());
+			}
+			return;
+		}
 		if (args.length != 1) {
-			System.err.println("Incorrect number of arguments - Machine <file> - required");
+			System.err.println("Incorrect number of arguments - Machine [-p] <file> or Machine -c <file> <binary file> - required");
 			System.exit(-1);
 		}
 
 		try {
-			Translator t = new Translator(args[0], InstructionFactory.getInstance());
 			Machine m = new Machine(new Registers());
-			t.readAndTranslate(m.getLabels(), m.getProgram());
+			m.setProfiling(profiling);
+			if (BinaryProgram.isBinary(args[0])) {
+				BinaryProgram.load(Path.of(args[0]), m.getLabels(), m.getProgram());
+			} else {
+				Translator t = new Translator(args[0], InstructionFactory.getInstance());
+				t.readAndTranslate(m.getLabels(), m.getProgram());
+			}
 
 			System.out.println("Here is the program; it has " + m.getProgram().size() + " instructions.");
 			System.out.println(m);
@@ -27,6 +49,10 @@ public class Main {
 			System.out.println("Ending program execution.");
 
 			System.out.println("Values of registers at program termination:" + m.getRegisters() + ".");
+			if (profiling) {
+				System.out.println("Profile of program execution:");
+				System.out.print(m.getProfile().report(20));
+			}
 		}
 		catch (IOException e) {
 			System.out.println("Error reading the program from " + args[0]);
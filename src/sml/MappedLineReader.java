@@ -0,0 +1,154 @@
+package sml;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the lines of a UTF-8 file by memory-mapping it, decoding each line straight from the mapped bytes.
+ *
+ * Lines end at a line feed, a carriage return, or a carriage return followed by a line feed, as they do for
+ * {@link java.io.BufferedReader#readLine()}, and malformed input is replaced in the same way as a reader would.
+ *
+ * The file is mapped a window at a time, so files larger than a single mapping can hold may be read.  A window always
+ * begins at the start of a line, so each line, with its terminator, must fit in a window.
+ *
+ * A reader may be limited to a region of the file, which should begin at the start of a line and end after a line
+ * terminator or at the end of the file.
+ *
+ * Each line is decoded into a buffer which is reused for the next line, so the line returned is only valid until the
+ * next call to {@link #readLine()}.
+ *
+ * @author lhickley
+ */
+final class MappedLineReader implements Closeable {
+    static final int DEFAULT_WINDOW = 1 << 30;
+
+    private final FileChannel channel;
+
+    // the offset in the file one past the last byte to read
+    private final long end;
+
+    private final int window;
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private MappedByteBuffer buffer;
+
+    // the offset in the file of the start of buffer
+    private long bufferStart;
+
+    private CharBuffer line = CharBuffer.allocate(256);
+
+    MappedLineReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW);
+    }
+
+    MappedLineReader(Path path, int window) throws IOException {
+        this(path, 0, Long.MAX_VALUE, window);
+    }
+
+    /**
+     * Creates a reader of the lines in a region of a file.
+     *
+     * @param path the file to read
+     * @param start the offset of the first byte of the region
+     * @param end the offset one past the last byte of the region, which is limited to the size of the file
+     * @param window the largest number of bytes to map at once
+     * @throws IOException if the file cannot be opened
+     */
+    MappedLineReader(Path path, long start, long end, int window) throws IOException {
+        if (window <= 0)
+            throw new IllegalArgumentException("The window size must be positive, not " + window + ".");
+        if (start < 0 || start > end)
+            throw new IllegalArgumentException("The region " + start + " to " + end + " is not valid.");
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.end = Math.min(end, channel.size());
+        this.bufferStart = start;
+        this.window = window;
+    }
+
+    /**
+     * Reads the next line of the file.
+     *
+     * @return the line without its terminator, or null at the end of the file
+     * @throws IOException if the file cannot be mapped, or a line is longer than a window
+     */
+    CharSequence readLine() throws IOException {
+        if (buffer == null || !buffer.hasRemaining()) {
+            if (!map((buffer == null) ? bufferStart : bufferStart + buffer.limit()))
+                return null;
+        }
+        int start = buffer.position();
+        int stop = findTerminator(start);
+        if (stop == buffer.limit() && bufferStart + stop < end && start > 0) {
+            // the line runs past this window, so map again from its start
+            map(bufferStart + start);
+            start = 0;
+            stop = findTerminator(0);
+        }
+        if (stop == buffer.limit() && bufferStart + stop < end)
+            throw new IOException("A line of the file does not fit in a window of " + window + " bytes.");
+        decode(start, stop);
+        int next = stop;
+        if (next < buffer.limit() && buffer.get(next++) == '\r') {
+            // a line feed after the carriage return may begin the next window
+            if (next == buffer.limit() && bufferStart + next < end) {
+                map(bufferStart + next);
+                next = 0;
+            }
+            if (next < buffer.limit() && buffer.get(next) == '\n')
+                next++;
+        }
+        buffer.position(next);
+        return line;
+    }
+
+    private boolean map(long position) throws IOException {
+        if (position >= end)
+            return false;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(end - position, window));
+        bufferStart = position;
+        return true;
+    }
+
+    private int findTerminator(int from) {
+        MappedByteBuffer buffer = this.buffer;
+        int limit = buffer.limit();
+        for (int i = from; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r')
+                return i;
+        }
+        return limit;
+    }
+
+    private void decode(int start, int end) {
+        int length = end - start;
+        if (line.capacity() < length)
+            line = CharBuffer.allocate(Math.max(length, line.capacity() * 2));
+        line.clear();
+        int limit = buffer.limit();
+        buffer.position(start).limit(end);
+        decoder.reset();
+        decoder.decode(buffer, line, true);
+        decoder.flush(line);
+        buffer.limit(limit);
+        line.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,64 @@
+package sml;
+
+import java.util.Arrays;
+
+/**
+ * An output sink which keeps the values output in memory, for tests and for callers which want the values themselves.
+ *
+ * @author lhickley
+ */
+public final class MemoryOutputSink implements OutputSink {
+    private long[] values = new long[16];
+    private int size = 0;
+
+    @Override
+    public void write(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Returns the number of values output.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the values output, in order.
+     *
+     * @return a copy of the values
+     */
+    public long[] getValues() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Removes the values output.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * The values output, one to a line, as a {@link BufferedOutputSink} would have written them.
+     *
+     * @return the text of the output
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            text.append(values[i]).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+}
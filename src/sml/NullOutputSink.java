@@ -0,0 +1,21 @@
+package sml;
+
+/**
+ * An output sink which discards every value, for benchmarks which should not measure output.
+ *
+ * @author lhickley
+ */
+public final class NullOutputSink implements OutputSink {
+    public static final NullOutputSink INSTANCE = new NullOutputSink();
+
+    private NullOutputSink() {
+    }
+
+    @Override
+    public void write(long value) {
+    }
+
+    @Override
+    public void flush() {
+    }
+}
@@ -0,0 +1,23 @@
+package sml;
+
+/**
+ * The destination of the values output by a program.
+ *
+ * A machine carries a sink, which out instructions write to.  Sinks may buffer what is written, so the machine
+ * flushes its sink when execution ends.
+ *
+ * @author lhickley
+ */
+public interface OutputSink {
+    /**
+     * Outputs a value.
+     *
+     * @param value the value to output
+     */
+    void write(long value);
+
+    /**
+     * Passes on any buffered values to their final destination.
+     */
+    void flush();
+}
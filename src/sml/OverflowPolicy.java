@@ -0,0 +1,59 @@
+package sml;
+
+import sml.instruction.*;
+
+/**
+ * The ways in which a machine can treat arithmetic results which do not fit in a register.
+ *
+ * The policy is fixed when a machine is built.  When the machine links its program, each arithmetic instruction is
+ * replaced by one specialised for the policy, so a machine pays only for the checks its policy needs.
+ *
+ * @author lhickley
+ */
+public enum OverflowPolicy {
+    /** Over/underflow raises an {@code ArithmeticException}, as described by {@link UnderOverFlowHandling}. */
+    TRAP,
+    /** Results wrap around in two's complement, with no checks at all. */
+    WRAP,
+    /** Results are clamped to the largest or smallest int. */
+    SATURATE,
+    /** Registers are 64 bits wide; only results beyond the range of a long raise an {@code ArithmeticException}. */
+    WIDEN;
+
+    /**
+     * Returns the form of an instruction specialised for this policy.
+     *
+     * @param ins a linked instruction, which may be a superinstruction made by the {@link Fuser}
+     * @return the specialised instruction, or ins itself if it needs no specialisation
+     */
+    public Instruction specialise(Instruction ins) {
+        if (this == TRAP) {
+            return ins;
+        }
+        if (ins instanceof SubJnzInstruction fused) {
+            return fused.withSubtraction(specialise(fused.getSub()));
+        }
+        RegisterName result;
+        RegisterName source;
+        if (ins instanceof AddInstruction add) {
+            result = add.getResult();
+            source = add.getSource();
+        } else if (ins instanceof SubInstruction sub) {
+            result = sub.getResult();
+            source = sub.getSource();
+        } else if (ins instanceof MulInstruction mul) {
+            result = mul.getResult();
+            source = mul.getSource();
+        } else if (ins instanceof DivInstruction div && this != WRAP) {
+            result = div.getResult();
+            source = div.getSource();
+        } else {
+            return ins;
+        }
+        return switch (this) {
+            case WRAP -> WrappingInstruction.of(ins.getLabel(), ins.getOpcode(), result, source);
+            case SATURATE -> SaturatingInstruction.of(ins.getLabel(), ins.getOpcode(), result, source);
+            default -> WideningInstruction.of(ins.getLabel(), ins.getOpcode(), result, source);
+        };
+    }
+}
@@ -0,0 +1,237 @@
+package sml;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Translates a file in parallel, by splitting it into chunks of whole lines, translating each chunk on a fork/join
+ * pool, and merging the chunks in order.
+ *
+ * Each chunk numbers its instructions and labels from zero.  The merge moves them to their place in the whole
+ * program and adds the labels in source order, so duplicate labels are found and reported just as they are when the
+ * file is translated line by line.  When a line cannot be translated, the chunks before it and the lines of its own
+ * chunk before it are kept, the failure is reported (or thrown, when translating strictly), and the later chunks
+ * are discarded.
+ *
+ * Each chunk shares one instance between its own equal unlabeled instructions, so an instruction repeated across the
+ * file is held at most once per chunk.
+ *
+ * @author lhickley
+ */
+final class ParallelTranslation {
+    // chunks smaller than this are not worth a task of their own
+    static final long MINIMUM_CHUNK_SIZE = 1 << 16;
+
+    // the number of chunks made for each thread of the pool, so that threads finishing early can take more
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelTranslation() {
+    }
+
+    /**
+     * Translates the file into the labels and program.
+     *
+     * @param path the file to translate
+     * @param instructionFactory the factory to create instructions with
+     * @param pool the pool to translate the chunks on
+     * @param interning whether equal unlabeled instructions share one instance
+     * @param strict whether a line which cannot be translated, or a duplicate label, is thrown rather than reported
+     * @param labels the labels to replace with the labels of the program
+     * @param program the list to replace with the instructions of the program
+     * @return the number of lines read
+     * @throws IOException if the file cannot be read
+     */
+    static int translate(Path path, InstructionFactory instructionFactory, ForkJoinPool pool, boolean interning,
+                         boolean strict, Labels labels, List<Instruction> program) throws IOException {
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+        }
+        long chunks = Math.max(1, Math.min((long) pool.getParallelism() * CHUNKS_PER_THREAD, size / MINIMUM_CHUNK_SIZE));
+        return translate(path, instructionFactory, pool, interning, strict, (int) chunks, labels, program);
+    }
+
+    /**
+     * Translates the file into the labels and program, splitting it into the given number of chunks or fewer, and
+     * returns the number of lines read.
+     */
+    static int translate(Path path, InstructionFactory instructionFactory, ForkJoinPool pool, boolean interning,
+                         boolean strict, int chunks, Labels labels, List<Instruction> program) throws IOException {
+        long[] boundaries = split(path, chunks);
+        List<ChunkTask> tasks = new ArrayList<>(boundaries.length - 1);
+        for (int i = 0; i + 1 < boundaries.length; i++) {
+            ChunkTask task = new ChunkTask(path, boundaries[i], boundaries[i + 1], instructionFactory,
+                    interning);
+            tasks.add(task);
+            pool.execute(task);
+        }
+
+        try {
+            List<Chunk> translated = new ArrayList<>(tasks.size());
+            for (ChunkTask task : tasks) {
+                Chunk chunk = task.join();
+                if (chunk.readFailure != null)
+                    throw chunk.readFailure;
+                translated.add(chunk);
+                if (chunk.failure != null)
+                    break;
+            }
+            return merge(translated, strict, labels, program);
+        } finally {
+            for (ChunkTask task : tasks)
+                task.cancel(false);
+        }
+    }
+
+    /*
+     * Merges the chunks into the labels and program, returning the number of lines they read; when strict, a failure
+     * is thrown rather than reported.
+     */
+    private static int merge(List<Chunk> chunks, boolean strict, Labels labels, List<Instruction> program) {
+        labels.reset();
+        program.clear();
+        int total = 0;
+        for (Chunk chunk : chunks)
+            total += chunk.instructions.size();
+        if (program instanceof ArrayList<Instruction> list)
+            list.ensureCapacity(total);
+
+        int lines = 0;
+        for (Chunk chunk : chunks) {
+            lines += chunk.lines;
+            int base = program.size();
+            for (int i = 0; i < chunk.labels.size(); i++)
+                Translator.addLabel(labels, chunk.labels.get(i), base + chunk.addresses.get(i), strict);
+            program.addAll(chunk.instructions);
+            if (chunk.failure != null) {
+                if (strict)
+                    throw chunk.failure;
+                Translator.reportFailure(chunk.failure);
+                break;
+            }
+        }
+        return lines;
+    }
+
+    /*
+     * Returns the offsets the chunks start at, followed by the size of the file.  Every chunk but the last ends just
+     * after a line feed, so no line, nor the carriage return and line feed ending it, is split between two chunks.
+     */
+    private static long[] split(Path path, int chunks) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] boundaries = new long[chunks + 1];
+            int count = 1;
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            for (int i = 1; i < chunks; i++) {
+                long from = Math.max(size * i / chunks, boundaries[count - 1]);
+                long boundary = nextLineStart(channel, buffer, from, size);
+                if (boundary >= size)
+                    break;
+                if (boundary > boundaries[count - 1])
+                    boundaries[count++] = boundary;
+            }
+            boundaries[count++] = size;
+            return Arrays.copyOf(boundaries, count);
+        }
+    }
+
+    /*
+     * Returns the offset just after the first line feed at or after the given offset, or the size of the file if there
+     * is none.
+     */
+    private static long nextLineStart(FileChannel channel, ByteBuffer buffer, long from, long size)
+            throws IOException {
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /*
+     * The instructions and labels of one chunk, with the labels' addresses counted from the start of the chunk.
+     */
+    private static final class Chunk {
+        final ArrayList<Instruction> instructions = new ArrayList<>();
+        final ArrayList<String> labels = new ArrayList<>();
+        final ArrayList<Integer> addresses = new ArrayList<>();
+
+        // the number of lines read, up to and including any line which could not be translated
+        int lines;
+
+        // the exception from the line which could not be translated, after which the chunk stops
+        RuntimeException failure;
+
+        // the exception from reading the file, after which the chunk stops
+        IOException readFailure;
+    }
+
+    private static final class ChunkTask extends RecursiveTask<Chunk> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final Path path;
+        private final long start;
+        private final long end;
+        private final InstructionFactory instructionFactory;
+        private final boolean interning;
+
+        ChunkTask(Path path, long start, long end, InstructionFactory instructionFactory, boolean interning) {
+            this.path = path;
+            this.start = start;
+            this.end = end;
+            this.instructionFactory = instructionFactory;
+            this.interning = interning;
+        }
+
+        @Override
+        protected Chunk compute() {
+            Chunk chunk = new Chunk();
+            Lexer lexer = new Lexer();
+            ArrayList<String> arguments = new ArrayList<>();
+            InstructionInterner interner = new InstructionInterner();
+            try (var reader = new MappedLineReader(path, start, end, MappedLineReader.DEFAULT_WINDOW)) {
+                CharSequence line;
+                while ((line = reader.readLine()) != null) {
+                    chunk.lines++;
+                    lexer.reset(line);
+                    String label = lexer.nextLabel();
+                    try {
+                        Instruction instruction = Translator.getInstruction(lexer, arguments, instructionFactory, label);
+                        if (instruction != null) {
+                            if (label != null) {
+                                chunk.labels.add(label);
+                                chunk.addresses.add(chunk.instructions.size());
+                            }
+                            chunk.instructions.add(interning ? interner.intern(instruction) : instruction);
+                        }
+                    } catch (RuntimeException e) {
+                        chunk.failure = e;
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                chunk.readFailure = e;
+            }
+            return chunk;
+        }
+    }
+}
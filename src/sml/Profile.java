@@ -0,0 +1,195 @@
+package sml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The profile of one execution of a program: how many times each instruction was executed, and how long was spent
+ * executing it, both by the address of the instruction and by its opcode.
+ *
+ * Made by a {@link Machine} with profiling enabled.  The time of an instruction runs from the end of the instruction
+ * before it to its own end, so it includes the cost of dispatching it; the times of all the instructions add up to
+ * the time spent in the program.  A fused superinstruction is counted, and timed, at the address of the first of the
+ * instructions it replaced.
+ *
+ * @author lhickley
+ */
+public final class Profile {
+    private final List<Instruction> program;
+
+    private final SourceLocations locations;
+
+    private final long[] counts;
+
+    private final long[] nanos;
+
+    // the distinct opcodes of the program, in order of first appearance, and their totals
+    private final String[] opcodes;
+
+    private final long[] opcodeCounts;
+
+    private final long[] opcodeNanos;
+
+    /*
+     * Constructor: the profile of the given program, taking ownership of the arrays of counts and times, which are
+     * indexed by address.
+     */
+    Profile(List<Instruction> program, Labels labels, long[] counts, long[] nanos) {
+        this.program = List.copyOf(program);
+        this.locations = new SourceLocations(program.size(), labels);
+        this.counts = counts;
+        this.nanos = nanos;
+
+        Map<String, Integer> opcodeIndexes = new LinkedHashMap<>();
+        int[] opcodeOf = new int[program.size()];
+        for (int address = 0; address < opcodeOf.length; address++) {
+            String opcode = program.get(address).getOpcode();
+            opcodeOf[address] = opcodeIndexes.computeIfAbsent(opcode, o -> opcodeIndexes.size());
+        }
+        opcodes = opcodeIndexes.keySet().toArray(new String[0]);
+        opcodeCounts = new long[opcodes.length];
+        opcodeNanos = new long[opcodes.length];
+        for (int address = 0; address < opcodeOf.length; address++) {
+            opcodeCounts[opcodeOf[address]] += counts[address];
+            opcodeNanos[opcodeOf[address]] += nanos[address];
+        }
+    }
+
+    /**
+     * Returns the number of instructions in the program profiled.
+     *
+     * @return the size of the program
+     */
+    public int size() {
+        return counts.length;
+    }
+
+    /**
+     * Returns the number of times the instruction at the given address was executed.
+     *
+     * @param address the address of the instruction
+     * @return the number of executions
+     */
+    public long getCount(int address) {
+        return counts[address];
+    }
+
+    /**
+     * Returns the nanoseconds spent executing the instruction at the given address.
+     *
+     * @param address the address of the instruction
+     * @return the time spent, in nanoseconds
+     */
+    public long getNanos(int address) {
+        return nanos[address];
+    }
+
+    /**
+     * Returns the opcodes of the program, in the order they first appear in it.
+     *
+     * @return the opcodes
+     */
+    public List<String> getOpcodes() {
+        return List.of(opcodes);
+    }
+
+    /**
+     * Returns the number of times instructions with the given opcode were executed.
+     *
+     * @param opcode the opcode
+     * @return the number of executions, or 0 if the program has no such instruction
+     */
+    public long getCount(String opcode) {
+        int index = Arrays.asList(opcodes).indexOf(opcode);
+        return (index < 0) ? 0 : opcodeCounts[index];
+    }
+
+    /**
+     * Returns the nanoseconds spent executing instructions with the given opcode.
+     *
+     * @param opcode the opcode
+     * @return the time spent, in nanoseconds, or 0 if the program has no such instruction
+     */
+    public long getNanos(String opcode) {
+        int index = Arrays.asList(opcodes).indexOf(opcode);
+        return (index < 0) ? 0 : opcodeNanos[index];
+    }
+
+    /**
+     * Returns the number of instructions executed.
+     *
+     * @return the total number of executions
+     */
+    public long getTotalCount() {
+        return Arrays.stream(counts).sum();
+    }
+
+    /**
+     * Returns the nanoseconds spent executing the program.
+     *
+     * @return the total time spent, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return Arrays.stream(nanos).sum();
+    }
+
+    /**
+     * Returns where the instruction at the given address is in the source: the nearest label at or before it, followed
+     * by the number of instructions after that label if it is not the labeled instruction itself.  An instruction
+     * before the first label is given by its address alone.
+     *
+     * @param address the address of the instruction
+     * @return the location, such as "loop", "loop+2" or "@3"
+     */
+    public String getLocation(int address) {
+        return locations.get(address);
+    }
+
+    /**
+     * Reports the instructions which took the most time, most first, and the time taken by each opcode.  Each
+     * instruction is shown with its address, its location in the source and its text.
+     *
+     * @param limit the most instructions to report
+     * @return the report
+     */
+    public String report(int limit) {
+        long totalNanos = Math.max(1, getTotalNanos());
+        List<Integer> addresses = new ArrayList<>();
+        for (int address = 0; address < counts.length; address++) {
+            if (counts[address] > 0)
+                addresses.add(address);
+        }
+        addresses.sort(Comparator.<Integer>comparingLong(address -> nanos[address]).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%,d instructions executed in %,d ns%n", getTotalCount(), getTotalNanos()));
+        report.append(String.format("%8s %14s %16s %7s  %-16s %s%n", "address", "count", "ns", "time", "location",
+                "instruction"));
+        for (int address : addresses.subList(0, Math.min(limit, addresses.size()))) {
+            report.append(String.format("%8d %,14d %,16d %6.2f%%  %-16s %s%n", address, counts[address],
+                    nanos[address], 100.0 * nanos[address] / totalNanos, getLocation(address),
+                    program.get(address)));
+        }
+
+        Integer[] byTime = new Integer[opcodes.length];
+        for (int i = 0; i < byTime.length; i++)
+            byTime[i] = i;
+        Arrays.sort(byTime, Comparator.<Integer>comparingLong(i -> opcodeNanos[i]).reversed());
+        report.append(String.format("%n%8s %14s %16s %7s%n", "opcode", "count", "ns", "time"));
+        for (int i : byTime) {
+            report.append(String.format("%8s %,14d %,16d %6.2f%%%n", opcodes[i], opcodeCounts[i], opcodeNanos[i],
+                    100.0 * opcodeNanos[i] / totalNanos));
+        }
+        return report.toString();
+    }
+
+    @Override
+    public String toString() {
+        return report(10);
+    }
+}
@@ -0,0 +1,223 @@
+package sml;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A cache of translated programs, keyed by the SHA-256 hash of their source, so that a source seen before is not
+ * translated again.
+ *
+ * The cache holds at most a given number of programs, and at most a given number of instructions across all of them.
+ * When adding a program would exceed either bound, the programs used least recently are evicted until it does not.  A
+ * program with more instructions than the cache may hold is returned but not kept.
+ *
+ * A source which cannot be translated is never cached: its first bad line, or first duplicated label, is thrown to the
+ * caller, and is thrown again each time the source is asked for.
+ *
+ * The cache may be used from many threads at once.  Sources are translated outside its lock, so two threads missing on
+ * the same source at the same time may both translate it, and the first to finish is kept.
+ *
+ * @author lhickley
+ */
+public final class ProgramCache {
+    private final int maxPrograms;
+
+    private final long maxInstructions;
+
+    private final InstructionFactory instructionFactory;
+
+    // in order of use, least recently used first
+    private final LinkedHashMap<String, TranslatedProgram> programs = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long instructions;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /**
+     * Constructor: a cache with the given bounds, creating instructions with the default factory.
+     *
+     * @param maxPrograms the most programs the cache may hold
+     * @param maxInstructions the most instructions the cache may hold across all of its programs
+     */
+    public ProgramCache(int maxPrograms, long maxInstructions) {
+        this(maxPrograms, maxInstructions, InstructionFactory.getInstance());
+    }
+
+    /**
+     * Constructor: a cache with the given bounds, creating instructions with the given factory.
+     *
+     * @param maxPrograms the most programs the cache may hold
+     * @param maxInstructions the most instructions the cache may hold across all of its programs
+     * @param instructionFactory the factory to create instructions with
+     */
+    public ProgramCache(int maxPrograms, long maxInstructions, InstructionFactory instructionFactory) {
+        if (maxPrograms < 1 || maxInstructions < 1) {
+            throw new IllegalArgumentException("A program cache must hold at least one program and one instruction, not "
+                    + maxPrograms + " and " + maxInstructions);
+        }
+        this.maxPrograms = maxPrograms;
+        this.maxInstructions = maxInstructions;
+        this.instructionFactory = instructionFactory;
+    }
+
+    /**
+     * Returns the translation of the program in the given file, translating it only if its contents have not been seen
+     * before.
+     *
+     * @param fileName the name of the file holding the program, encoded in UTF-8
+     * @return the translated program
+     * @throws IOException if the file cannot be read
+     * @throws InstructionFormatException if a line of the program cannot be made into an instruction
+     * @throws IllegalArgumentException if a label is supplied more than once
+     */
+    public TranslatedProgram get(String fileName) throws IOException {
+        return get(Files.readAllBytes(Path.of(fileName)));
+    }
+
+    /**
+     * Returns the translation of the given program text, translating it only if it has not been seen before.
+     *
+     * @param source the text of the program
+     * @return the translated program
+     * @throws InstructionFormatException if a line of the program cannot be made into an instruction
+     * @throws IllegalArgumentException if a label is supplied more than once
+     */
+    public TranslatedProgram getSource(String source) {
+        try {
+            return get(source.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Reading a program from memory failed", e);
+        }
+    }
+
+    private TranslatedProgram get(byte[] source) throws IOException {
+        String hash = hash(source);
+        synchronized (this) {
+            TranslatedProgram program = programs.get(hash);
+            if (program != null) {
+                hits++;
+                return program;
+            }
+            misses++;
+        }
+
+        Labels labels = new Labels();
+        List<Instruction> instructions = new ArrayList<>();
+        Translator.fromSource(new String(source, StandardCharsets.UTF_8), instructionFactory)
+                .readAndTranslateStrictly(labels, instructions);
+        TranslatedProgram translated = new TranslatedProgram(hash, instructions, labels);
+
+        synchronized (this) {
+            TranslatedProgram program = programs.get(hash);
+            if (program != null)
+                return program;
+            if (weight(translated) <= maxInstructions) {
+                programs.put(hash, translated);
+                this.instructions += weight(translated);
+                evict();
+            }
+        }
+        return translated;
+    }
+
+    // a program with no instructions still takes room in the cache
+    private static long weight(TranslatedProgram program) {
+        return Math.max(1, program.size());
+    }
+
+    private void evict() {
+        Iterator<TranslatedProgram> leastRecentlyUsed = programs.values().iterator();
+        while (programs.size() > maxPrograms || instructions > maxInstructions) {
+            TranslatedProgram program = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            instructions -= weight(program);
+            evictions++;
+        }
+    }
+
+    private static String hash(byte[] source) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(source));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every Java platform must support SHA-256", e);
+        }
+    }
+
+    /**
+     * Removes every program from the cache.  The counts of hits, misses and evictions are kept.
+     */
+    public synchronized void clear() {
+        programs.clear();
+        instructions = 0;
+    }
+
+    /**
+     * Returns the number of programs in the cache.
+     *
+     * @return the number of programs
+     */
+    public synchronized int size() {
+        return programs.size();
+    }
+
+    /**
+     * Returns the number of instructions held across all the programs in the cache.
+     *
+     * @return the number of instructions
+     */
+    public synchronized long getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * Returns the number of times a program was found in the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of times a program was not found in the cache and had to be translated.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of programs evicted to keep the cache within its bounds.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * representation of this instance,
+     * in the form "ProgramCache[programs = 2, instructions = 40, hits = 7, misses = 2, evictions = 0]"
+     *
+     * @return the string representation of the cache
+     */
+    @Override
+    public synchronized String toString() {
+        return "ProgramCache[programs = " + programs.size() + ", instructions = " + instructions + ", hits = " + hits
+                + ", misses = " + misses + ", evictions = " + evictions + "]";
+    }
+}
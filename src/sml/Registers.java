@@ -1,6 +1,6 @@
 package sml;
 
-import java.util.*;
+import java.util.Arrays;
 import java.util.stream.Collectors;
 
 /**
@@ -11,10 +11,23 @@ import java.util.stream.Collectors;
  * This class consists of methods for the interaction with this data structure, such as the setting of register values
  * and the retrieval of values stored in registers.
  *
+ * The contents are held in a primitive array indexed by {@link Register#ordinal()}, so reading or writing a register
+ * involves no hashing and no boxing of the stored value.
+ *
+ * A machine with the {@link OverflowPolicy#WIDEN} policy can hold values beyond the range of an int.  The first time
+ * such a value is stored, a second array of 64-bit values is allocated and kept alongside the first, which then holds
+ * the low 32 bits of each.  Under every other policy the registers only ever hold int values, so they stay in the
+ * compact int array and reading one needs no conversion.
+ *
  * @author lhickley
  */
 public final class Registers {
-    private final Map<Register, Integer> registers = new HashMap<>();
+    private static final Register[] REGISTERS = Register.values();
+
+    private final int[] registers = new int[REGISTERS.length];
+
+    // The full values of the registers, once one has been given a value beyond the range of an int; otherwise null
+    private long[] wide = null;
 
     public enum Register implements RegisterName {
         EAX, EBX, ECX, EDX, ESP, EBP, ESI, EDI;
@@ -25,8 +38,8 @@ public final class Registers {
     }
 
     public void clear() {
-        for (Register register : Register.values())
-            registers.put(register, 0);
+        Arrays.fill(registers, 0);
+        wide = null;
     }
 
     /**
@@ -36,7 +49,10 @@ public final class Registers {
      * @param value new value
      */
     public void set(RegisterName register, int value) {
-        registers.put((Register)register, value);
+        int index = ((Register) register).ordinal();
+        registers[index] = value;
+        if (wide != null)
+            wide[index] = value;
     }
 
     /**
@@ -46,7 +62,40 @@ public final class Registers {
      * @return value
      */
     public int get(RegisterName register) {
-        return registers.get((Register)register);
+        return registers[((Register) register).ordinal()];
+    }
+
+    /**
+     * Sets the given register to the 64-bit value.
+     *
+     * @param register register name
+     * @param value new value
+     */
+    public void setLong(RegisterName register, long value) {
+        int index = ((Register) register).ordinal();
+        if (wide == null) {
+            if (value == (int) value) {
+                registers[index] = (int) value;
+                return;
+            }
+            wide = new long[REGISTERS.length];
+            for (int i = 0; i < REGISTERS.length; i++)
+                wide[i] = registers[i];
+        }
+        wide[index] = value;
+        registers[index] = (int) value;
+    }
+
+    /**
+     * Returns the full 64-bit value stored in the register.
+     *
+     * @param register register name
+     * @return value
+     */
+    public long getLong(RegisterName register) {
+        int index = ((Register) register).ordinal();
+        long[] wide = this.wide;
+        return (wide == null) ? registers[index] : wide[index];
     }
 
     /**
@@ -57,21 +106,27 @@ public final class Registers {
     @Override
     public boolean equals(Object o) {
         if (o instanceof Registers r) {
-            return registers.equals(r.registers);
+            for (Register register : REGISTERS) {
+                if (getLong(register) != r.getLong(register))
+                    return false;
+            }
+            return true;
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        return registers.hashCode();
+        int hash = 1;
+        for (Register register : REGISTERS)
+            hash = 31 * hash + Long.hashCode(getLong(register));
+        return hash;
     }
 
     @Override
     public String toString() {
-        return registers.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(e -> e.getKey() + " = " + e.getValue())
+        return Arrays.stream(REGISTERS)
+                .map(r -> r + " = " + getLong(r))
                 .collect(Collectors.joining(", ", "[", "]")) ;
     }
 }
@@ -0,0 +1,420 @@
+package sml;
+
+import sml.instruction.SubJnzInstruction;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static sml.Registers.Register;
+
+/**
+ * A cache on disk of the results of running programs, so that running a program which has been run before costs no
+ * more than reading its result.
+ *
+ * Every program starts with all of its registers clear and takes no input, so a program always produces the same
+ * output and final registers.  The result of a program which runs to completion is stored in a file named by a
+ * SHA-256 hash of the program, recording the values it output, its final registers and the number of instructions it
+ * executed.  A program which fails is not cached.
+ *
+ * The hash covers the program and its labels, the overflow policy of the machine, {@link #VERSION}, and the class
+ * files of the classes which execute the program: the engines, and every class of the instructions the program is
+ * linked into, together with their superclasses and the instructions a fused instruction is made of.  So when the
+ * instruction set, the way it is linked under a policy or an engine changes, the hash of every program changes with
+ * it, and the results stored before are no longer found.  They are left to be evicted.
+ *
+ * The files in the directory are kept within a budget of bytes, by deleting the results used least recently, judged
+ * by the time each file was last written or read.  Files which cannot be read as results of this version are treated
+ * as absent and deleted.
+ *
+ * A cache may be used from many threads at once, and several caches may share a directory.
+ *
+ * @author lhickley
+ */
+public final class ResultCache {
+    /** The version of the cache, to be raised when results change in any way the hash cannot detect. */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = ('S' << 24) | ('M' << 16) | ('L' << 8) | 'R';
+
+    private static final String SUFFIX = ".result";
+
+    private static final Register[] REGISTERS = Register.values();
+
+    // the classes which link and execute instructions, and whose changes may change results; the classes of the
+    // instructions themselves are found in the linked code
+    private static final List<Class<?>> ENGINE_CLASSES = List.of(Machine.class, Registers.class, OverflowPolicy.class,
+            UnderOverFlowHandling.class, Fuser.class, CompactProgram.class, BytecodeProgram.class);
+
+    private static final ClassValue<byte[]> CLASS_FINGERPRINTS = new ClassValue<>() {
+        @Override
+        protected byte[] computeValue(Class<?> type) {
+            return fingerprint(type);
+        }
+    };
+
+    private final Path directory;
+
+    private final long maxBytes;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /**
+     * Constructor: a cache of results kept in the given directory, which is created if it does not exist.
+     *
+     * @param directory the directory to keep results in
+     * @param maxBytes the most bytes the results in the directory may take
+     * @throws IOException if the directory cannot be created or read
+     */
+    public ResultCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("A result cache needs a budget of at least one byte, not " + maxBytes);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        removeOtherVersions();
+    }
+
+    /**
+     * Executes the program of the machine, or if its result has been cached, gives the machine that result instead.
+     *
+     * Either way the output sink of the machine receives the values output and is flushed, the registers hold their
+     * final values, and {@link Machine#getInstructionsExecuted()} gives the number of instructions executed.
+     *
+     * @param machine the machine whose program is to be executed
+     * @return true if the result was found in the cache, false if the program was executed
+     * @throws IOException if a new result cannot be written to the cache
+     * @throws RuntimeException if the program fails, in which case nothing is cached
+     */
+    public boolean execute(Machine machine) throws IOException {
+        Path file = directory.resolve(key(machine) + SUFFIX);
+        if (load(file, machine)) {
+            synchronized (this) {
+                hits++;
+            }
+            return true;
+        }
+        synchronized (this) {
+            misses++;
+        }
+
+        OutputSink output = machine.getOutput();
+        RecordingOutputSink recording = new RecordingOutputSink(output, (maxBytes - size(0)) / Long.BYTES);
+        machine.setOutput(recording);
+        try {
+            machine.execute();
+        } finally {
+            machine.setOutput(output);
+        }
+        store(file, machine, recording);
+        return false;
+    }
+
+    /*
+     * The hash of everything the result of running the program of the machine depends on.  The program is linked to
+     * find the classes which will execute it, so a jump to a label which does not exist is thrown here.
+     */
+    private static String key(Machine machine) {
+        MessageDigest digest = sha256();
+        update(digest, "SMLR " + VERSION + " " + machine.getOverflowPolicy().name());
+        for (Class<?> type : ENGINE_CLASSES)
+            digest.update(CLASS_FINGERPRINTS.get(type));
+        for (Instruction instruction : machine.getProgram())
+            update(digest, instruction.getClass().getName() + " " + instruction + "\n");
+        machine.link();
+        Set<Class<?>> linkedClasses = new HashSet<>();
+        for (Instruction instruction : machine.getCode())
+            addClasses(digest, instruction, linkedClasses);
+        List<Map.Entry<String, Integer>> labels = new ArrayList<>(machine.getLabels().getAddresses().entrySet());
+        labels.sort(Map.Entry.comparingByKey());
+        for (Map.Entry<String, Integer> label : labels)
+            update(digest, label.getKey() + " -> " + label.getValue() + "\n");
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /*
+     * Adds the fingerprints of the class of a linked instruction, its superclasses and the classes of the instructions
+     * it is made of, skipping those already added.
+     */
+    private static void addClasses(MessageDigest digest, Instruction instruction, Set<Class<?>> added) {
+        Class<?> type = instruction.getClass();
+        while (type != Object.class && added.add(type)) {
+            digest.update(CLASS_FINGERPRINTS.get(type));
+            type = type.getSuperclass();
+        }
+        if (instruction instanceof SubJnzInstruction fused) {
+            addClasses(digest, fused.getSubtraction(), added);
+            addClasses(digest, fused.getJnz(), added);
+        }
+    }
+
+    private static void update(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+     * The hash of the class file of a class, or of its name if the class file cannot be found.
+     */
+    private static byte[] fingerprint(Class<?> type) {
+        MessageDigest digest = sha256();
+        update(digest, type.getName());
+        String name = type.getName();
+        try (InputStream in = type.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            if (in != null)
+                digest.update(in.readAllBytes());
+        } catch (IOException e) {
+            // the name alone will have to do
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every Java platform must support SHA-256", e);
+        }
+    }
+
+    /*
+     * Gives the machine the result in the file, returning false if there is no such result.
+     */
+    private boolean load(Path file, Machine machine) {
+        long[] registers = new long[REGISTERS.length];
+        long executed;
+        long[] values;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != REGISTERS.length)
+                throw new IOException("The file " + file + " is not a result of this version");
+            for (int i = 0; i < registers.length; i++)
+                registers[i] = in.readLong();
+            executed = in.readLong();
+            int count = in.readInt();
+            if (count < 0 || count > Files.size(file) / Long.BYTES)
+                throw new IOException("The file " + file + " is corrupt");
+            values = new long[count];
+            for (int i = 0; i < count; i++)
+                values[i] = in.readLong();
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            delete(file);
+            return false;
+        }
+        touch(file);
+
+        Registers machineRegisters = machine.getRegisters();
+        machineRegisters.clear();
+        for (Register register : REGISTERS)
+            machineRegisters.setLong(register, registers[register.ordinal()]);
+        machine.setInstructionsExecuted(executed);
+        OutputSink output = machine.getOutput();
+        try {
+            for (long value : values)
+                output.write(value);
+        } finally {
+            output.flush();
+        }
+        return true;
+    }
+
+    /*
+     * The number of bytes taken by a result holding the given number of values output.
+     */
+    private static long size(long values) {
+        return 4L * Integer.BYTES + (REGISTERS.length + 1L + values) * Long.BYTES;
+    }
+
+    private void store(Path file, Machine machine, RecordingOutputSink recording) throws IOException {
+        if (recording.values == null || size(recording.size) > maxBytes)
+            return;
+        Path temporary = Files.createTempFile(directory, "result", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(REGISTERS.length);
+                for (Register register : REGISTERS)
+                    out.writeLong(machine.getRegisters().getLong(register));
+                out.writeLong(machine.getInstructionsExecuted());
+                out.writeInt(recording.size);
+                for (int i = 0; i < recording.size; i++)
+                    out.writeLong(recording.values[i]);
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        evict();
+    }
+
+    /*
+     * Deletes the results used least recently until the results in the directory are within the budget.
+     */
+    private synchronized void evict() throws IOException {
+        List<Path> files = results();
+        long total = 0;
+        Map<Path, FileTime> used = new HashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        for (Path file : files) {
+            try {
+                used.put(file, Files.getLastModifiedTime(file));
+                sizes.put(file, Files.size(file));
+                total += sizes.get(file);
+            } catch (NoSuchFileException e) {
+                // removed by another cache sharing the directory
+            }
+        }
+        if (total <= maxBytes)
+            return;
+        List<Path> leastRecentlyUsed = new ArrayList<>(used.keySet());
+        leastRecentlyUsed.sort(Comparator.comparing(used::get));
+        for (Path file : leastRecentlyUsed) {
+            if (total <= maxBytes)
+                break;
+            if (delete(file)) {
+                total -= sizes.get(file);
+                evictions++;
+            }
+        }
+    }
+
+    /*
+     * Deletes the results written by other versions of the cache.
+     */
+    private void removeOtherVersions() throws IOException {
+        for (Path file : results()) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION)
+                    continue;
+            } catch (IOException e) {
+                // unreadable, so deleted below
+            }
+            delete(file);
+        }
+    }
+
+    private List<Path> results() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).toList();
+        }
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            // the result is merely judged older than it is
+        }
+    }
+
+    /**
+     * Returns the number of bytes taken by the results in the directory.
+     *
+     * @return the number of bytes
+     * @throws IOException if the directory cannot be read
+     */
+    public long getBytes() throws IOException {
+        long total = 0;
+        for (Path file : results()) {
+            try {
+                total += Files.size(file);
+            } catch (NoSuchFileException e) {
+                // removed by another cache sharing the directory
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of times a result was found in the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of times a result was not found in the cache and the program had to be executed.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of results deleted to keep the cache within its budget.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /*
+     * Passes every value output on to another sink, keeping a copy of it until there are more values than a result
+     * within the budget could hold, when the copy is dropped.
+     */
+    private static final class RecordingOutputSink implements OutputSink {
+        // the longest array which can safely be allocated
+        private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+        private final OutputSink output;
+
+        // the most values kept
+        private final int limit;
+
+        // the values output so far, or null once there have been more than limit
+        private long[] values;
+        private int size = 0;
+
+        RecordingOutputSink(OutputSink output, long limit) {
+            this.output = output;
+            this.limit = (int) Math.max(0, Math.min(limit, MAX_ARRAY_LENGTH));
+            this.values = new long[Math.min(16, this.limit)];
+        }
+
+        @Override
+        public void write(long value) {
+            if (values != null) {
+                if (size == limit) {
+                    values = null;
+                } else {
+                    if (size == values.length)
+                        values = Arrays.copyOf(values, (int) Math.min(limit, size * 2L));
+                    values[size++] = value;
+                }
+            }
+            output.write(value);
+        }
+
+        @Override
+        public void flush() {
+            output.flush();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package sml;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A profiler which samples where a machine's program is, rather than counting every instruction, so that it costs the
+ * running program almost nothing and can be left on for runs of hours.
+ *
+ * A daemon thread wakes at a fixed interval and reads the program counter the interpreter publishes, adding one to
+ * the count of the address it finds.  The interpreter publishes it only while a profiler is sampling, so a machine
+ * which is not being sampled pays nothing; a profiler started while a program runs sees it from the next backward
+ * jump.  The counter is read without synchronising with the interpreter, so a sample may
+ * be an instruction or two out; over many samples the histogram shows where the time goes.  Samples taken while the
+ * machine is not interpreting a program, because it is idle or running another engine, are counted as missed.
+ *
+ * The profiler may be started and stopped at any time, including while the machine runs, and started again to add
+ * to the samples it has.  The machine's program must not be changed while its samples are reported.
+ *
+ * @author lhickley
+ */
+public final class SamplingProfiler implements AutoCloseable {
+    /** The interval used when none is given. */
+    public static final Duration DEFAULT_INTERVAL = Duration.ofMillis(1);
+
+    private final Machine machine;
+
+    private final long intervalNanos;
+
+    private Thread sampler;
+
+    // the number of samples of each address, guarded by this
+    private long[] samples = new long[0];
+
+    private long total;
+
+    private long missed;
+
+    /**
+     * Constructor: a profiler of the given machine which samples it every {@link #DEFAULT_INTERVAL}.
+     *
+     * @param machine the machine to sample
+     */
+    public SamplingProfiler(Machine machine) {
+        this(machine, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Constructor: a profiler of the given machine which samples it at the given interval.
+     *
+     * @param machine the machine to sample
+     * @param interval the time between samples
+     */
+    public SamplingProfiler(Machine machine, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("The interval between samples must be positive, not " + interval);
+        }
+        this.machine = machine;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    /**
+     * Starts sampling.
+     *
+     * @throws IllegalStateException if the profiler is already sampling
+     */
+    public synchronized void start() {
+        if (sampler != null) {
+            throw new IllegalStateException("The profiler is already sampling");
+        }
+        machine.attachSampler();
+        sampler = new Thread(this::sample, "sml-sampling-profiler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * Stops sampling, waiting for the sampling thread to finish.  Does nothing if the profiler is not sampling.
+     */
+    public void stop() {
+        Thread stopping;
+        synchronized (this) {
+            stopping = sampler;
+            sampler = null;
+        }
+        if (stopping == null)
+            return;
+        stopping.interrupt();
+        boolean interrupted = false;
+        while (stopping.isAlive()) {
+            try {
+                stopping.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        machine.detachSampler();
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Stops sampling.
+     */
+    @Override
+    public void close() {
+        stop();
+    }
+
+    public synchronized boolean isSampling() {
+        return sampler != null;
+    }
+
+    private void sample() {
+        Thread self = Thread.currentThread();
+        long next = System.nanoTime() + intervalNanos;
+        while (!self.isInterrupted()) {
+            long delay = next - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+                continue;
+            }
+            next += intervalNanos;
+            // fall behind rather than sampling in a burst after a long pause
+            if (next - System.nanoTime() < 0)
+                next = System.nanoTime() + intervalNanos;
+            record(machine.getLiveProgramCounter());
+        }
+    }
+
+    private synchronized void record(int address) {
+        total++;
+        if (address < 0) {
+            missed++;
+            return;
+        }
+        if (address >= samples.length)
+            samples = Arrays.copyOf(samples, Math.max(address + 1, samples.length * 2));
+        samples[address]++;
+    }
+
+    /**
+     * Discards every sample taken so far.
+     */
+    public synchronized void reset() {
+        samples = new long[0];
+        total = 0;
+        missed = 0;
+    }
+
+    /**
+     * Returns the number of samples taken, including those missed.
+     *
+     * @return the number of samples
+     */
+    public synchronized long getSamples() {
+        return total;
+    }
+
+    /**
+     * Returns the number of samples taken while the machine was not interpreting a program.
+     *
+     * @return the number of samples missed
+     */
+    public synchronized long getMissedSamples() {
+        return missed;
+    }
+
+    /**
+     * Returns the number of samples which found the machine at the given address.
+     *
+     * @param address the address of an instruction
+     * @return the number of samples
+     */
+    public synchronized long getSamples(int address) {
+        return (address >= 0 && address < samples.length) ? samples[address] : 0;
+    }
+
+    /**
+     * Returns the number of samples which found the machine at each label, counting an address at the nearest label
+     * at or before it.  Addresses before the first label are counted under the empty string.
+     *
+     * @return the samples of each label, most first
+     */
+    public Map<String, Long> getLabelSamples() {
+        long[] samples = snapshot();
+        SourceLocations locations = new SourceLocations(samples.length, machine.getLabels());
+        Map<String, Long> byLabel = new LinkedHashMap<>();
+        for (int address = 0; address < samples.length; address++) {
+            if (samples[address] > 0) {
+                String label = locations.getLabel(address);
+                byLabel.merge((label == null) ? "" : label, samples[address], Long::sum);
+            }
+        }
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(byLabel.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries)
+            sorted.put(entry.getKey(), entry.getValue());
+        return sorted;
+    }
+
+    // the samples of each address of the machine's program
+    private long[] snapshot() {
+        int size = machine.getProgram().size();
+        synchronized (this) {
+            return Arrays.copyOf(samples, Math.min(size, samples.length));
+        }
+    }
+
+    /**
+     * Reports the addresses sampled most, most first, and the samples of each label.  Each address is shown with its
+     * location in the source and the text of its instruction.
+     *
+     * @param limit the most addresses to report
+     * @return the report
+     */
+    public String report(int limit) {
+        long[] samples = snapshot();
+        long taken;
+        long missed;
+        synchronized (this) {
+            taken = this.total;
+            missed = this.missed;
+        }
+        long hit = Math.max(1, taken - missed);
+        List<Instruction> program = machine.getProgram();
+        SourceLocations locations = new SourceLocations(samples.length, machine.getLabels());
+        List<Integer> addresses = new ArrayList<>();
+        for (int address = 0; address < samples.length; address++) {
+            if (samples[address] > 0)
+                addresses.add(address);
+        }
+        addresses.sort(Comparator.<Integer>comparingLong(address -> samples[address]).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%,d samples every %,d ns, %,d missed%n", taken, intervalNanos, missed));
+        report.append(String.format("%8s %12s %7s  %-16s %s%n", "address", "samples", "share", "location",
+                "instruction"));
+        for (int address : addresses.subList(0, Math.min(limit, addresses.size()))) {
+            report.append(String.format("%8d %,12d %6.2f%%  %-16s %s%n", address, samples[address],
+                    100.0 * samples[address] / hit, locations.get(address), program.get(address)));
+        }
+        report.append(String.format("%n%-16s %12s %7s%n", "label", "samples", "share"));
+        for (Map.Entry<String, Long> label : getLabelSamples().entrySet()) {
+            report.append(String.format("%-16s %,12d %6.2f%%%n", label.getKey().isEmpty() ? "(none)" : label.getKey(),
+                    label.getValue(), 100.0 * label.getValue() / hit));
+        }
+        return report.toString();
+    }
+
+    @Override
+    public String toString() {
+        return report(10);
+    }
+}
@@ -0,0 +1,66 @@
+package sml;
+
+import java.util.Map;
+
+/**
+ * Names the addresses of a program by the labels in its source: each address by the nearest label at or before it,
+ * and how far past that label it is.
+ *
+ * @author lhickley
+ */
+final class SourceLocations {
+    // the nearest label at or before each address, or null if there is none
+    private final String[] labelAt;
+
+    // the address of labelAt[address]
+    private final int[] labelAddress;
+
+    /**
+     * Constructor: the locations of a program of the given size with the given labels.
+     *
+     * @param size the number of instructions in the program
+     * @param labels the labels of the program
+     */
+    SourceLocations(int size, Labels labels) {
+        labelAt = new String[size];
+        labelAddress = new int[size];
+        for (Map.Entry<String, Integer> label : labels.getAddresses().entrySet()) {
+            int address = label.getValue();
+            if (address >= 0 && address < size)
+                labelAt[address] = label.getKey();
+        }
+        for (int address = 0; address < size; address++) {
+            if (labelAt[address] != null) {
+                labelAddress[address] = address;
+            } else if (address > 0) {
+                labelAt[address] = labelAt[address - 1];
+                labelAddress[address] = labelAddress[address - 1];
+            }
+        }
+    }
+
+    /**
+     * Returns the nearest label at or before the given address.
+     *
+     * @param address the address
+     * @return the label, or null if the address is before the first label
+     */
+    String getLabel(int address) {
+        return labelAt[address];
+    }
+
+    /**
+     * Returns the nearest label at or before the given address, followed by the number of instructions after that
+     * label if it is not the label of the address itself.  An address before the first label is given alone.
+     *
+     * @param address the address
+     * @return the location, such as "loop", "loop+2" or "@3"
+     */
+    String get(int address) {
+        String label = labelAt[address];
+        if (label == null)
+            return "@" + address;
+        int offset = address - labelAddress[address];
+        return (offset == 0) ? label : label + "+" + offset;
+    }
+}
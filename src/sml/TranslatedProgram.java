@@ -0,0 +1,80 @@
+package sml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The instructions and labels translated from a program source, which cannot be changed once made.
+ *
+ * Instructions hold no state of their own while they run, so one translated program may be loaded into any number of
+ * machines, on any number of threads, at the same time.  Each machine is given its own list and labels holding the
+ * shared instructions.
+ *
+ * @author lhickley
+ */
+public final class TranslatedProgram {
+    private final String hash;
+
+    private final List<Instruction> program;
+
+    private final Map<String, Integer> labels;
+
+    TranslatedProgram(String hash, List<Instruction> program, Labels labels) {
+        this.hash = hash;
+        this.program = List.copyOf(program);
+        this.labels = Map.copyOf(labels.getAddresses());
+    }
+
+    /**
+     * Returns the hash of the source the program was translated from.
+     *
+     * @return the hash, as hexadecimal digits
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns the instructions of the program.
+     *
+     * @return an unmodifiable list of the instructions
+     */
+    public List<Instruction> getProgram() {
+        return program;
+    }
+
+    /**
+     * Returns the number of instructions in the program.
+     *
+     * @return the number of instructions
+     */
+    public int size() {
+        return program.size();
+    }
+
+    /**
+     * Replaces the labels and program of a machine with those of this program.
+     *
+     * @param labels the labels to replace
+     * @param program the list of instructions to replace
+     */
+    public void loadInto(Labels labels, List<Instruction> program) {
+        labels.reset();
+        for (Map.Entry<String, Integer> label : this.labels.entrySet())
+            labels.addLabel(label.getKey(), label.getValue());
+        program.clear();
+        if (program instanceof ArrayList<Instruction> list)
+            list.ensureCapacity(this.program.size());
+        program.addAll(this.program);
+    }
+
+    /**
+     * Replaces the labels and program of the machine with those of this program.
+     *
+     * @param machine the machine to load the program into
+     */
+    public void loadInto(Machine machine) {
+        loadInto(machine.getLabels(), machine.getProgram());
+    }
+}
@@ -1,8 +1,13 @@
 package sml;
 
+import sml.jfr.Events;
+import sml.jfr.TranslationEvent;
+
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class does the work of reading from a file and translating the contents of that file to a program for
@@ -15,6 +20,9 @@ import java.util.*;
  *
  * Consists of methods for reading from a file and converting to an instruction set, and helper methods for doing so.
  *
+ * Equal unlabeled instructions in a program are the same instance, so a program repeating a line many times holds
+ * that instruction only once.
+ *
  * <p>
  * The translator of a <b>S</b><b>M</b>al<b>L</b> program.
  *
@@ -24,99 +32,238 @@ public final class Translator {
 
     private final String fileName; // source file of SML code
 
-    // line contains the characters in the current line that's not been processed yet
-    private String line = "";
+    private final String source; // text of SML code, read instead of fileName when not null
+
+    private final boolean mapped; // whether fileName is read by memory-mapping it
+
+    private final ForkJoinPool pool; // pool to translate fileName on in parallel, or null to translate it here
+
+    // splits each line into its label and words
+    private final Lexer lexer = new Lexer();
+
+    // the words following the opcode of the current line, reused from line to line
+    private final ArrayList<String> arguments = new ArrayList<>();
+
+    // shares one instance between equal unlabeled instructions, during a translation
+    private final InstructionInterner interner = new InstructionInterner();
+
+    private boolean interning = true;
 
     private final InstructionFactory instructionFactory;
 
     public Translator(String fileName, InstructionFactory instructionFactory) {
+        this(fileName, null, false, null, instructionFactory);
+    }
+
+    private Translator(String fileName, String source, boolean mapped, ForkJoinPool pool,
+                       InstructionFactory instructionFactory) {
         this.fileName = fileName;
+        this.source = source;
+        this.mapped = mapped;
+        this.pool = pool;
         this.instructionFactory = instructionFactory;
     }
 
+    /**
+     * Creates a translator which reads the program from the given text rather than from a file.
+     *
+     * @param source the text of the program
+     * @param instructionFactory the factory to create instructions with
+     * @return the translator
+     */
+    public static Translator fromSource(String source, InstructionFactory instructionFactory) {
+        return new Translator(null, Objects.requireNonNull(source), false, null, instructionFactory);
+    }
+
+    /**
+     * Creates a translator which reads the program by memory-mapping the given file and decoding its lines straight
+     * from the mapped bytes, rather than through a reader.  The program and labels produced are the same either way;
+     * mapping is faster on very large files.
+     *
+     * @param fileName the name of the file holding the program, encoded in UTF-8
+     * @param instructionFactory the factory to create instructions with
+     * @return the translator
+     */
+    public static Translator mapped(String fileName, InstructionFactory instructionFactory) {
+        return new Translator(Objects.requireNonNull(fileName), null, true, null, instructionFactory);
+    }
+
+    /**
+     * Creates a translator which splits the given file into chunks of whole lines and translates the chunks in
+     * parallel on the common fork/join pool, reading each by memory-mapping it.  The program and labels produced, and
+     * the errors reported, are the same as when the file is translated line by line.
+     *
+     * @param fileName the name of the file holding the program, encoded in UTF-8
+     * @param instructionFactory the factory to create instructions with, which must be safe to use from many threads
+     * @return the translator
+     */
+    public static Translator parallel(String fileName, InstructionFactory instructionFactory) {
+        return parallel(fileName, instructionFactory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a translator which splits the given file into chunks of whole lines and translates the chunks in
+     * parallel on the given pool.
+     *
+     * @param fileName the name of the file holding the program, encoded in UTF-8
+     * @param instructionFactory the factory to create instructions with, which must be safe to use from many threads
+     * @param pool the pool to translate the chunks on
+     * @return the translator
+     * @see #parallel(String, InstructionFactory)
+     */
+    public static Translator parallel(String fileName, InstructionFactory instructionFactory, ForkJoinPool pool) {
+        return new Translator(Objects.requireNonNull(fileName), null, true, Objects.requireNonNull(pool),
+                instructionFactory);
+    }
+
+    /*
+     * Sets whether equal unlabeled instructions share one instance; they do unless this is set to false.  Turning it
+     * off serves only to measure what sharing saves.
+     */
+    void setInterning(boolean interning) {
+        this.interning = interning;
+    }
+
     // translate the small program in the file into lab (the labels) and
     // prog (the program)
     // return "no errors were detected"
 
     public void readAndTranslate(Labels labels, List<Instruction> program) throws IOException {
-        try (var sc = new Scanner(new File(fileName), StandardCharsets.UTF_8)) {
-            labels.reset();
-            program.clear();
+        readAndTranslate(labels, program, false);
+    }
 
-            // Each iteration processes line and reads the next input line into "line"
-            while (sc.hasNextLine()) {
-                line = sc.nextLine();
-                String label = getLabel();
+    /**
+     * Translates the program into the labels and program as {@link #readAndTranslate(Labels, List)} does, except that
+     * the first line which cannot be translated, or the first label supplied twice, is thrown rather than reported on
+     * {@link System#out}, so that the caller decides how to report it.  The labels and program then hold the part of
+     * the program before that line.
+     *
+     * @param labels the labels to replace with the labels of the program
+     * @param program the list to replace with the instructions of the program
+     * @throws IOException if the program cannot be read
+     * @throws InstructionFormatException if a line cannot be made into an instruction
+     * @throws IllegalArgumentException if a label is supplied more than once
+     */
+    public void readAndTranslateStrictly(Labels labels, List<Instruction> program) throws IOException {
+        readAndTranslate(labels, program, true);
+    }
+
+    private void readAndTranslate(Labels labels, List<Instruction> program, boolean strict) throws IOException {
+        TranslationEvent event = Events.isStarted() ? new TranslationEvent() : null;
+        if (event != null)
+            event.begin();
+        int lines;
+        if (pool != null) {
+            lines = ParallelTranslation.translate(Path.of(fileName), instructionFactory, pool, interning, strict,
+                    labels, program);
+        } else if (mapped) {
+            try (var reader = new MappedLineReader(Path.of(fileName))) {
+                lines = translate(reader::readLine, labels, program, strict);
+            }
+        } else {
+            try (var reader = (source != null)
+                    ? new BufferedReader(new StringReader(source))
+                    : new BufferedReader(new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8))) {
+                lines = translate(reader::readLine, labels, program, strict);
+            }
+        }
+        if (event != null)
+            event.end(fileName, lines, program.size());
+    }
+
+    /*
+     * The lines of a program source, in order; readLine returns null after the last line.
+     */
+    private interface LineSource {
+        CharSequence readLine() throws IOException;
+    }
+
+    /*
+     * Translates the lines into the labels and program, returning the number of lines read; when strict, a failure is
+     * thrown rather than reported.
+     */
+    private int translate(LineSource lines, Labels labels, List<Instruction> program, boolean strict)
+            throws IOException {
+        labels.reset();
+        program.clear();
+
+        int read = 0;
+        try {
+            // Each iteration processes one line of the input
+            CharSequence line;
+            while ((line = lines.readLine()) != null) {
+                read++;
+                lexer.reset(line);
+                String label = lexer.nextLabel();
 
                 try {
-                    Instruction instruction = getInstruction(label);
+                    Instruction instruction = getInstruction(lexer, arguments, instructionFactory, label);
                     if (instruction != null) {
                         if (label != null)
-                            try {
-                                labels.addLabel(label, program.size());
-                            } catch (RuntimeException e) {
-                                System.out.println("Duplicate labels are not permitted.");
-                                System.out.println("The label '" + label + "' has been supplied earlier in the program source file.");
-                            }
-                        program.add(instruction);
+                            addLabel(labels, label, program.size(), strict);
+                        program.add(interning ? interner.intern(instruction) : instruction);
                     }
-                } catch (Exception e) {
-                    System.out.println("An exception occurred while reading the program for the file.  Details:\n" + e.getMessage());
-                    System.out.println("The program may become corrupted and the input file should be reviewed");
+                } catch (RuntimeException e) {
+                    if (strict)
+                        throw e;
+                    reportFailure(e);
                     break;
                 }
             }
+        } finally {
+            interner.clear();
+        }
+        return read;
+    }
+
+    /*
+     * Adds a label to the labels, reporting it if it has been supplied before, or throwing IllegalArgumentException
+     * when strict.
+     */
+    static void addLabel(Labels labels, String label, int address, boolean strict) {
+        try {
+            labels.addLabel(label, address);
+        } catch (RuntimeException e) {
+            if (strict) {
+                throw new IllegalArgumentException("Duplicate labels are not permitted.  The label '" + label
+                        + "' has been supplied earlier in the program source file.", e);
+            }
+            System.out.println("Duplicate labels are not permitted.");
+            System.out.println("The label '" + label + "' has been supplied earlier in the program source file.");
         }
     }
 
+    /*
+     * Reports a line which could not be translated, after which translation stops.
+     */
+    static void reportFailure(Exception e) {
+        System.out.println("An exception occurred while reading the program for the file.  Details:\n" + e.getMessage());
+        System.out.println("The program may become corrupted and the input file should be reviewed");
+    }
+
     /**
-     * Translates the current line into an instruction with the given label
+     * Translates the current line of the lexer into an instruction with the given label
      *
+     * @param lexer the lexer holding the line
+     * @param arguments a list to collect the words after the opcode in
+     * @param instructionFactory the factory to create the instruction with
      * @param label the instruction label
-     * @return the new instruction
+     * @return the new instruction, or null if the line holds nothing after its label
      * <p>
      * The input line should consist of a single SML instruction,
      * with its label already removed.
      */
-    private Instruction getInstruction(String label) {
-        if (line.isEmpty())
+    static Instruction getInstruction(Lexer lexer, ArrayList<String> arguments, InstructionFactory instructionFactory,
+                                      String label) {
+        if (!lexer.hasNext())
             return null;
 
-        String opcode = scan();
-
-        ArrayList<String> wordList = new ArrayList<>();
-
-        while (line.length() > 0) {
-            String word = scan();
-            wordList.add(word);
-        }
-
-        return instructionFactory.create(label, opcode, wordList);
-    }
+        String opcode = lexer.next();
 
+        arguments.clear();
+        while (lexer.hasNext())
+            arguments.add(lexer.next());
 
-    private String getLabel() {
-        String word = scan();
-        if (word.endsWith(":"))
-            return word.substring(0, word.length() - 1);
-
-        // undo scanning the word
-        line = word + " " + line;
-        return null;
-    }
-
-    /*
-     * Return the first word of line and remove it from line.
-     * If there is no word, return "".
-     */
-    private String scan() {
-        line = line.trim();
-        ArrayList<String> splitLine = new ArrayList<>(Arrays.asList(line.split(" ")));
-        if (splitLine.size() > 0) {
-            String word = splitLine.remove(0);
-            line = String.join(" ", splitLine);
-            return word;
-        }
-        return line;
+        return instructionFactory.create(label, opcode, arguments);
     }
-}
\ No newline at end of file
+}
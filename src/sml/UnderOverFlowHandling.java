@@ -1,10 +1,16 @@
 package sml;
 
+import sml.jfr.ArithmeticTrapEvent;
+import sml.jfr.Events;
+
 /**
  * Interface defining a default method to handle overflow and underflow during arithmetic operations.
  *
  * Implementations can use this method to check for over/underflow and throw an {@code ArithmeticException} if necessary.
  *
+ * The static checks and {@link #overUnderFlowException} offer the same behaviour without a helper object, for
+ * arithmetic on the hot path: the checks do no allocation, and the message is only built once a check has failed.
+ *
  * @author lhickley
  */
 public interface UnderOverFlowHandling {
@@ -21,17 +27,69 @@ public interface UnderOverFlowHandling {
      */
     default void handleOverUnderFlow(int value1, int value2, int res, String result, String source, String opcode, UnderOverFlowHelper helper) {
         if (helper.doOperation(value1, value2, res)) {
-            if (res < 0) {
-                throw new ArithmeticException("The combination of values " + value1 + " and " + value2 + " stored in the " +
-                        "registers " + result + " and " + source + " using the opcode '" + opcode + "' cannot be performed.\nThis will lead to a value " +
-                        "overflow in the " + result + " register.\nThe maximum value which can be stored is 2,147,483,647"
-                );
-            } else {
-                throw new ArithmeticException("The combination of values " + value1 + " and " + value2 + " stored in the " +
-                        "registers " + result + " and " + source + " using the opcode '" + opcode + "' cannot be performed.\nThis will lead to a value " +
-                        "underflow in the " + result + " register.\nThe minimum value which can be stored is -2,147,483,648"
-                );
-            }
+            throw overUnderFlowException(value1, value2, res, result, source, opcode);
+        }
+    }
+
+    /**
+     * Determines whether the addition of two values, giving res, has overflowed or underflowed.
+     * @param value1 the first value added
+     * @param value2 the second value added
+     * @param res the result of the addition
+     * @return true if the addition has overflowed or underflowed, false otherwise
+     */
+    static boolean addOverUnderFlows(int value1, int value2, int res) {
+        return ((value1 ^ res) & (value2 ^ res)) < 0;
+    }
+
+    /**
+     * Determines whether the subtraction of value2 from value1, giving res, has overflowed or underflowed.
+     * @param value1 the value subtracted from
+     * @param value2 the value subtracted
+     * @param res the result of the subtraction
+     * @return true if the subtraction has overflowed or underflowed, false otherwise
+     */
+    static boolean subtractOverUnderFlows(int value1, int value2, int res) {
+        return ((value1 ^ value2) & (value1 ^ res)) < 0;
+    }
+
+    /**
+     * Determines whether the multiplication of two values has overflowed or underflowed.
+     * @param value1 the first value multiplied
+     * @param value2 the second value multiplied
+     * @return true if the multiplication has overflowed or underflowed, false otherwise
+     */
+    static boolean multiplyOverUnderFlows(int value1, int value2) {
+        long res = (long) value1 * (long) value2;
+        return (int) res != res;
+    }
+
+    /**
+     * Builds the exception describing an over/underflow which has been detected.
+     *
+     * The checks above need no strings, so the message is only built here, once an over/underflow has occurred.
+     * The over/underflow is recorded by Java Flight Recorder as an {@link ArithmeticTrapEvent}.
+     * @param value1 the first value in the arithmetic operation
+     * @param value2 the second value in the arithmetic operation
+     * @param res the result of the arithmetic operation
+     * @param result the name of the register where the result is stored
+     * @param source the name of the register where the second value is stored
+     * @param opcode the opcode for the arithmetic operation
+     * @return the exception to throw
+     */
+    static ArithmeticException overUnderFlowException(int value1, int value2, int res, String result, String source, String opcode) {
+        if (Events.isStarted())
+            ArithmeticTrapEvent.emit(opcode, result, source, value1, value2, res < 0);
+        if (res < 0) {
+            return new ArithmeticException("The combination of values " + value1 + " and " + value2 + " stored in the " +
+                    "registers " + result + " and " + source + " using the opcode '" + opcode + "' cannot be performed.\nThis will lead to a value " +
+                    "overflow in the " + result + " register.\nThe maximum value which can be stored is 2,147,483,647"
+            );
+        } else {
+            return new ArithmeticException("The combination of values " + value1 + " and " + value2 + " stored in the " +
+                    "registers " + result + " and " + source + " using the opcode '" + opcode + "' cannot be performed.\nThis will lead to a value " +
+                    "underflow in the " + result + " register.\nThe minimum value which can be stored is -2,147,483,648"
+            );
         }
     }
 }
@@ -25,6 +25,14 @@ public class AddInstruction extends Instruction implements UnderOverFlowHandling
 		this.source = source;
 	}
 
+	public RegisterName getResult() {
+		return result;
+	}
+
+	public RegisterName getSource() {
+		return source;
+	}
+
 	/**
 	 * Executes the AddInstruction by adding the values from two registers and storing the result in the register specified
 	 * by the 'result' attribute.
@@ -40,8 +48,9 @@ public class AddInstruction extends Instruction implements UnderOverFlowHandling
 		int value1 = m.getRegisters().get(result);
 		int value2 = m.getRegisters().get(source);
 		int res = value1 + value2;
-		UnderOverFlowHelper helper = (a, b, c) -> ((a ^ c) & (b ^ c)) < 0;
-		handleOverUnderFlow(value1, value2, res, result.toString(), source.toString(), opcode, helper);
+		if (UnderOverFlowHandling.addOverUnderFlows(value1, value2, res)) {
+			throw UnderOverFlowHandling.overUnderFlowException(value1, value2, res, result.toString(), source.toString(), opcode);
+		}
 		m.getRegisters().set(result, res);
 		return NORMAL_PROGRAM_COUNTER_UPDATE;
 	}
@@ -3,6 +3,8 @@ package sml.instruction;
 import sml.Instruction;
 import sml.Machine;
 import sml.RegisterName;
+import sml.jfr.DivideByZeroEvent;
+import sml.jfr.Events;
 
 import java.util.Objects;
 
@@ -23,6 +25,14 @@ public class DivInstruction extends Instruction {
         this.source = source;
     }
 
+    public RegisterName getResult() {
+        return result;
+    }
+
+    public RegisterName getSource() {
+        return source;
+    }
+
 
     /**
      * Performs the division operation on the specified registers and stores the result in the result register. If
@@ -36,14 +46,26 @@ public class DivInstruction extends Instruction {
         int value1 = m.getRegisters().get(result);
         int value2 = m.getRegisters().get(source);
         if (value2 == 0) {
-            throw new RuntimeException("The program is attempting to divide by zero in the register " + source + ".\n" +
-                    "This is not permitted, as it is not a valid arithmetic operation.\n" +
-                    "Please confirm that the register " + source + " has been correctly set.");
+            throw divideByZeroException(source);
         }
         m.getRegisters().set(result, value1 / value2);
         return NORMAL_PROGRAM_COUNTER_UPDATE;
     }
 
+    /**
+     * Builds the exception describing an attempt to divide by the zero held in a register, recording the attempt with
+     * Java Flight Recorder as a {@link DivideByZeroEvent}.
+     * @param source the register holding zero
+     * @return the exception to throw
+     */
+    public static RuntimeException divideByZeroException(RegisterName source) {
+        if (Events.isStarted())
+            DivideByZeroEvent.emit(source.toString());
+        return new RuntimeException("The program is attempting to divide by zero in the register " + source + ".\n" +
+                "This is not permitted, as it is not a valid arithmetic operation.\n" +
+                "Please confirm that the register " + source + " has been correctly set.");
+    }
+
     @Override
     public String toString() {
         return getLabelString() + getOpcode() + " " + result + " " + source;
@@ -18,12 +18,30 @@ public class JnzInstruction extends Instruction {
     private final RegisterName registerToCheck;
     private final String labelToJumpTo;
 
+    // The address of labelToJumpTo once the instruction has been linked, otherwise UNLINKED
+    private final int addressToJumpTo;
+
+    private static final int UNLINKED = Integer.MIN_VALUE;
+
     public static final String OP_CODE = "jnz";
 
     public JnzInstruction(String label, RegisterName registerToCheck, String labelToJumpTo) {
+        this(label, registerToCheck, labelToJumpTo, UNLINKED);
+    }
+
+    private JnzInstruction(String label, RegisterName registerToCheck, String labelToJumpTo, int addressToJumpTo) {
         super(label, OP_CODE);
         this.registerToCheck = registerToCheck;
         this.labelToJumpTo = labelToJumpTo;
+        this.addressToJumpTo = addressToJumpTo;
+    }
+
+    public RegisterName getRegisterToCheck() {
+        return registerToCheck;
+    }
+
+    public String getLabelToJumpTo() {
+        return labelToJumpTo;
     }
 
     /**
@@ -32,6 +50,7 @@ public class JnzInstruction extends Instruction {
      * This instruction checks the value in the register named by {@code registerToCheck}.
      * If the value is zero, the program counter is updated normally.
      * Otherwise, the program counter is set to the address corresponding to the label specified by {@code labelToJumpTo}.
+     * A linked instruction already holds that address; an unlinked one looks it up in the labels of the machine.
      *
      * @param m the machine on which to execute this instruction
      * @return the updated program counter value
@@ -39,15 +58,29 @@ public class JnzInstruction extends Instruction {
     @Override
     public int execute(Machine m) {
         Registers registers = m.getRegisters();
-        int registerValue = registers.get(registerToCheck);
+        long registerValue = registers.getLong(registerToCheck);
         if (registerValue == 0) {
             return NORMAL_PROGRAM_COUNTER_UPDATE;
+        } else if (addressToJumpTo != UNLINKED) {
+            return addressToJumpTo;
         } else {
             Labels labels = m.getLabels();
             return labels.getAddress(labelToJumpTo);
         }
     }
 
+    /**
+     * Binds {@code labelToJumpTo} to its address, so that taking the jump no longer needs a label lookup.
+     *
+     * @param labels the labels of the program this instruction belongs to
+     * @return a JnzInstruction equal to this one which jumps straight to the resolved address
+     * @throws RuntimeException if {@code labelToJumpTo} does not exist
+     */
+    @Override
+    public Instruction link(Labels labels) {
+        return new JnzInstruction(label, registerToCheck, labelToJumpTo, labels.getAddress(labelToJumpTo));
+    }
+
     @Override
     public String toString() {
         return getLabelString() + getOpcode() + " " + registerToCheck + " " + labelToJumpTo;
@@ -26,6 +26,14 @@ public class MovInstruction extends Instruction {
         this.value = value;
     }
 
+    public RegisterName getRegisterToSet() {
+        return registerToSet;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
     /**
      * Executes this MovInstruction on the given machine, setting the specified register to the specified value.
      * @param m the machine on which to execute this instruction
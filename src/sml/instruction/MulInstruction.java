@@ -24,6 +24,14 @@ public class MulInstruction extends Instruction implements UnderOverFlowHandling
         this.source = source;
     }
 
+    public RegisterName getResult() {
+        return result;
+    }
+
+    public RegisterName getSource() {
+        return source;
+    }
+
     /**
      * Executes the multiplication instruction, multiplies the value in the result register by the value in the source
      * register and stores the result in the result register.
@@ -38,8 +46,9 @@ public class MulInstruction extends Instruction implements UnderOverFlowHandling
         int value1 = m.getRegisters().get(result);
         int value2 = m.getRegisters().get(source);
         int res = value1 * value2;
-        UnderOverFlowHelper helper = (a, b, c) -> (int)(a * b) != ((long)a * (long)b);
-        handleOverUnderFlow(value1, value2, res, result.toString(), source.toString(), opcode, helper);
+        if (UnderOverFlowHandling.multiplyOverUnderFlows(value1, value2)) {
+            throw UnderOverFlowHandling.overUnderFlowException(value1, value2, res, result.toString(), source.toString(), opcode);
+        }
         m.getRegisters().set(result, res);
         return NORMAL_PROGRAM_COUNTER_UPDATE;
     }
@@ -8,7 +8,8 @@ import sml.Registers;
 import java.util.Objects;
 
 /**
- * The OutInstruction class represents an instruction to output the value of a register to the console
+ * The OutInstruction class represents an instruction to output the value of a register to the output sink of the
+ * machine, which is the console unless the machine has been given another sink
  *
  * @author lhickley
  */
@@ -24,16 +25,20 @@ public class OutInstruction extends Instruction {
         this.source = source;
     }
 
+    public RegisterName getSource() {
+        return source;
+    }
+
     /**
-     * Outputs the value of the register specified by the instruction to the console.
+     * Outputs the value of the register specified by the instruction to the output sink of the machine.
      * @param m the machine on which the instruction is to be executed
      * @return the value by which to update the program counter after the instruction has executed
      */
     @Override
     public int execute(Machine m) {
         Registers registers = m.getRegisters();
-        int registerValue = registers.get(source);
-        System.out.println(registerValue);
+        long registerValue = registers.getLong(source);
+        m.getOutput().write(registerValue);
         return NORMAL_PROGRAM_COUNTER_UPDATE;
     }
 
@@ -0,0 +1,76 @@
+package sml.instruction;
+
+import sml.Instruction;
+import sml.RegisterName;
+
+import java.util.Objects;
+
+/**
+ * Represents an arithmetic instruction specialised for an overflow policy other than trapping.
+ *
+ * The machine replaces add, sub, mul and div instructions with subclasses of this class when it links a program,
+ * so that each arithmetic instruction only does the work its policy and its operation require.  A specialised
+ * instruction has the same label, opcode and registers as the instruction it replaces, and so the same string
+ * representation.
+ *
+ * @author lhickley
+ */
+public abstract class OverflowPolicyInstruction extends Instruction {
+    protected final RegisterName result;
+    protected final RegisterName source;
+
+    /**
+     * Constructor: an arithmetic instruction with a label, an opcode and two registers.
+     *
+     * @param label optional label (can be null)
+     * @param opcode one of add, sub, mul or div
+     * @param result the register holding the first value, which receives the result
+     * @param source the register holding the second value
+     */
+    protected OverflowPolicyInstruction(String label, String opcode, RegisterName result, RegisterName source) {
+        super(label, opcode);
+        this.result = result;
+        this.source = source;
+    }
+
+    /*
+     * The exception reporting that an opcode given to a factory is not an arithmetic operation.
+     */
+    static IllegalArgumentException unknownOperation(String opcode) {
+        return new IllegalArgumentException("Unknown arithmetic instruction '" + opcode + "'");
+    }
+
+    public RegisterName getResult() {
+        return result;
+    }
+
+    public RegisterName getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return getLabelString() + getOpcode() + " " + result + " " + source;
+    }
+
+    /**
+     * Two specialised instructions are equal if they are of the same class, and have the same label (or no label),
+     * opcode, result register and source register.
+     *
+     * @param o the object to compare to
+     * @return true if the objects are equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OverflowPolicyInstruction that = (OverflowPolicyInstruction) o;
+        return Objects.equals(label, that.label) && opcode.equals(that.opcode)
+                && result.equals(that.result) && source.equals(that.source);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getClass(), label, opcode, result, source);
+    }
+}
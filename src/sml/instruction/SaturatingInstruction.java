@@ -0,0 +1,112 @@
+package sml.instruction;
+
+import sml.Machine;
+import sml.RegisterName;
+import sml.Registers;
+
+/**
+ * Represents an add, sub, mul or div instruction under the {@link sml.OverflowPolicy#SATURATE} policy.
+ *
+ * Results above the largest int are replaced by the largest int, and results below the smallest int by the smallest
+ * int.  Division by zero still fails, exactly as it does for a {@link DivInstruction}.  Each operation has its own
+ * subclass, chosen when the program is linked, so executing one makes no further decision.
+ *
+ * @author lhickley
+ */
+public abstract class SaturatingInstruction extends OverflowPolicyInstruction {
+
+    private SaturatingInstruction(String label, String opcode, RegisterName result, RegisterName source) {
+        super(label, opcode, result, source);
+    }
+
+    /**
+     * Returns the saturating form of an arithmetic instruction.
+     *
+     * @param label optional label (can be null)
+     * @param opcode one of add, sub, mul or div
+     * @param result the register holding the first value, which receives the result
+     * @param source the register holding the second value
+     * @return the saturating instruction
+     * @throws IllegalArgumentException if the opcode is not an arithmetic operation
+     */
+    public static SaturatingInstruction of(String label, String opcode, RegisterName result, RegisterName source) {
+        return switch (opcode) {
+            case AddInstruction.OP_CODE -> new Add(label, result, source);
+            case SubInstruction.OP_CODE -> new Sub(label, result, source);
+            case MulInstruction.OP_CODE -> new Mul(label, result, source);
+            case DivInstruction.OP_CODE -> new Div(label, result, source);
+            default -> throw unknownOperation(opcode);
+        };
+    }
+
+    /**
+     * Returns a 64-bit result clamped to the range of an int, as the saturating instructions store it.  The other
+     * engines of the machine call this to compute the same results as these instructions.
+     *
+     * @param res the exact result of an int operation
+     * @return the result if it fits in an int, otherwise the largest or smallest int
+     */
+    public static int saturate(long res) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, res));
+    }
+
+    private static final class Add extends SaturatingInstruction {
+        Add(String label, RegisterName result, RegisterName source) {
+            super(label, AddInstruction.OP_CODE, result, source);
+        }
+
+        @Override
+        public int execute(Machine m) {
+            Registers registers = m.getRegisters();
+            registers.set(result, saturate((long) registers.get(result) + registers.get(source)));
+            return NORMAL_PROGRAM_COUNTER_UPDATE;
+        }
+    }
+
+    private static final class Sub extends SaturatingInstruction {
+        Sub(String label, RegisterName result, RegisterName source) {
+            super(label, SubInstruction.OP_CODE, result, source);
+        }
+
+        @Override
+        public int execute(Machine m) {
+            Registers registers = m.getRegisters();
+            registers.set(result, saturate((long) registers.get(result) - registers.get(source)));
+            return NORMAL_PROGRAM_COUNTER_UPDATE;
+        }
+    }
+
+    private static final class Mul extends SaturatingInstruction {
+        Mul(String label, RegisterName result, RegisterName source) {
+            super(label, MulInstruction.OP_CODE, result, source);
+        }
+
+        @Override
+        public int execute(Machine m) {
+            Registers registers = m.getRegisters();
+            registers.set(result, saturate((long) registers.get(result) * registers.get(source)));
+            return NORMAL_PROGRAM_COUNTER_UPDATE;
+        }
+    }
+
+    private static final class Div extends SaturatingInstruction {
+        Div(String label, RegisterName result, RegisterName source) {
+            super(label, DivInstruction.OP_CODE, result, source);
+        }
+
+        /**
+         * @throws RuntimeException if the source register holds zero
+         */
+        @Override
+        public int execute(Machine m) {
+            Registers registers = m.getRegisters();
+            int value2 = registers.get(source);
+            if (value2 == 0) {
+                throw DivInstruction.divideByZeroException(source);
+            }
+            // only Integer.MIN_VALUE / -1 needs saturating
+            registers.set(result, saturate((long) registers.get(result) / value2));
+            return NORMAL_PROGRAM_COUNTER_UPDATE;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package sml.instruction;
+
+import sml.Instruction;
+import sml.Machine;
+
+import java.util.Objects;
+
+/**
+ * Represents a superinstruction which fuses a sub instruction with the jnz instruction following it, when the jnz
+ * checks the register the sub has just updated.  This is the decrement-and-branch at the foot of a countdown loop.
+ *
+ * It takes the place of the sub instruction, and executes the sub and the jnz in a single dispatch.  The jnz
+ * instruction keeps its own address, so jumps to it behave as before.  The string representation is that of the sub
+ * instruction, so listings of a fused program are unchanged.
+ *
+ * When the machine has an overflow policy other than trapping, the subtraction is performed by the form of the sub
+ * specialised for that policy, given by {@link #withSubtraction(Instruction)}.
+ *
+ * @author lhickley
+ */
+public class SubJnzInstruction extends Instruction {
+    private final SubInstruction sub;
+    private final JnzInstruction jnz;
+    // the instruction which performs the subtraction: sub, or its form specialised for an overflow policy
+    private final Instruction subtraction;
+    private final int addressToJumpTo;
+    private final int addressAfterJnz;
+
+    public static final String OP_CODE = SubInstruction.OP_CODE + "+" + JnzInstruction.OP_CODE;
+
+    /**
+     * Constructor: fuses a sub instruction with the jnz instruction which follows it.
+     *
+     * @param sub the sub instruction
+     * @param jnz the jnz instruction, which must check the result register of sub
+     * @param address the address of the sub instruction
+     * @param addressToJumpTo the address of the label jnz jumps to
+     */
+    public SubJnzInstruction(SubInstruction sub, JnzInstruction jnz, int address, int addressToJumpTo) {
+        super(sub.getLabel(), OP_CODE);
+        if (!sub.getResult().equals(jnz.getRegisterToCheck())) {
+            throw new IllegalArgumentException("Only a jnz checking the register " + sub.getResult() +
+                    " can be fused with '" + sub + "'");
+        }
+        this.sub = sub;
+        this.jnz = jnz;
+        this.subtraction = sub;
+        this.addressToJumpTo = addressToJumpTo;
+        this.addressAfterJnz = address + 2;
+    }
+
+    private SubJnzInstruction(SubJnzInstruction fused, Instruction subtraction) {
+        super(fused.getLabel(), OP_CODE);
+        this.sub = fused.sub;
+        this.jnz = fused.jnz;
+        this.subtraction = subtraction;
+        this.addressToJumpTo = fused.addressToJumpTo;
+        this.addressAfterJnz = fused.addressAfterJnz;
+    }
+
+    /**
+     * Returns a superinstruction fusing the same instructions which performs the subtraction with the given
+     * instruction, such as the form of the sub specialised for an overflow policy.
+     *
+     * @param subtraction an instruction which performs the sub, with the same opcode and registers
+     * @return the superinstruction
+     * @throws IllegalArgumentException if subtraction is not a sub of the same registers
+     */
+    public SubJnzInstruction withSubtraction(Instruction subtraction) {
+        boolean performsSub = subtraction.equals(sub)
+                || (subtraction instanceof OverflowPolicyInstruction specialised
+                        && specialised.getOpcode().equals(SubInstruction.OP_CODE)
+                        && specialised.getResult().equals(sub.getResult())
+                        && specialised.getSource().equals(sub.getSource()));
+        if (!performsSub) {
+            throw new IllegalArgumentException("'" + subtraction + "' cannot perform '" + sub + "'");
+        }
+        return new SubJnzInstruction(this, subtraction);
+    }
+
+    public SubInstruction getSub() {
+        return sub;
+    }
+
+    public JnzInstruction getJnz() {
+        return jnz;
+    }
+
+    public Instruction getSubtraction() {
+        return subtraction;
+    }
+
+    /**
+     * Executes the sub instruction, then jumps to the label of the jnz instruction if the result is not zero, or
+     * past the jnz instruction otherwise.
+     *
+     * @param m the Machine object that this instruction executes for
+     * @return the address of the next instruction to execute
+     */
+    @Override
+    public int execute(Machine m) {
+        subtraction.execute(m);
+        return (m.getRegisters().getLong(sub.getResult()) != 0) ? addressToJumpTo : addressAfterJnz;
+    }
+
+    @Override
+    public String toString() {
+        return sub.toString();
+    }
+
+    /**
+     * Two SubJnzInstructions are equal if they fuse equal instructions at the same address, and perform the
+     * subtraction with equal instructions.
+     *
+     * @param o the object to compare to
+     * @return true if the objects are equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SubJnzInstruction that = (SubJnzInstruction) o;
+        return addressToJumpTo == that.addressToJumpTo && addressAfterJnz == that.addressAfterJnz
+                && sub.equals(that.sub) && jnz.equals(that.jnz) && subtraction.equals(that.subtraction);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(opcode, sub, jnz, addressToJumpTo, addressAfterJnz);
+    }
+}
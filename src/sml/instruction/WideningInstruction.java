@@ -0,0 +1,155 @@
+package sml.instruction;
+
+import sml.Machine;
+import sml.RegisterName;
+import sml.Registers;
+import sml.jfr.ArithmeticTrapEvent;
+import sml.jfr.Events;
+
+/**
+ * Represents an add, sub, mul or div instruction under the {@link sml.OverflowPolicy#WIDEN} policy.
+ *
+ * The registers are treated as 64 bits wide, so results beyond the range of an int are kept in full.  A result
+ * beyond the range of a long is reported in the same way as an int over/underflow is under the trapping policy.
+ * Division by zero still fails, exactly as it does for a {@link DivInstruction}.  Each operation has its own
+ * subclass, chosen when the program is linked, so executing one makes no further decision.
+ *
+ * @author lhickley
+ */
+public abstract class WideningInstruction extends OverflowPolicyInstruction {
+
+    private WideningInstruction(String label, String opcode, RegisterName result, RegisterName source) {
+        super(label, opcode, result, source);
+    }
+
+    /**
+     * Returns the widening form of an arithmetic instruction.
+     *
+     * @param label optional label (can be null)
+     * @param opcode one of add, sub, mul or div
+     * @param result the register holding the first value, which receives the result
+     * @param source the register holding the second value
+     * @return the widening instruction
+     * @throws IllegalArgumentException if the opcode is not an arithmetic operation
+     */
+    public static WideningInstruction of(String label, String opcode, RegisterName result, RegisterName source) {
+        return switch (opcode) {
+            case AddInstruction.OP_CODE -> new Add(label, result, source);
+            case SubInstruction.OP_CODE -> new Sub(label, result, source);
+            case MulInstruction.OP_CODE -> new Mul(label, result, source);
+            case DivInstruction.OP_CODE -> new Div(label, result, source);
+            default -> throw unknownOperation(opcode);
+        };
+    }
+
+    /*
+     * The exception reporting that a result does not fit in 64 bits, in the same form as UnderOverFlowHandling's.
+     */
+    ArithmeticException overUnderFlowException(long value1, long value2, boolean overflow) {
+        if (Events.isStarted())
+            ArithmeticTrapEvent.emit(opcode, result.toString(), source.toString(), value1, value2, overflow);
+        return new ArithmeticException("The combination of values " + value1 + " and " + value2 + " stored in the " +
+                "registers " + result + " and " + source + " using the opcode '" + opcode + "' cannot be performed.\n" +
+                "This will lead to a value " + (overflow ? "overflow" : "underflow") + " in the " + result + " register.\n" +
+                (overflow ? "The maximum value which can be stored is 9,223,372,036,854,775,807"
+                        : "The minimum value which can be stored is -9,223,372,036,854,775,808"));
+    }
+
+    private static final class Add extends WideningInstruction {
+        Add(String label, RegisterName result, RegisterName source) {
+            super(label, AddInstruction.OP_CODE, result, source);
+        }
+
+        /**
+         * @throws ArithmeticException if the result does not fit in 64 bits
+         */
+        @Override
+        public int execute(Machine m) {
+            Registers registers = m.getRegisters();
+            long value1 = registers.getLong(result);
+            long value2 = registers.getLong(source);
+            long res;
+            try {
+                res = Math.addExact(value1, value2);
+            } catch (ArithmeticException e) {
+                throw overUnderFlowException(value1, value2, value1 > 0);
+            }
+            registers.setLong(result, res);
+            return NORMAL_PROGRAM_COUNTER_UPDATE;
+        }
+    }
+
+    private static final class Sub extends WideningInstruction {
+        Sub(String label, RegisterName result, RegisterName source) {
+            super(label, SubInstruction.OP_CODE, result, source);
+        }
+
+        /**
+         * @throws ArithmeticException if the result does not fit in 64 bits
+         */
+        @Override
+        public int execute(Machine m) {
+            Registers registers = m.getRegisters();
+            long value1 = registers.getLong(result);
+            long value2 = registers.getLong(source);
+            long res;
+            try {
+                res = Math.subtractExact(value1, value2);
+            } catch (ArithmeticException e) {
+                throw overUnderFlowException(value1, value2, value1 >= 0);
+            }
+            registers.setLong(result, res);
+            return NORMAL_PROGRAM_COUNTER_UPDATE;
+        }
+    }
+
+    private static final class Mul extends WideningInstruction {
+        Mul(String label, RegisterName result, RegisterName source) {
+            super(label, MulInstruction.OP_CODE, result, source);
+        }
+
+        /**
+         * @throws ArithmeticException if the result does not fit in 64 bits
+         */
+        @Override
+        public int execute(Machine m) {
+            Registers registers = m.getRegisters();
+            long value1 = registers.getLong(result);
+            long value2 = registers.getLong(source);
+            long res;
+            try {
+                res = Math.multiplyExact(value1, value2);
+            } catch (ArithmeticException e) {
+                throw overUnderFlowException(value1, value2, (value1 < 0) == (value2 < 0));
+            }
+            registers.setLong(result, res);
+            return NORMAL_PROGRAM_COUNTER_UPDATE;
+        }
+    }
+
+    private static final class Div extends WideningInstruction {
+        Div(String label, RegisterName result, RegisterName source) {
+            super(label, DivInstruction.OP_CODE, result, source);
+        }
+
+        /**
+         * @throws ArithmeticException if the result does not fit in 64 bits
+         * @throws RuntimeException if the source register holds zero
+         */
+        @Override
+        public int execute(Machine m) {
+            Registers registers = m.getRegisters();
+            long value1 = registers.getLong(result);
+            long value2 = registers.getLong(source);
+            if (value2 == 0) {
+                throw DivInstruction.divideByZeroException(source);
+            }
+            if (value1 == Long.MIN_VALUE && value2 == -1) {
+                // long division never throws, and this is the one quotient beyond the range of a long
+                throw overUnderFlowException(value1, value2, true);
+            }
+            registers.setLong(result, value1 / value2);
+            return NORMAL_PROGRAM_COUNTER_UPDATE;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package sml.instruction;
+
+import sml.Machine;
+import sml.RegisterName;
+import sml.Registers;
+
+/**
+ * Represents an add, sub or mul instruction under the {@link sml.OverflowPolicy#WRAP} policy.
+ *
+ * Results which do not fit in a register wrap around in two's complement, so no overflow check is made.  Each
+ * operation has its own subclass, chosen when the program is linked, so executing one makes no further decision.
+ *
+ * @author lhickley
+ */
+public abstract class WrappingInstruction extends OverflowPolicyInstruction {
+
+    private WrappingInstruction(String label, String opcode, RegisterName result, RegisterName source) {
+        super(label, opcode, result, source);
+    }
+
+    /**
+     * Returns the wrapping form of an arithmetic instruction.
+     *
+     * @param label optional label (can be null)
+     * @param opcode one of add, sub or mul
+     * @param result the register holding the first value, which receives the result
+     * @param source the register holding the second value
+     * @return the wrapping instruction
+     * @throws IllegalArgumentException if the opcode is div, which cannot overflow, or is not an arithmetic operation
+     */
+    public static WrappingInstruction of(String label, String opcode, RegisterName result, RegisterName source) {
+        return switch (opcode) {
+            case AddInstruction.OP_CODE -> new Add(label, result, source);
+            case SubInstruction.OP_CODE -> new Sub(label, result, source);
+            case MulInstruction.OP_CODE -> new Mul(label, result, source);
+            case DivInstruction.OP_CODE ->
+                    throw new IllegalArgumentException("A div instruction cannot overflow, so has no wrapping form");
+            default -> throw unknownOperation(opcode);
+        };
+    }
+
+    private static final class Add extends WrappingInstruction {
+        Add(String label, RegisterName result, RegisterName source) {
+            super(label, AddInstruction.OP_CODE, result, source);
+        }
+
+        @Override
+        public int execute(Machine m) {
+            Registers registers = m.getRegisters();
+            registers.set(result, registers.get(result) + registers.get(source));
+            return NORMAL_PROGRAM_COUNTER_UPDATE;
+        }
+    }
+
+    private static final class Sub extends WrappingInstruction {
+        Sub(String label, RegisterName result, RegisterName source) {
+            super(label, SubInstruction.OP_CODE, result, source);
+        }
+
+        @Override
+        public int execute(Machine m) {
+            Registers registers = m.getRegisters();
+            registers.set(result, registers.get(result) - registers.get(source));
+            return NORMAL_PROGRAM_COUNTER_UPDATE;
+        }
+    }
+
+    private static final class Mul extends WrappingInstruction {
+        Mul(String label, RegisterName result, RegisterName source) {
+            super(label, MulInstruction.OP_CODE, result, source);
+        }
+
+        @Override
+        public int execute(Machine m) {
+            Registers registers = m.getRegisters();
+            registers.set(result, registers.get(result) * registers.get(source));
+            return NORMAL_PROGRAM_COUNTER_UPDATE;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package sml.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded by Java Flight Recorder when an arithmetic instruction traps because its result does not fit.
+ *
+ * @author lhickley
+ */
+@Name("sml.ArithmeticTrap")
+@Label("SML Arithmetic Trap")
+@Category("SML")
+@Description("An arithmetic instruction whose result overflowed or underflowed")
+public final class ArithmeticTrapEvent extends Event {
+    @Label("Opcode")
+    String opcode;
+
+    @Label("Result Register")
+    @Description("The register the result was to be stored in")
+    String result;
+
+    @Label("Source Register")
+    String source;
+
+    @Label("First Value")
+    long value1;
+
+    @Label("Second Value")
+    long value2;
+
+    @Label("Overflow")
+    @Description("True if the result was too large, false if it was too small")
+    boolean overflow;
+
+    /**
+     * Records a trap, if the event is to be recorded.
+     *
+     * @param opcode the opcode of the instruction
+     * @param result the name of the register the result was to be stored in
+     * @param source the name of the register holding the second value
+     * @param value1 the first value
+     * @param value2 the second value
+     * @param overflow true if the result was too large, false if it was too small
+     */
+    public static void emit(String opcode, String result, String source, long value1, long value2, boolean overflow) {
+        ArithmeticTrapEvent event = new ArithmeticTrapEvent();
+        if (event.shouldCommit()) {
+            event.opcode = opcode;
+            event.result = result;
+            event.source = source;
+            event.value1 = value1;
+            event.value2 = value2;
+            event.overflow = overflow;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package sml.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded by Java Flight Recorder when a div instruction fails because its divisor is zero.
+ *
+ * @author lhickley
+ */
+@Name("sml.DivideByZero")
+@Label("SML Divide By Zero")
+@Category("SML")
+@Description("A div instruction whose divisor was zero")
+public final class DivideByZeroEvent extends Event {
+    @Label("Source Register")
+    @Description("The register holding the zero divisor")
+    String source;
+
+    /**
+     * Records a division by zero, if the event is to be recorded.
+     *
+     * @param source the name of the register holding the zero divisor
+     */
+    public static void emit(String source) {
+        DivideByZeroEvent event = new DivideByZeroEvent();
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.commit();
+        }
+    }
+}
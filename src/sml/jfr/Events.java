@@ -0,0 +1,27 @@
+package sml.jfr;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Decides whether the events of this package are made at all.
+ *
+ * Loading the first event class makes Java Flight Recorder set itself up, which takes hundreds of milliseconds and
+ * loads about a hundred classes, even when nothing is being recorded.  So the machine, the translator and the
+ * instructions make no event, and load no event class, until Java Flight Recorder has been started: by the
+ * -XX:StartFlightRecording option, by jcmd, or through its API.  Until then recording an event costs a single check.
+ *
+ * @author lhickley
+ */
+public final class Events {
+    private Events() {
+    }
+
+    /**
+     * Returns whether Java Flight Recorder has been started, so that events may be recorded.
+     *
+     * @return true if it has been started
+     */
+    public static boolean isStarted() {
+        return FlightRecorder.isInitialized();
+    }
+}
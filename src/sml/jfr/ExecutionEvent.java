@@ -0,0 +1,60 @@
+package sml.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded by Java Flight Recorder for each execution of a program by a machine.
+ *
+ * @author lhickley
+ */
+@Name("sml.Execution")
+@Label("SML Execution")
+@Category("SML")
+@Description("The execution of an SML program by a machine")
+@StackTrace(false)
+public final class ExecutionEvent extends Event {
+    @Label("Engine")
+    @Description("The engine which executed the program")
+    String engine;
+
+    @Label("Instructions")
+    @Description("The number of instructions of the program")
+    int instructions;
+
+    @Label("Instructions Executed")
+    @Description("The number of instructions completed")
+    long instructionsExecuted;
+
+    @Label("Status")
+    @Description("How the execution ended: NORMAL, TRAP, BUDGET_EXHAUSTED or CANCELLED")
+    String status;
+
+    @Label("Failure")
+    @Description("The class of the exception which ended a failed program")
+    String failure;
+
+    /**
+     * Ends the event, committing it if it is to be recorded.  Does nothing costly when it is not.
+     *
+     * @param engine the engine which executed the program
+     * @param instructions the number of instructions of the program
+     * @param instructionsExecuted the number of instructions completed
+     * @param status how the execution ended
+     * @param failure the exception which ended the program, or null if none did
+     */
+    public void end(String engine, int instructions, long instructionsExecuted, String status, Throwable failure) {
+        if (shouldCommit()) {
+            this.engine = engine;
+            this.instructions = instructions;
+            this.instructionsExecuted = instructionsExecuted;
+            this.status = status;
+            this.failure = (failure == null) ? null : failure.getClass().getName();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package sml.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Recorded by Java Flight Recorder, once a period, for each machine executing a program, to show how far it has got.
+ * The period is one second unless the recording sets another.
+ *
+ * @author lhickley
+ */
+@Name("sml.Progress")
+@Label("SML Progress")
+@Category("SML")
+@Description("How far a machine has got through executing an SML program")
+@Period("1 s")
+@StackTrace(false)
+public final class ProgressEvent extends Event {
+    @Label("Machine")
+    @Description("The identity hash code of the machine")
+    int machine;
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Address")
+    @Description("The address of the instruction being executed, or -1 if the engine does not publish it")
+    int address;
+
+    @Label("Location")
+    @Description("The nearest label at or before the address, and how far past it the address is")
+    String location;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    /**
+     * Returns whether progress is being recorded, so that a machine need only make its progress known when it is.
+     *
+     * @return true if the event is enabled
+     */
+    public static boolean isRecorded() {
+        return new ProgressEvent().isEnabled();
+    }
+
+    /**
+     * Records the progress of a machine.
+     *
+     * @param machine the identity hash code of the machine
+     * @param engine the engine executing the program
+     * @param address the address of the instruction being executed, or -1 if it is not known
+     * @param location the location of the address in the source, or null if it is not known
+     * @param elapsed the nanoseconds since execution began
+     */
+    public static void emit(int machine, String engine, int address, String location, long elapsed) {
+        ProgressEvent event = new ProgressEvent();
+        event.machine = machine;
+        event.engine = engine;
+        event.address = address;
+        event.location = location;
+        event.elapsed = elapsed;
+        event.commit();
+    }
+}
@@ -0,0 +1,48 @@
+package sml.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded by Java Flight Recorder for each translation of a program from its source.
+ *
+ * @author lhickley
+ */
+@Name("sml.Translation")
+@Label("SML Translation")
+@Category("SML")
+@Description("The translation of an SML program from its source")
+@StackTrace(false)
+public final class TranslationEvent extends Event {
+    @Label("Source")
+    @Description("The file the program was read from, or <source> for a program read from memory")
+    String source;
+
+    @Label("Lines")
+    @Description("The number of lines read")
+    int lines;
+
+    @Label("Instructions")
+    @Description("The number of instructions translated")
+    int instructions;
+
+    /**
+     * Ends the event, committing it if it is to be recorded.  Does nothing costly when it is not.
+     *
+     * @param source the file the program was read from, or null for a program read from memory
+     * @param lines the number of lines read
+     * @param instructions the number of instructions translated
+     */
+    public void end(String source, int lines, int instructions) {
+        if (shouldCommit()) {
+            this.source = (source == null) ? "<source>" : source;
+            this.lines = lines;
+            this.instructions = instructions;
+            commit();
+        }
+    }
+}
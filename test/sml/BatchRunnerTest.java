@@ -0,0 +1,101 @@
+package sml;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static sml.Registers.Register.*;
+
+public class BatchRunnerTest {
+    private BatchRunner runner;
+    private String baseTestFilePath;
+
+    @BeforeEach
+    void setUp() {
+        runner = new BatchRunner(4);
+        baseTestFilePath = "./sdp23-coursework-lhickley/test/resources/";
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.close();
+        runner = null;
+    }
+
+    @Test
+    void runReturnsResultsInOrder() throws InterruptedException {
+        List<BatchJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            jobs.add(BatchJob.ofSource("job" + i, "mov EAX " + i + "\nout EAX\n"));
+        }
+        List<BatchResult> results = runner.run(jobs);
+        Assertions.assertEquals(200, results.size());
+        for (int i = 0; i < 200; i++) {
+            BatchResult result = results.get(i);
+            Assertions.assertEquals("job" + i, result.getJob().getName());
+            Assertions.assertTrue(result.isSuccessful());
+            Assertions.assertArrayEquals(new long[] {i}, result.getOutput());
+            Assertions.assertEquals(i, result.getRegisters().get(EAX));
+        }
+    }
+
+    @Test
+    void runFileJob() throws InterruptedException {
+        String fileLocation = new File(baseTestFilePath + "MixedInstructions.sml").getAbsolutePath();
+        BatchResult result = runner.run(List.of(BatchJob.ofFile(fileLocation))).get(0);
+        Assertions.assertTrue(result.isSuccessful());
+        Assertions.assertArrayEquals(new long[] {720, 2}, result.getOutput());
+        Assertions.assertTrue(result.getExecutionNanos() > 0);
+    }
+
+    @Test
+    void runReportsErrorsPerJob() throws InterruptedException {
+        List<BatchResult> results = runner.run(List.of(
+                BatchJob.ofSource("divide", "mov EAX 1\nout EAX\ndiv EAX EBX\n"),
+                BatchJob.ofSource("fine", "mov EAX 2\n"),
+                BatchJob.ofFile(baseTestFilePath + "doesNotExist.sml")));
+        Assertions.assertFalse(results.get(0).isSuccessful());
+        Assertions.assertArrayEquals(new long[] {1}, results.get(0).getOutput());
+        Assertions.assertEquals(1, results.get(0).getRegisters().get(EAX));
+        Assertions.assertTrue(results.get(1).isSuccessful());
+        Assertions.assertFalse(results.get(2).isSuccessful());
+        Assertions.assertEquals(0, results.get(2).getExecutionNanos());
+    }
+
+    @Test
+    void runReportsTranslationFailuresPerJob() throws InterruptedException {
+        PrintStream standardOut = System.out;
+        ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(outputStreamCaptor));
+        List<BatchResult> results;
+        try {
+            results = runner.run(List.of(
+                    BatchJob.ofSource("bad line", "mov EAX 5\nfoo EAX\nmov EBX 9\nout EAX\n"),
+                    BatchJob.ofSource("duplicate label", "a: mov EAX 5\na: out EAX\n")));
+        } finally {
+            System.setOut(standardOut);
+        }
+        Assertions.assertFalse(results.get(0).isSuccessful());
+        InstructionFormatException failure =
+                Assertions.assertInstanceOf(InstructionFormatException.class, results.get(0).getError());
+        Assertions.assertEquals(InstructionFormatException.Reason.UNKNOWN_OPCODE, failure.getReason());
+        Assertions.assertArrayEquals(new long[0], results.get(0).getOutput());
+        Assertions.assertEquals(0, results.get(0).getRegisters().get(EAX));
+        Assertions.assertEquals(0, results.get(0).getExecutionNanos());
+        Assertions.assertFalse(results.get(1).isSuccessful());
+        Assertions.assertInstanceOf(IllegalArgumentException.class, results.get(1).getError());
+        Assertions.assertEquals("", outputStreamCaptor.toString());
+    }
+
+    @Test
+    void constructWithoutThreadsThrows() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BatchRunner(0));
+    }
+}
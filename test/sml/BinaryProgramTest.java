@@ -0,0 +1,178 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sml.instruction.JnzInstruction;
+import sml.instruction.MovInstruction;
+import sml.instruction.SubInstruction;
+import sml.instruction.SubJnzInstruction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static sml.Registers.Register.*;
+
+public class BinaryProgramTest {
+    private static final String FACTORIAL = """
+            mov EAX 6
+            mov EBX 1
+            mov ECX 1
+            f: mul EBX EAX
+            sub EAX ECX
+            jnz EAX f
+            out EBX
+            """;
+
+    @TempDir
+    Path directory;
+
+    private static Machine translate(String source) throws IOException {
+        Machine machine = new Machine(new Registers());
+        Translator.fromSource(source, InstructionFactory.getInstance())
+                .readAndTranslate(machine.getLabels(), machine.getProgram());
+        return machine;
+    }
+
+    @Test
+    void compileAndLoad() throws IOException {
+        Path source = directory.resolve("factorial.sml");
+        Path binary = directory.resolve("factorial" + BinaryProgram.EXTENSION);
+        Files.writeString(source, FACTORIAL);
+        BinaryProgram.compile(source.toString(), binary.toString());
+
+        Machine expected = translate(FACTORIAL);
+        Machine loaded = new Machine(new Registers());
+        BinaryProgram.load(binary, loaded.getLabels(), loaded.getProgram());
+        Assertions.assertEquals(expected.getProgram(), loaded.getProgram());
+        Assertions.assertEquals(expected.getLabels(), loaded.getLabels());
+
+        expected.execute();
+        loaded.execute();
+        Assertions.assertEquals(expected.getRegisters(), loaded.getRegisters());
+        Assertions.assertEquals(720, loaded.getRegisters().get(EBX));
+    }
+
+    @Test
+    void resourcesRoundTrip() throws IOException {
+        File[] files = new File("./sdp23-coursework-lhickley/test/resources/").listFiles();
+        Assertions.assertNotNull(files);
+        for (File file : files) {
+            Machine expected = new Machine(new Registers());
+            new Translator(file.getPath(), InstructionFactory.getInstance())
+                    .readAndTranslate(expected.getLabels(), expected.getProgram());
+            if (expected.getProgram().stream().anyMatch(ins -> ins instanceof JnzInstruction jnz
+                    && !expected.getLabels().getAddresses().containsKey(jnz.getLabelToJumpTo()))) {
+                Assertions.assertThrows(IllegalArgumentException.class,
+                        () -> BinaryProgram.encode(expected.getProgram(), expected.getLabels()), file.getName());
+                continue;
+            }
+            Machine loaded = new Machine(new Registers());
+            BinaryProgram.decode(BinaryProgram.encode(expected.getProgram(), expected.getLabels()),
+                    loaded.getLabels(), loaded.getProgram());
+            Assertions.assertEquals(expected.getProgram(), loaded.getProgram(), file.getName());
+            Assertions.assertEquals(expected.getLabels(), loaded.getLabels(), file.getName());
+        }
+    }
+
+    @Test
+    void encodingIsRepeatable() throws IOException {
+        Machine machine = translate(FACTORIAL + "g: mov EDX 1\nh: out EDX\n");
+        Assertions.assertEquals(BinaryProgram.encode(machine.getProgram(), machine.getLabels()),
+                BinaryProgram.encode(machine.getProgram(), machine.getLabels()));
+    }
+
+    @Test
+    void labelsAreShared() throws IOException {
+        Machine machine = translate(FACTORIAL);
+        Labels labels = new Labels();
+        List<Instruction> program = new ArrayList<>();
+        BinaryProgram.decode(BinaryProgram.encode(machine.getProgram(), machine.getLabels()), labels, program);
+        Assertions.assertSame(program.get(3).getLabel(), ((JnzInstruction) program.get(5)).getLabelToJumpTo());
+    }
+
+    @Test
+    void unknownInstructionCannotBeWritten() {
+        SubInstruction sub = new SubInstruction(null, EAX, EBX);
+        JnzInstruction jnz = new JnzInstruction(null, EAX, "f");
+        Labels labels = new Labels();
+        labels.addLabel("f", 0);
+        List<Instruction> program = List.of(new SubJnzInstruction(sub, jnz, 0, 2), new MovInstruction(null, EAX, 1));
+        Exception exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryProgram.encode(program, labels));
+        Assertions.assertEquals("The instruction 'sub EAX EBX' cannot be compiled.", exception.getMessage());
+    }
+
+    @Test
+    void wrongMagicIsRejected() {
+        ByteBuffer buffer = ByteBuffer.wrap("mov EAX 1\nout EAX\n".getBytes());
+        Exception exception = Assertions.assertThrows(IOException.class,
+                () -> BinaryProgram.decode(buffer, new Labels(), new ArrayList<>()));
+        Assertions.assertEquals("The file does not hold an SML binary program.", exception.getMessage());
+    }
+
+    @Test
+    void otherVersionIsRejected() throws IOException {
+        Machine machine = translate(FACTORIAL);
+        ByteBuffer buffer = BinaryProgram.encode(machine.getProgram(), machine.getLabels());
+        buffer.putInt(4, BinaryProgram.VERSION + 1);
+        Exception exception = Assertions.assertThrows(IOException.class,
+                () -> BinaryProgram.decode(buffer, new Labels(), new ArrayList<>()));
+        Assertions.assertEquals("SML binary programs of version " + (BinaryProgram.VERSION + 1)
+                + " cannot be loaded; the version must be " + BinaryProgram.VERSION + ".", exception.getMessage());
+    }
+
+    @Test
+    void truncatedProgramIsRejected() throws IOException {
+        Machine machine = translate(FACTORIAL);
+        ByteBuffer buffer = BinaryProgram.encode(machine.getProgram(), machine.getLabels());
+        for (int length = 0; length < buffer.limit(); length++) {
+            ByteBuffer truncated = buffer.slice(0, length);
+            Assertions.assertThrows(IOException.class,
+                    () -> BinaryProgram.decode(truncated, new Labels(), new ArrayList<>()), "length " + length);
+        }
+    }
+
+    @Test
+    void compileStopsAtABadLine() throws IOException {
+        Path source = directory.resolve("bad.sml");
+        Path binary = directory.resolve("bad" + BinaryProgram.EXTENSION);
+        Files.writeString(source, "mov EAX 5\nfoo EAX\nout EAX\n");
+        Assertions.assertThrows(InstructionFormatException.class,
+                () -> BinaryProgram.compile(source.toString(), binary.toString()));
+        Assertions.assertFalse(Files.exists(binary));
+    }
+
+    @Test
+    void jnzIsWrittenAsItsTarget() throws IOException {
+        Machine machine = translate(FACTORIAL);
+        ByteBuffer buffer = BinaryProgram.encode(machine.getProgram(), machine.getLabels());
+        int jnz = buffer.limit() - 2 * 12;
+        Assertions.assertEquals(6, buffer.get(jnz));
+        Assertions.assertEquals(3, buffer.getInt(jnz + 4));
+    }
+
+    @Test
+    void jnzToAMissingLabelCannotBeWritten() throws IOException {
+        Machine machine = translate("mov EAX 1\njnz EAX nowhere\n");
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryProgram.encode(machine.getProgram(), machine.getLabels()));
+    }
+
+    @Test
+    void duplicateLabelIsRejected() throws IOException {
+        Machine machine = translate("f: mov EAX 1\ng: jnz EAX f\n");
+        ByteBuffer buffer = BinaryProgram.encode(machine.getProgram(), machine.getLabels());
+        // the label table follows the header and the strings "f" and "g", each an int length and one byte
+        int labelTable = 5 * Integer.BYTES + 2 * (Integer.BYTES + 1);
+        buffer.putInt(labelTable + 2 * Integer.BYTES, buffer.getInt(labelTable));
+        Exception exception = Assertions.assertThrows(IOException.class,
+                () -> BinaryProgram.decode(buffer, new Labels(), new ArrayList<>()));
+        Assertions.assertEquals("The SML binary program is corrupt.", exception.getMessage());
+    }
+}
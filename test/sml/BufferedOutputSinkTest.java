@@ -0,0 +1,69 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+public class BufferedOutputSinkTest {
+    private static final long[] VALUES = {
+            0, 1, -1, 9, 10, -10, 720, 2, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE,
+            1_000_000_000_000L, -999_999_999_999L
+    };
+
+    @Test
+    void writeMatchesPrintln() {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        PrintStream printStream = new PrintStream(expected);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        BufferedOutputSink sink = new BufferedOutputSink(actual);
+        for (long value : VALUES) {
+            printStream.println(value);
+            sink.write(value);
+        }
+        printStream.flush();
+        sink.flush();
+        Assertions.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    void writeBeyondBufferMatchesPrintln() {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        PrintStream printStream = new PrintStream(expected);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        BufferedOutputSink sink = new BufferedOutputSink(actual);
+        for (int i = -50_000; i < 50_000; i += 7) {
+            printStream.println(i * 31L);
+            sink.write(i * 31L);
+        }
+        printStream.flush();
+        sink.flush();
+        Assertions.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    void writeIsBufferedUntilFlush() {
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        BufferedOutputSink sink = new BufferedOutputSink(actual);
+        sink.write(42);
+        Assertions.assertEquals(0, actual.size());
+        sink.flush();
+        Assertions.assertEquals("42" + System.lineSeparator(), actual.toString());
+    }
+
+    @Test
+    void flushWritesToCurrentSystemOut() {
+        PrintStream standardOut = System.out;
+        ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
+        BufferedOutputSink sink = new BufferedOutputSink();
+        sink.write(5);
+        System.setOut(new PrintStream(outputStreamCaptor));
+        try {
+            sink.flush();
+        } finally {
+            System.setOut(standardOut);
+        }
+        Assertions.assertEquals("5" + System.lineSeparator(), outputStreamCaptor.toString());
+    }
+}
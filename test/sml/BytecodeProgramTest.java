@@ -0,0 +1,243 @@
+package sml;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sml.instruction.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sml.Registers.Register.*;
+
+public class BytecodeProgramTest {
+    private final PrintStream standardOut = System.out;
+    private final String baseTestFilePath = "./sdp23-coursework-lhickley/test/resources/";
+
+    // Registers the generated loop bodies may use; ESI holds 1 and EDI the loop counter
+    private static final Registers.Register[] BODY_REGISTERS = {EAX, EBX, ECX, EDX, ESP, EBP};
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(standardOut);
+    }
+
+    /*
+     * Runs the program on a fresh machine with the given engine, describing the output, the final registers, the number
+     * of instructions executed and any exception raised.
+     */
+    private String run(List<Instruction> program, Labels labels, Machine.Engine engine) {
+        return run(program, labels, engine, OverflowPolicy.TRAP);
+    }
+
+    private String run(List<Instruction> program, Labels labels, Machine.Engine engine, OverflowPolicy policy) {
+        Machine machine = new Machine(new Registers(), policy);
+        machine.setEngine(engine);
+        machine.getProgram().addAll(program);
+        copyLabels(labels, machine.getLabels(), program);
+        ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(outputStreamCaptor));
+        String failure = "none";
+        try {
+            machine.execute();
+        } catch (RuntimeException e) {
+            failure = e.getClass().getName() + ": " + e.getMessage();
+        } finally {
+            System.setOut(standardOut);
+        }
+        return "output:\n" + outputStreamCaptor + "registers: " + machine.getRegisters()
+                + "\ninstructions: " + machine.getInstructionsExecuted() + "\nfailure: " + failure;
+    }
+
+    private static void copyLabels(Labels from, Labels to, List<Instruction> program) {
+        for (Instruction instruction : program) {
+            if (instruction.getLabel() != null) {
+                to.addLabel(instruction.getLabel(), from.getAddress(instruction.getLabel()));
+            }
+        }
+    }
+
+    private void assertMatchesInterpreter(List<Instruction> program, Labels labels) {
+        String expected = run(program, labels, Machine.Engine.INTERPRETER);
+        Assertions.assertEquals(expected, run(program, labels, Machine.Engine.BYTECODE));
+    }
+
+    private static Registers.Register pick(Random random) {
+        return BODY_REGISTERS[random.nextInt(BODY_REGISTERS.length)];
+    }
+
+    /*
+     * Generates a program of straight-line blocks and countdown loops, whose arithmetic frequently overflows or
+     * divides by zero.
+     */
+    private static void generate(Random random, List<Instruction> program, Labels labels) {
+        int blocks = 1 + random.nextInt(4);
+        program.add(new MovInstruction(null, ESI, 1));
+        for (int block = 0; block < blocks; block++) {
+            boolean loop = random.nextBoolean();
+            if (loop) {
+                program.add(new MovInstruction(null, EDI, 1 + random.nextInt(20)));
+            }
+            int start = program.size();
+            int length = 1 + random.nextInt(6);
+            for (int i = 0; i < length; i++) {
+                String label = (i == 0 && loop) ? "L" + block : null;
+                program.add(switch (random.nextInt(6)) {
+                    case 0 -> new AddInstruction(label, pick(random), pick(random));
+                    case 1 -> new SubInstruction(label, pick(random), pick(random));
+                    case 2 -> new MulInstruction(label, pick(random), pick(random));
+                    case 3 -> new DivInstruction(label, pick(random), pick(random));
+                    case 4 -> new OutInstruction(label, pick(random));
+                    default -> new MovInstruction(label, pick(random),
+                            random.nextBoolean() ? random.nextInt(7) - 3 : random.nextInt());
+                });
+            }
+            if (loop) {
+                labels.addLabel("L" + block, start);
+                program.add(new SubInstruction(null, EDI, ESI));
+                program.add(new JnzInstruction(null, EDI, "L" + block));
+            }
+        }
+    }
+
+    @Test
+    void executeMatchesInterpreterOnGeneratedPrograms() {
+        Random random = new Random(2023);
+        for (int i = 0; i < 300; i++) {
+            List<Instruction> program = new ArrayList<>();
+            Labels labels = new Labels();
+            generate(random, program, labels);
+            assertMatchesInterpreter(program, labels);
+        }
+    }
+
+    @Test
+    void executeMatchesInterpreterOnGeneratedProgramsWhichWrapOrSaturate() {
+        Random random = new Random(2024);
+        for (int i = 0; i < 300; i++) {
+            List<Instruction> program = new ArrayList<>();
+            Labels labels = new Labels();
+            generate(random, program, labels);
+            for (OverflowPolicy policy : new OverflowPolicy[] {OverflowPolicy.WRAP, OverflowPolicy.SATURATE}) {
+                Assertions.assertEquals(run(program, labels, Machine.Engine.INTERPRETER, policy),
+                        run(program, labels, Machine.Engine.BYTECODE, policy), policy.name());
+            }
+        }
+    }
+
+    @Test
+    void executeMatchesInterpreterMixedInstructions() throws IOException {
+        Machine interpreted = new Machine(new Registers());
+        String fileLocation = new File(baseTestFilePath + "MixedInstructions.sml").getAbsolutePath();
+        new Translator(fileLocation, InstructionFactory.getInstance())
+                .readAndTranslate(interpreted.getLabels(), interpreted.getProgram());
+        assertMatchesInterpreter(interpreted.getProgram(), interpreted.getLabels());
+    }
+
+    @Test
+    void executeOverflowMatchesInterpreter() {
+        List<Instruction> program = List.of(
+                new MovInstruction(null, EAX, Integer.MIN_VALUE),
+                new MovInstruction(null, EBX, 1),
+                new SubInstruction(null, EAX, EBX));
+        assertMatchesInterpreter(program, new Labels());
+    }
+
+    @Test
+    void executeDivideByZeroMatchesInterpreter() {
+        List<Instruction> program = List.of(
+                new MovInstruction(null, EAX, 100000),
+                new OutInstruction(null, EAX),
+                new DivInstruction(null, EAX, ECX));
+        assertMatchesInterpreter(program, new Labels());
+    }
+
+    @Test
+    void executeMinimumValueDividedByMinusOne() {
+        List<Instruction> program = List.of(
+                new MovInstruction(null, EAX, Integer.MIN_VALUE),
+                new MovInstruction(null, EBX, -1),
+                new DivInstruction(null, EAX, EBX));
+        assertMatchesInterpreter(program, new Labels());
+    }
+
+    @Test
+    void compileUnknownInstruction() {
+        Instruction unknown = new Instruction(null, "nop") {
+            @Override
+            public int execute(Machine machine) {
+                return NORMAL_PROGRAM_COUNTER_UPDATE;
+            }
+
+            @Override
+            public String toString() {
+                return "nop";
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                return o == this;
+            }
+
+            @Override
+            public int hashCode() {
+                return 0;
+            }
+        };
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> BytecodeProgram.compile(new Instruction[] {unknown}, new Labels()));
+        Assertions.assertEquals("The instruction 'nop' cannot be compiled.", exception.getMessage());
+    }
+
+    @Test
+    void beginsOnlyAtTheTargetOfABackwardJump() throws IOException {
+        Machine machine = new Machine(new Registers());
+        Translator.fromSource("mov EAX 3\nmov EBX 1\nloop: sub EAX EBX\njnz EAX loop\n", InstructionFactory.getInstance())
+                .readAndTranslate(machine.getLabels(), machine.getProgram());
+        machine.link();
+        Instruction[] code = machine.getProgram().toArray(new Instruction[0]);
+        BytecodeProgram compiled = BytecodeProgram.compile(code, machine.getLabels());
+        machine.getRegisters().set(EAX, 2);
+        machine.getRegisters().set(EBX, 1);
+        Assertions.assertEquals(4, compiled.execute(machine, 2, Machine.UNLIMITED));
+        Assertions.assertEquals(0, machine.getRegisters().get(EAX));
+        Assertions.assertEquals(4, machine.getInstructionsExecuted());
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> compiled.execute(machine, 1, Machine.UNLIMITED));
+        Assertions.assertEquals("The compiled program cannot begin at address 1", exception.getMessage());
+    }
+
+    @Test
+    void isCompiledFromOnlyItsOwnProgram() throws IOException {
+        Machine machine = new Machine(new Registers());
+        Translator.fromSource("mov EAX 3\nmov EBX 1\nloop: sub EAX EBX\njnz EAX loop\n", InstructionFactory.getInstance())
+                .readAndTranslate(machine.getLabels(), machine.getProgram());
+        machine.link();
+        Instruction[] code = machine.getProgram().toArray(new Instruction[0]);
+        BytecodeProgram compiled = BytecodeProgram.compile(code, machine.getLabels());
+        Assertions.assertTrue(compiled.isCompiledFrom(code.clone(), machine.getLabels()));
+        code[0] = new MovInstruction(null, EAX, 4);
+        Assertions.assertFalse(compiled.isCompiledFrom(code, machine.getLabels()));
+        Labels moved = new Labels();
+        moved.addLabel("loop", 1);
+        Assertions.assertFalse(compiled.isCompiledFrom(machine.getProgram().toArray(new Instruction[0]), moved));
+    }
+
+    @Test
+    void recompilesAChangedProgram() throws IOException {
+        Machine machine = new Machine(new Registers());
+        machine.setEngine(Machine.Engine.BYTECODE);
+        Translator.fromSource("mov EAX 3\nmov EBX 1\nloop: sub EAX EBX\njnz EAX loop\n", InstructionFactory.getInstance())
+                .readAndTranslate(machine.getLabels(), machine.getProgram());
+        Assertions.assertEquals(8, machine.run().getInstructionsRetired());
+        Assertions.assertEquals(8, machine.run().getInstructionsRetired());
+        machine.getProgram().set(0, new MovInstruction(null, EAX, 5));
+        Assertions.assertEquals(12, machine.run().getInstructionsRetired());
+    }
+}
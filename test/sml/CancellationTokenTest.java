@@ -0,0 +1,47 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CancellationTokenTest {
+    @Test
+    void isCancelledByCancel() {
+        CancellationToken token = new CancellationToken();
+        Assertions.assertFalse(token.isCancelled());
+        Assertions.assertFalse(token.hasDeadline());
+        token.cancel();
+        Assertions.assertTrue(token.isCancelled());
+        Assertions.assertEquals("CancellationToken[cancelled = true, deadline = false]", token.toString());
+    }
+
+    @Test
+    void isCancelledByItsDeadline() throws InterruptedException {
+        CancellationToken token = CancellationToken.withTimeout(Duration.ofMillis(20));
+        Assertions.assertTrue(token.hasDeadline());
+        Assertions.assertFalse(token.isCancelled());
+        Thread.sleep(40);
+        Assertions.assertTrue(token.isCancelled());
+    }
+
+    @Test
+    void zeroTimeoutIsAlreadyCancelled() {
+        Assertions.assertTrue(CancellationToken.withTimeout(Duration.ZERO).isCancelled());
+    }
+
+    @Test
+    void hugeTimeoutNeverPasses() {
+        CancellationToken token = CancellationToken.withTimeout(Duration.ofSeconds(Long.MAX_VALUE));
+        Assertions.assertFalse(token.isCancelled());
+        token.cancel();
+        Assertions.assertTrue(token.isCancelled());
+    }
+
+    @Test
+    void timeoutMustNotBeNegative() {
+        assertThrows(IllegalArgumentException.class, () -> CancellationToken.withTimeout(Duration.ofMillis(-1)));
+    }
+}
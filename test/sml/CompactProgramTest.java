@@ -0,0 +1,114 @@
+package sml;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sml.instruction.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sml.Registers.Register.*;
+
+public class CompactProgramTest {
+    private final PrintStream standardOut = System.out;
+    private String baseTestFilePath;
+
+    @BeforeEach
+    void setUp() {
+        baseTestFilePath = "./sdp23-coursework-lhickley/test/resources/";
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(standardOut);
+    }
+
+    private Machine translate(String resource, Machine.Engine engine) throws IOException {
+        Machine machine = new Machine(new Registers());
+        machine.setEngine(engine);
+        String fileLocation = new File(baseTestFilePath + resource).getAbsolutePath();
+        Translator translator = new Translator(fileLocation, InstructionFactory.getInstance());
+        translator.readAndTranslate(machine.getLabels(), machine.getProgram());
+        return machine;
+    }
+
+    private String executeCapturingOutput(Machine machine) {
+        ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(outputStreamCaptor));
+        try {
+            machine.execute();
+        } finally {
+            System.setOut(standardOut);
+        }
+        return outputStreamCaptor.toString();
+    }
+
+    @Test
+    void executeMatchesInterpreterMixedInstructions() throws IOException {
+        Machine interpreted = translate("MixedInstructions.sml", Machine.Engine.INTERPRETER);
+        Machine compact = translate("MixedInstructions.sml", Machine.Engine.COMPACT);
+        Assertions.assertEquals(executeCapturingOutput(interpreted), executeCapturingOutput(compact));
+        Assertions.assertEquals(interpreted.getRegisters(), compact.getRegisters());
+    }
+
+    @Test
+    void executeMatchesInterpreterMixedLabels() throws IOException {
+        Machine interpreted = translate("readAndTranslateMixedInstructionMixedLabelsTestResource.txt", Machine.Engine.INTERPRETER);
+        Machine compact = translate("readAndTranslateMixedInstructionMixedLabelsTestResource.txt", Machine.Engine.COMPACT);
+        interpreted.execute();
+        compact.execute();
+        Assertions.assertEquals(interpreted.getRegisters(), compact.getRegisters());
+    }
+
+    @Test
+    void executeOverflowMatchesInterpreter() {
+        Machine interpreted = new Machine(new Registers());
+        Machine compact = new Machine(new Registers());
+        compact.setEngine(Machine.Engine.COMPACT);
+        for (Machine machine : new Machine[] {interpreted, compact}) {
+            machine.getProgram().add(new MovInstruction(null, EAX, Integer.MAX_VALUE));
+            machine.getProgram().add(new MovInstruction(null, EBX, 1));
+            machine.getProgram().add(new AddInstruction(null, EBX, ECX));
+            machine.getProgram().add(new AddInstruction(null, EAX, EBX));
+        }
+        Exception expected = assertThrows(ArithmeticException.class, interpreted::execute);
+        Exception actual = assertThrows(ArithmeticException.class, compact::execute);
+        Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+        Assertions.assertEquals(interpreted.getRegisters(), compact.getRegisters());
+    }
+
+    @Test
+    void executeDivideByZeroMatchesInterpreter() {
+        Machine interpreted = new Machine(new Registers());
+        Machine compact = new Machine(new Registers());
+        compact.setEngine(Machine.Engine.COMPACT);
+        for (Machine machine : new Machine[] {interpreted, compact}) {
+            machine.getProgram().add(new MovInstruction(null, EAX, 7));
+            machine.getProgram().add(new DivInstruction(null, EAX, EBX));
+        }
+        Exception expected = assertThrows(RuntimeException.class, interpreted::execute);
+        Exception actual = assertThrows(RuntimeException.class, compact::execute);
+        Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+        Assertions.assertEquals(7, compact.getRegisters().get(EAX));
+    }
+
+    @Test
+    void executeCountdownLoop() {
+        Machine machine = new Machine(new Registers());
+        machine.setEngine(Machine.Engine.COMPACT);
+        machine.getProgram().add(new MovInstruction(null, EAX, 10));
+        machine.getProgram().add(new MovInstruction(null, ECX, 1));
+        machine.getProgram().add(new AddInstruction("loop", EBX, EAX));
+        machine.getProgram().add(new SubInstruction(null, EAX, ECX));
+        machine.getProgram().add(new JnzInstruction(null, EAX, "loop"));
+        machine.getLabels().addLabel("loop", 2);
+        machine.execute();
+        Assertions.assertEquals(55, machine.getRegisters().get(EBX));
+        Assertions.assertEquals(0, machine.getRegisters().get(EAX));
+    }
+}
@@ -0,0 +1,142 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sml.Registers.Register.*;
+
+public class ExecutionResultTest {
+    private static final String COUNTDOWN = """
+            mov EAX 3
+            mov EBX 1
+            loop: sub EAX EBX
+            out EAX
+            jnz EAX loop
+            """;
+
+    private Machine machine;
+
+    private MemoryOutputSink output;
+
+    @BeforeEach
+    void setUp() {
+        machine = new Machine(new Registers());
+        output = new MemoryOutputSink();
+        machine.setOutput(output);
+    }
+
+    private void translate(String source) throws IOException {
+        Translator.fromSource(source, InstructionFactory.getInstance())
+                .readAndTranslate(machine.getLabels(), machine.getProgram());
+    }
+
+    @Test
+    void countsTheRunOnEachEngine() throws IOException {
+        translate(COUNTDOWN);
+        for (Machine.Engine engine : Machine.Engine.values()) {
+            machine.setEngine(engine);
+            assertCountsTheRun(machine.run());
+        }
+    }
+
+    private void assertCountsTheRun(ExecutionResult result) {
+        Assertions.assertEquals(ExecutionResult.Termination.NORMAL, result.getTermination());
+        Assertions.assertTrue(result.isCompleted());
+        Assertions.assertNull(result.getFailure());
+        Assertions.assertEquals(11, result.getInstructionsRetired());
+        Assertions.assertEquals(2, result.getBranchesTaken());
+        Assertions.assertEquals(1, result.getBranchesNotTaken());
+        Assertions.assertEquals(3, result.getOutputs());
+        Assertions.assertEquals(0, result.getRegister(EAX));
+        Assertions.assertEquals(1, result.getRegister(EBX));
+        Assertions.assertEquals(machine.getInstructionsExecuted(), result.getInstructionsRetired());
+    }
+
+    @Test
+    void countsFusedBranches() throws IOException {
+        translate("""
+                mov EAX 3
+                mov EBX 1
+                loop: sub EAX EBX
+                jnz EAX loop
+                """);
+        machine.setFusing(true);
+        ExecutionResult result = machine.run();
+        Assertions.assertEquals(1, machine.getFusions());
+        Assertions.assertEquals(8, result.getInstructionsRetired());
+        Assertions.assertEquals(2, result.getBranchesTaken());
+        Assertions.assertEquals(1, result.getBranchesNotTaken());
+    }
+
+    @Test
+    void countsTheProfiledRun() throws IOException {
+        translate(COUNTDOWN);
+        machine.setProfiling(true);
+        ExecutionResult result = machine.run();
+        Assertions.assertEquals(2, result.getBranchesTaken());
+        Assertions.assertEquals(1, result.getBranchesNotTaken());
+        Assertions.assertEquals(11, result.getInstructionsRetired());
+        Assertions.assertEquals(11, machine.getProfile().getTotalCount());
+    }
+
+    @Test
+    void returnsATrapOnEachEngine() throws IOException {
+        translate("mov EAX 6\nmov EBX 0\nout EAX\ndiv EAX EBX\nout EAX\n");
+        for (Machine.Engine engine : Machine.Engine.values()) {
+            output.clear();
+            machine.setEngine(engine);
+            assertReturnsATrap(machine.run());
+        }
+    }
+
+    private void assertReturnsATrap(ExecutionResult result) {
+        Assertions.assertEquals(ExecutionResult.Termination.TRAP, result.getTermination());
+        Assertions.assertFalse(result.isCompleted());
+        Assertions.assertNotNull(result.getFailure());
+        Assertions.assertEquals(3, result.getInstructionsRetired());
+        Assertions.assertEquals(1, result.getOutputs());
+        Assertions.assertEquals(6, result.getRegister(EAX));
+        Assertions.assertArrayEquals(new long[] {6}, output.getValues());
+    }
+
+    @Test
+    void executeStillThrowsATrap() throws IOException {
+        translate("mov EAX 6\nmov EBX 0\ndiv EAX EBX\n");
+        assertThrows(RuntimeException.class, () -> machine.execute());
+        Assertions.assertEquals(2, machine.getInstructionsExecuted());
+    }
+
+    @Test
+    void keepsTheRegistersOfItsRun() throws IOException {
+        translate(COUNTDOWN);
+        ExecutionResult result = machine.run();
+        machine.getRegisters().set(EBX, 7);
+        Assertions.assertEquals(1, result.getRegister(EBX));
+        Map<Registers.Register, Long> registers = result.getRegisters();
+        Assertions.assertEquals(1L, registers.get(EBX));
+        Assertions.assertEquals(Registers.Register.values().length, registers.size());
+        assertThrows(UnsupportedOperationException.class, () -> registers.put(EAX, 1L));
+    }
+
+    @Test
+    void timesTheRun() throws IOException {
+        translate(COUNTDOWN);
+        ExecutionResult result = machine.run();
+        Assertions.assertTrue(result.getWallNanos() > 0);
+        Assertions.assertTrue(result.getCpuNanos() >= -1);
+        Assertions.assertTrue(result.toString().startsWith("ExecutionResult[NORMAL, instructions = 11, taken = 2,"),
+                result.toString());
+    }
+
+    @Test
+    void restoresTheOutputSink() throws IOException {
+        translate(COUNTDOWN);
+        machine.run();
+        Assertions.assertSame(output, machine.getOutput());
+    }
+}
@@ -0,0 +1,87 @@
+package sml;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sml.instruction.JnzInstruction;
+import sml.instruction.SubInstruction;
+import sml.instruction.SubJnzInstruction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import static sml.Registers.Register.*;
+
+public class FuserTest {
+    private final PrintStream standardOut = System.out;
+    private Machine machine;
+    private String baseTestFilePath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        machine = new Machine(new Registers());
+        baseTestFilePath = "./sdp23-coursework-lhickley/test/resources/";
+        String fileLocation = new File(baseTestFilePath + "MixedInstructions.sml").getAbsolutePath();
+        Translator translator = new Translator(fileLocation, InstructionFactory.getInstance());
+        translator.readAndTranslate(machine.getLabels(), machine.getProgram());
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(standardOut);
+        machine = null;
+    }
+
+    @Test
+    void fuseSubFollowedByJnz() {
+        Instruction[] code = machine.getProgram().toArray(new Instruction[0]);
+        int fusions = Fuser.fuse(code, machine.getLabels());
+        Assertions.assertEquals(2, fusions);
+        Assertions.assertInstanceOf(SubJnzInstruction.class, code[4]);
+        Assertions.assertInstanceOf(SubJnzInstruction.class, code[13]);
+        Assertions.assertEquals(machine.getProgram().size(), code.length);
+    }
+
+    @Test
+    void fuseKeepsListing() {
+        Instruction[] code = machine.getProgram().toArray(new Instruction[0]);
+        Fuser.fuse(code, machine.getLabels());
+        for (int address = 0; address < code.length; address++) {
+            Assertions.assertEquals(machine.getProgram().get(address).toString(), code[address].toString());
+        }
+    }
+
+    @Test
+    void executeFusedMatchesUnfused() {
+        Machine unfused = new Machine(new Registers());
+        unfused.getProgram().addAll(machine.getProgram());
+        unfused.getLabels().addLabel("f3", machine.getLabels().getAddress("f3"));
+        unfused.getLabels().addLabel("f4", machine.getLabels().getAddress("f4"));
+        machine.setFusing(true);
+
+        ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(outputStreamCaptor));
+        machine.execute();
+        unfused.execute();
+        System.setOut(standardOut);
+
+        Assertions.assertEquals(2, machine.getFusions());
+        Assertions.assertEquals(0, unfused.getFusions());
+        Assertions.assertEquals(unfused.getRegisters(), machine.getRegisters());
+        Assertions.assertEquals("720\n2\n720\n2", outputStreamCaptor.toString().trim());
+    }
+
+    @Test
+    void fuseIgnoresJnzOnOtherRegister() {
+        Instruction[] code = {
+                new SubInstruction("loop", EAX, ECX),
+                new JnzInstruction(null, EBX, "loop")
+        };
+        Labels labels = new Labels();
+        labels.addLabel("loop", 0);
+        Assertions.assertEquals(0, Fuser.fuse(code, labels));
+    }
+}
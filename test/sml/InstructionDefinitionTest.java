@@ -0,0 +1,65 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sml.instruction.AddInstruction;
+import sml.instruction.MovInstruction;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sml.InstructionDefinition.Operand.*;
+import static sml.Registers.Register.*;
+
+public class InstructionDefinitionTest {
+
+    @Test
+    void createsInstruction() {
+        InstructionDefinition definition = InstructionDefinition.of("mov", MovInstruction.class, REGISTER, INTEGER);
+        Assertions.assertEquals(new MovInstruction("l", ECX, -7), definition.create("l", List.of("ECX", "-7")));
+        Assertions.assertEquals(List.of(REGISTER, INTEGER), definition.getOperands());
+        Assertions.assertEquals(2, definition.getArity());
+    }
+
+    @Test
+    void opcodeMustBeASingleWord() {
+        assertThrows(IllegalArgumentException.class, () -> InstructionDefinition.of("", AddInstruction.class, REGISTER, REGISTER));
+        assertThrows(IllegalArgumentException.class, () -> InstructionDefinition.of("a b", AddInstruction.class, REGISTER, REGISTER));
+        assertThrows(IllegalArgumentException.class, () -> InstructionDefinition.of("a:", AddInstruction.class, REGISTER, REGISTER));
+    }
+
+    @Test
+    void constructorMustMatchOperands() {
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> InstructionDefinition.of("add", AddInstruction.class, REGISTER, INTEGER));
+        Assertions.assertEquals("The class sml.instruction.AddInstruction has no public constructor taking "
+                + "[class java.lang.String, interface sml.RegisterName, int].", exception.getMessage());
+    }
+
+    @Test
+    void wrongNumberOfOperandsMessages() {
+        InstructionDefinition three = InstructionDefinition.of("add", AddInstruction.class, REGISTER, REGISTER);
+        InstructionFormatException exception = assertThrows(InstructionFormatException.class,
+                () -> three.create(null, List.of("EAX", "EBX", "ECX")));
+        Assertions.assertEquals("For add instructions, only two arguments are accepted after the opcode",
+                exception.getMessage());
+        Assertions.assertEquals(InstructionFormatException.Reason.WRONG_NUMBER_OF_OPERANDS, exception.getReason());
+    }
+
+    @Test
+    void rejectedOperands() {
+        InstructionDefinition definition = InstructionDefinition.of("add", RejectingInstruction.class, REGISTER, REGISTER);
+        InstructionFormatException exception = assertThrows(InstructionFormatException.class,
+                () -> definition.create(null, List.of("EAX", "EAX")));
+        Assertions.assertEquals(InstructionFormatException.Reason.INVALID_OPERANDS, exception.getReason());
+        Assertions.assertEquals("Illegal arguments passed for 'add'\n", exception.getMessage());
+    }
+
+    public static class RejectingInstruction extends AddInstruction {
+        public RejectingInstruction(String label, RegisterName result, RegisterName source) {
+            super(label, result, source);
+            if (result == source)
+                throw new IllegalArgumentException("The registers must differ");
+        }
+    }
+}
@@ -5,9 +5,22 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.junit.jupiter.api.io.TempDir;
+
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -196,5 +209,151 @@ public class InstructionFactoryTest {
         Assertions.assertEquals("class sml.instruction.JnzInstruction", instruction.getClass().toString());
     }
 
+    @Test
+    void failuresHaveReasons() {
+        args.add("EAX");
+        Assertions.assertEquals(InstructionFormatException.Reason.WRONG_NUMBER_OF_OPERANDS, assertThrows(
+                InstructionFormatException.class, () -> instructionFactory.create(null, "add", args)).getReason());
+        Assertions.assertEquals(InstructionFormatException.Reason.UNKNOWN_OPCODE, assertThrows(
+                InstructionFormatException.class, () -> instructionFactory.create(null, "test", args)).getReason());
+        args.add("x");
+        Assertions.assertEquals(InstructionFormatException.Reason.INVALID_REGISTER, assertThrows(
+                InstructionFormatException.class, () -> instructionFactory.create(null, "add", args)).getReason());
+        InstructionFormatException exception = assertThrows(
+                InstructionFormatException.class, () -> instructionFactory.create(null, "mov", args));
+        Assertions.assertEquals(InstructionFormatException.Reason.INVALID_INTEGER, exception.getReason());
+        Assertions.assertEquals("mov", exception.getOpcode());
+        Assertions.assertInstanceOf(NumberFormatException.class, exception.getCause());
+    }
+
+    @Test
+    void unknownOpcodeWithOneArgument() {
+        args.add("EAX");
+        Exception exception = assertThrows(RuntimeException.class, () -> instructionFactory.create(null, "test", args));
+        Assertions.assertEquals("Illegal arguments passed for 'test'\nUnknown instruction 'test'", exception.getMessage());
+    }
+
+    @Test
+    void standardOpcodes() {
+        Assertions.assertEquals(Set.of("add", "sub", "mul", "div", "out", "mov", "jnz"), instructionFactory.getOpcodes());
+        Assertions.assertEquals(2, instructionFactory.getDefinition("jnz").getArity());
+        Assertions.assertNull(instructionFactory.getDefinition("nop"));
+    }
+
+    /**
+     * An instruction which does nothing, added through {@link TestProvider}.
+     */
+    public static class NopInstruction extends Instruction {
+        public NopInstruction(String label) {
+            super(label, "nop");
+        }
+
+        @Override
+        public int execute(Machine machine) {
+            return NORMAL_PROGRAM_COUNTER_UPDATE;
+        }
+
+        @Override
+        public String toString() {
+            return getLabelString() + "nop";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof NopInstruction;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+
+    public static class TestProvider implements InstructionProvider {
+        @Override
+        public List<InstructionDefinition> getInstructions() {
+            return List.of(InstructionDefinition.of("nop", NopInstruction.class));
+        }
+    }
+
+    public static class ClashingProvider implements InstructionProvider {
+        @Override
+        public List<InstructionDefinition> getInstructions() {
+            return List.of(InstructionDefinition.of("out", NopInstruction.class));
+        }
+    }
+
+    private static ClassLoader providing(Path directory, Class<?> provider) throws IOException {
+        Path services = Files.createDirectories(directory.resolve("META-INF/services"));
+        Files.writeString(services.resolve(InstructionProvider.class.getName()), provider.getName() + "\n");
+        return new URLClassLoader(new URL[] {directory.toUri().toURL()}, InstructionFactoryTest.class.getClassLoader());
+    }
+
+    @Test
+    void providersAddOpcodes(@TempDir Path directory) throws IOException {
+        InstructionFactory factory = InstructionFactory.withProviders(providing(directory, TestProvider.class));
+        Instruction instruction = factory.create("a", "nop", args);
+        Assertions.assertInstanceOf(NopInstruction.class, instruction);
+        Assertions.assertEquals("a", instruction.getLabel());
+        Assertions.assertTrue(factory.getOpcodes().contains("add"));
+        Assertions.assertNull(instructionFactory.getDefinition("nop"));
+
+        Machine machine = new Machine(new Registers());
+        Translator.fromSource("mov EAX 1\nnop\nout EAX\n", factory)
+                .readAndTranslate(machine.getLabels(), machine.getProgram());
+        Assertions.assertEquals("[mov EAX 1, nop, out EAX]", machine.getProgram().toString());
+    }
 
+    @Test
+    void providersCannotRedefineOpcodes(@TempDir Path directory) throws IOException {
+        ClassLoader loader = providing(directory, ClashingProvider.class);
+        Exception exception = assertThrows(IllegalStateException.class, () -> InstructionFactory.withProviders(loader));
+        Assertions.assertEquals("The opcode 'out' is defined by both sml.instruction.OutInstruction and "
+                + NopInstruction.class.getName() + ".", exception.getMessage());
+    }
+
+    @Test
+    void concurrentTranslatorsAgree() throws Exception {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            source.append("l").append(i).append(": mov EAX ").append(i).append('\n')
+                    .append("mov EBX 1\n")
+                    .append("add EAX EBX\n")
+                    .append("sub EAX EBX\n")
+                    .append("mul EAX EBX\n")
+                    .append("div EAX EBX\n")
+                    .append("out EAX\n")
+                    .append("jnz ECX l").append(i).append('\n');
+        }
+        Labels expectedLabels = new Labels();
+        List<Instruction> expectedProgram = new ArrayList<>();
+        Translator.fromSource(source.toString(), instructionFactory).readAndTranslate(expectedLabels, expectedProgram);
+
+        int translators = 400;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Object[]>> results = new ArrayList<>();
+            for (int i = 0; i < translators; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    Labels labels = new Labels();
+                    List<Instruction> program = new ArrayList<>();
+                    InstructionFactory factory = InstructionFactory.getInstance();
+                    Translator.fromSource(source.toString(), factory).readAndTranslate(labels, program);
+                    return new Object[] {factory, labels, program};
+                }));
+            }
+            start.countDown();
+            for (Future<Object[]> result : results) {
+                Object[] translated = result.get();
+                Assertions.assertSame(instructionFactory, translated[0]);
+                Assertions.assertEquals(expectedLabels, translated[1]);
+                Assertions.assertEquals(expectedProgram, translated[2]);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(1600, expectedProgram.size());
+    }
 }
@@ -0,0 +1,69 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LexerTest {
+    private Lexer lexer;
+
+    @BeforeEach
+    void setUp() {
+        lexer = new Lexer();
+    }
+
+    @Test
+    void readLabelAndWords() {
+        lexer.reset("f3: jnz EAX f3");
+        Assertions.assertEquals("f3", lexer.nextLabel());
+        Assertions.assertEquals("jnz", lexer.next());
+        Assertions.assertEquals("EAX", lexer.next());
+        Assertions.assertEquals("f3", lexer.next());
+        Assertions.assertFalse(lexer.hasNext());
+    }
+
+    @Test
+    void noLabelLeavesTheFirstWord() {
+        lexer.reset("add EAX EBX");
+        Assertions.assertNull(lexer.nextLabel());
+        Assertions.assertEquals("add", lexer.next());
+    }
+
+    @Test
+    void opcodesAndRegistersAreConstants() {
+        lexer.reset("mov ECX 12");
+        Assertions.assertSame("mov", lexer.next());
+        Assertions.assertSame(Registers.Register.ECX.name(), lexer.next());
+        Assertions.assertEquals("12", lexer.next());
+    }
+
+    @Test
+    void whitespaceAroundWordsIsIgnored() {
+        lexer.reset(" \tout   \tEAX \t");
+        Assertions.assertEquals("out", lexer.next());
+        Assertions.assertEquals("EAX", lexer.next());
+        Assertions.assertFalse(lexer.hasNext());
+    }
+
+    @Test
+    void onlySpacesSeparateWords() {
+        lexer.reset("mov\tEAX 1");
+        Assertions.assertEquals("mov\tEAX", lexer.next());
+        Assertions.assertEquals("1", lexer.next());
+    }
+
+    @Test
+    void emptyLine() {
+        lexer.reset("   ");
+        Assertions.assertFalse(lexer.hasNext());
+        Assertions.assertNull(lexer.nextLabel());
+        Assertions.assertEquals("", lexer.next());
+    }
+
+    @Test
+    void labelOnly() {
+        lexer.reset("end:");
+        Assertions.assertEquals("end", lexer.nextLabel());
+        Assertions.assertFalse(lexer.hasNext());
+    }
+}
@@ -4,12 +4,21 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import sml.instruction.JnzInstruction;
+import sml.instruction.MovInstruction;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static sml.Registers.Register.*;
 
 public class MachineTest {
@@ -108,6 +117,16 @@ public class MachineTest {
         Assertions.assertEquals(expectedMessage, outputStreamCaptor.toString().trim());
     }
 
+    @Test
+    void executeUndefinedLabelFailsBeforeExecution() {
+        machine.getProgram().add(new MovInstruction(null, EAX, 1));
+        machine.getProgram().add(new JnzInstruction(null, EAX, "missing"));
+        Exception exception = assertThrows(RuntimeException.class, () -> machine.execute());
+        Assertions.assertEquals("The label missing does not exist!  Please check the file containing the instruction set.",
+                exception.getMessage());
+        Assertions.assertEquals(0, registers.get(EAX));
+    }
+
     @Test
     void hashCodeSymmetry() throws IOException {
         Machine m1 = new Machine(new Registers());
@@ -156,4 +175,200 @@ public class MachineTest {
         Assertions.assertFalse(m1.equals(m2));
     }
 
+    @Test
+    void instructionsExecutedIsTheSameForEveryEngine() throws IOException {
+        String fileLocation = new File(baseTestFilePath + "MixedInstructions.sml").getAbsolutePath();
+        for (Machine.Engine engine : Machine.Engine.values()) {
+            for (boolean fusing : new boolean[] {false, true}) {
+                Machine m = new Machine(new Registers());
+                m.setEngine(engine);
+                m.setFusing(fusing);
+                m.setOutput(NullOutputSink.INSTANCE);
+                new Translator(fileLocation, InstructionFactory.getInstance()).readAndTranslate(m.getLabels(), m.getProgram());
+                m.execute();
+                Assertions.assertEquals(35, m.getInstructionsExecuted(), engine + (fusing ? " fused" : ""));
+            }
+        }
+    }
+
+    private static final String COUNTDOWN = """
+            mov EAX 100
+            mov EBX 1
+            loop: sub EAX EBX
+            jnz EAX loop
+            out EAX
+            """;
+
+    private static Machine translate(String source, Machine.Engine engine, boolean fusing) throws IOException {
+        Machine m = new Machine(new Registers());
+        m.setEngine(engine);
+        m.setFusing(fusing);
+        m.setOutput(new MemoryOutputSink());
+        Translator.fromSource(source, InstructionFactory.getInstance()).readAndTranslate(m.getLabels(), m.getProgram());
+        return m;
+    }
+
+    @Test
+    void budgetPausesAndResumesOnEveryEngine() throws IOException {
+        for (Machine.Engine engine : Machine.Engine.values()) {
+            for (boolean fusing : new boolean[] {false, true}) {
+                String name = engine + (fusing ? " fused" : "");
+                Machine m = translate(COUNTDOWN, engine, fusing);
+                ExecutionResult slice = m.run(10);
+                long retired = 0;
+                long outputs = 0;
+                int slices = 1;
+                while (slice.getTermination() == ExecutionResult.Termination.BUDGET_EXHAUSTED) {
+                    Assertions.assertTrue(m.isPaused(), name);
+                    Assertions.assertEquals(10, slice.getInstructionsRetired(), name);
+                    Assertions.assertEquals(0, slice.getOutputs(), name);
+                    retired += slice.getInstructionsRetired();
+                    slice = m.resume(10);
+                    slices++;
+                }
+                retired += slice.getInstructionsRetired();
+                outputs += slice.getOutputs();
+                Assertions.assertEquals(ExecutionResult.Termination.NORMAL, slice.getTermination(), name);
+                Assertions.assertFalse(m.isPaused(), name);
+                Assertions.assertEquals(203, retired, name);
+                Assertions.assertEquals(1, outputs, name);
+                Assertions.assertEquals(21, slices, name);
+                Assertions.assertEquals(0, m.getRegisters().get(EAX), name);
+                Assertions.assertEquals(1, m.getRegisters().get(EBX), name);
+            }
+        }
+    }
+
+    @Test
+    void budgetStopsAnEndlessLoopOnEveryEngine() throws IOException {
+        for (Machine.Engine engine : Machine.Engine.values()) {
+            Machine m = translate("mov EAX 1\nloop: jnz EAX loop\n", engine, false);
+            ExecutionResult result = m.run(1_000);
+            Assertions.assertEquals(ExecutionResult.Termination.BUDGET_EXHAUSTED, result.getTermination(), engine.name());
+            Assertions.assertEquals(1_000, result.getInstructionsRetired(), engine.name());
+            Assertions.assertEquals(999, result.getBranchesTaken(), engine.name());
+            result = m.resume(1_000_000);
+            Assertions.assertEquals(1_000_000, result.getInstructionsRetired(), engine.name());
+            Assertions.assertTrue(m.isPaused(), engine.name());
+        }
+    }
+
+    @Test
+    void budgetIsOnlyCheckedOnBackwardJumps() throws IOException {
+        Machine m = translate("mov EAX 1\njnz EAX end\nmov EBX 2\nend: out EAX\n", Machine.Engine.INTERPRETER, false);
+        ExecutionResult result = m.run(1);
+        Assertions.assertEquals(ExecutionResult.Termination.NORMAL, result.getTermination());
+        Assertions.assertEquals(3, result.getInstructionsRetired());
+    }
+
+    @Test
+    void budgetPausesAProfiledRun() throws IOException {
+        Machine m = translate(COUNTDOWN, Machine.Engine.INTERPRETER, false);
+        m.setProfiling(true);
+        Assertions.assertEquals(ExecutionResult.Termination.BUDGET_EXHAUSTED, m.run(50).getTermination());
+        Assertions.assertEquals(50, m.getProfile().getTotalCount());
+        Assertions.assertTrue(m.resume(Machine.UNLIMITED).isCompleted());
+        Assertions.assertEquals(153, m.getProfile().getTotalCount());
+    }
+
+    @Test
+    void runStartsAgainAfterAPause() throws IOException {
+        Machine m = translate(COUNTDOWN, Machine.Engine.COMPACT, false);
+        m.run(10);
+        Assertions.assertTrue(m.isPaused());
+        ExecutionResult result = m.run();
+        Assertions.assertTrue(result.isCompleted());
+        Assertions.assertEquals(203, result.getInstructionsRetired());
+        Assertions.assertFalse(m.isPaused());
+    }
+
+    @Test
+    void resumeNeedsAPausedRun() throws IOException {
+        Machine m = translate(COUNTDOWN, Machine.Engine.INTERPRETER, false);
+        Exception exception = assertThrows(IllegalStateException.class, () -> m.resume(10));
+        Assertions.assertEquals("There is no paused run to resume", exception.getMessage());
+        m.run();
+        assertThrows(IllegalStateException.class, () -> m.resume(10));
+    }
+
+    @Test
+    void budgetMustBePositive() throws IOException {
+        Machine m = translate(COUNTDOWN, Machine.Engine.INTERPRETER, false);
+        assertThrows(IllegalArgumentException.class, () -> m.run(0));
+    }
+
+    private static final String ENDLESS = "mov EAX 1\nmov EBX 0\nloop: add EBX EAX\njnz EAX loop\n";
+
+    @Test
+    void cancelStopsAnEndlessLoopOnEveryEngine() throws Exception {
+        for (Machine.Engine engine : Machine.Engine.values()) {
+            Machine m = translate(ENDLESS, engine, false);
+            CancellationToken token = new CancellationToken();
+            CompletableFuture<ExecutionResult> run = CompletableFuture.supplyAsync(() -> m.run(Machine.UNLIMITED, token));
+            Thread.sleep(20);
+            token.cancel();
+            ExecutionResult result = run.get(1, TimeUnit.MINUTES);
+            Assertions.assertEquals(ExecutionResult.Termination.CANCELLED, result.getTermination(), engine.name());
+            Assertions.assertNull(result.getFailure(), engine.name());
+            Assertions.assertTrue(m.isPaused(), engine.name());
+            // every turn of the loop adds one to EBX, so the registers show how far it got
+            Assertions.assertEquals(2 + 2 * result.getRegister(EBX), result.getInstructionsRetired(), engine.name());
+            Assertions.assertEquals(result.getRegister(EBX), m.getRegisters().get(EBX), engine.name());
+        }
+    }
+
+    @Test
+    void timeoutStopsAnEndlessLoop() throws IOException {
+        Machine m = translate(ENDLESS, Machine.Engine.BYTECODE, false);
+        ExecutionResult result = m.run(Machine.UNLIMITED, CancellationToken.withTimeout(Duration.ofMillis(20)));
+        Assertions.assertEquals(ExecutionResult.Termination.CANCELLED, result.getTermination());
+        Assertions.assertTrue(result.getWallNanos() >= Duration.ofMillis(20).toNanos());
+    }
+
+    @Test
+    void interruptStopsAnEndlessLoopOnEveryEngine() throws Exception {
+        for (Machine.Engine engine : Machine.Engine.values()) {
+            Machine m = translate(ENDLESS, engine, false);
+            AtomicReference<Exception> failure = new AtomicReference<>();
+            AtomicBoolean interrupted = new AtomicBoolean();
+            Thread thread = new Thread(() -> {
+                try {
+                    m.execute();
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+                interrupted.set(Thread.currentThread().isInterrupted());
+            });
+            thread.start();
+            Thread.sleep(20);
+            thread.interrupt();
+            thread.join(TimeUnit.MINUTES.toMillis(1));
+            Assertions.assertFalse(thread.isAlive(), engine.name());
+            Assertions.assertInstanceOf(CancellationException.class, failure.get(), engine.name());
+            Assertions.assertTrue(failure.get().getMessage().startsWith("The execution was interrupted after "));
+            Assertions.assertTrue(interrupted.get(), engine.name());
+        }
+    }
+
+    @Test
+    void cancelledRunCanBeResumed() throws IOException {
+        Machine m = translate(COUNTDOWN, Machine.Engine.COMPACT, false);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        ExecutionResult result = m.run(Machine.UNLIMITED, token);
+        Assertions.assertEquals(ExecutionResult.Termination.CANCELLED, result.getTermination());
+        Assertions.assertEquals(4, result.getInstructionsRetired());
+        Assertions.assertEquals(99, result.getRegister(EAX));
+        result = m.resume(Machine.UNLIMITED);
+        Assertions.assertTrue(result.isCompleted());
+        Assertions.assertEquals(199, result.getInstructionsRetired());
+    }
+
+    @Test
+    void cancelledTokenDoesNotStopStraightLineCode() throws IOException {
+        Machine m = translate("mov EAX 1\nout EAX\n", Machine.Engine.INTERPRETER, false);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        Assertions.assertTrue(m.run(Machine.UNLIMITED, token).isCompleted());
+    }
 }
@@ -0,0 +1,73 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MappedLineReaderTest {
+    @TempDir
+    Path directory;
+
+    private List<String> readMapped(String text, int window) throws IOException {
+        Path file = directory.resolve("source.sml");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>();
+        try (var reader = new MappedLineReader(file, window)) {
+            CharSequence line;
+            while ((line = reader.readLine()) != null)
+                lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    private static List<String> readBuffered(String text) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (var reader = new BufferedReader(new StringReader(text))) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                lines.add(line);
+        }
+        return lines;
+    }
+
+    @Test
+    void lineTerminatorsMatchBufferedReader() throws IOException {
+        String[] texts = {
+                "", "\n", "a", "a\n", "a\nb", "a\r\nb\r\n", "a\rb\r", "a\n\nb", "\r\n\r\n", "a\r\r\nb"
+        };
+        for (String text : texts) {
+            for (int window : new int[] {1, 2, 3, 64}) {
+                if (text.lines().anyMatch(line -> line.length() >= window))
+                    continue;
+                Assertions.assertEquals(readBuffered(text), readMapped(text, window), text + " / " + window);
+            }
+        }
+    }
+
+    @Test
+    void linesSpanWindows() throws IOException {
+        String text = "mov EAX 1\r\nmov EBX 2\r\nadd EAX EBX\nout EAX";
+        for (int window = 12; window <= text.length() + 1; window++)
+            Assertions.assertEquals(readBuffered(text), readMapped(text, window), "window " + window);
+    }
+
+    @Test
+    void decodesUtf8() throws IOException {
+        String text = "l\u00e9: out EAX\n\u20ac: out EBX\n";
+        Assertions.assertEquals(readBuffered(text), readMapped(text, 64));
+    }
+
+    @Test
+    void lineLongerThanWindow() {
+        Assertions.assertThrows(IOException.class, () -> readMapped("mov EAX 1\nmov EAX 1234567\n", 12));
+    }
+}
@@ -0,0 +1,34 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MemoryOutputSinkTest {
+
+    @Test
+    void writeKeepsValuesInOrder() {
+        MemoryOutputSink sink = new MemoryOutputSink();
+        for (int i = 0; i < 100; i++) {
+            sink.write(i);
+        }
+        Assertions.assertEquals(100, sink.size());
+        Assertions.assertEquals(99, sink.getValues()[99]);
+    }
+
+    @Test
+    void toStringMatchesConsoleOutput() {
+        MemoryOutputSink sink = new MemoryOutputSink();
+        sink.write(720);
+        sink.write(-2);
+        Assertions.assertEquals("720" + System.lineSeparator() + "-2" + System.lineSeparator(), sink.toString());
+    }
+
+    @Test
+    void clearRemovesValues() {
+        MemoryOutputSink sink = new MemoryOutputSink();
+        sink.write(1);
+        sink.clear();
+        Assertions.assertEquals(0, sink.size());
+        Assertions.assertEquals("", sink.toString());
+    }
+}
@@ -0,0 +1,218 @@
+package sml;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sml.instruction.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sml.Registers.Register.*;
+
+public class OverflowPolicyTest {
+    private final PrintStream standardOut = System.out;
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(standardOut);
+    }
+
+    /*
+     * A machine whose program doubles EAX, starting from the largest int, and outputs the result.
+     */
+    private Machine doubling(OverflowPolicy policy) {
+        Machine machine = new Machine(new Registers(), policy);
+        machine.getProgram().add(new MovInstruction(null, EAX, Integer.MAX_VALUE));
+        machine.getProgram().add(new MovInstruction(null, EBX, 2));
+        machine.getProgram().add(new MulInstruction(null, EAX, EBX));
+        machine.getProgram().add(new OutInstruction(null, EAX));
+        return machine;
+    }
+
+    private String executeCapturingOutput(Machine machine) {
+        ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(outputStreamCaptor));
+        machine.execute();
+        System.setOut(standardOut);
+        return outputStreamCaptor.toString().trim();
+    }
+
+    @Test
+    void trapIsDefault() {
+        Machine machine = new Machine(new Registers());
+        Assertions.assertEquals(OverflowPolicy.TRAP, machine.getOverflowPolicy());
+    }
+
+    @Test
+    void trapThrows() {
+        Machine machine = doubling(OverflowPolicy.TRAP);
+        assertThrows(ArithmeticException.class, machine::execute);
+    }
+
+    @Test
+    void wrapWrapsAround() {
+        Assertions.assertEquals("-2", executeCapturingOutput(doubling(OverflowPolicy.WRAP)));
+    }
+
+    @Test
+    void saturateClamps() {
+        Assertions.assertEquals(String.valueOf(Integer.MAX_VALUE), executeCapturingOutput(doubling(OverflowPolicy.SATURATE)));
+    }
+
+    @Test
+    void widenKeepsFullValue() {
+        Machine machine = doubling(OverflowPolicy.WIDEN);
+        Assertions.assertEquals("4294967294", executeCapturingOutput(machine));
+        Assertions.assertEquals(4294967294L, machine.getRegisters().getLong(EAX));
+    }
+
+    @Test
+    void widenJumpsOnValuesBeyondInt() {
+        Machine machine = new Machine(new Registers(), OverflowPolicy.WIDEN);
+        machine.getProgram().add(new MovInstruction(null, EAX, 65536));
+        machine.getProgram().add(new MulInstruction(null, EAX, EAX));
+        machine.getProgram().add(new JnzInstruction(null, EAX, "end"));
+        machine.getProgram().add(new MovInstruction(null, EBX, 1));
+        machine.getProgram().add(new MovInstruction("end", ECX, 1));
+        machine.getLabels().addLabel("end", 4);
+        machine.execute();
+        Assertions.assertEquals(0, machine.getRegisters().get(EBX));
+    }
+
+    @Test
+    void specialiseKeepsListing() {
+        Instruction add = new AddInstruction("test", EAX, EBX);
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            Assertions.assertEquals(add.toString(), policy.specialise(add).toString());
+        }
+    }
+
+    @Test
+    void specialiseLeavesOtherInstructions() {
+        Instruction mov = new MovInstruction(null, EAX, 1);
+        Instruction div = new DivInstruction(null, EAX, EBX);
+        Assertions.assertSame(mov, OverflowPolicy.WIDEN.specialise(mov));
+        Assertions.assertSame(div, OverflowPolicy.WRAP.specialise(div));
+        Assertions.assertSame(div, OverflowPolicy.TRAP.specialise(div));
+    }
+
+    /*
+     * A machine whose program overflows each way with add, sub and mul, divides the smallest int by -1, and counts a
+     * loop down with a sub which the fuser may join to its jnz.
+     */
+    private Machine overflowing(OverflowPolicy policy, Machine.Engine engine, boolean fusing) {
+        Machine machine = new Machine(new Registers(), policy);
+        machine.setEngine(engine);
+        machine.setFusing(fusing);
+        machine.setOutput(new MemoryOutputSink());
+        machine.getProgram().add(new MovInstruction(null, EAX, Integer.MAX_VALUE));
+        machine.getProgram().add(new MovInstruction(null, EBX, Integer.MIN_VALUE));
+        machine.getProgram().add(new MovInstruction(null, ECX, -1));
+        machine.getProgram().add(new MovInstruction(null, EDX, 3));
+        machine.getProgram().add(new MovInstruction(null, ESI, 1));
+        machine.getProgram().add(new AddInstruction("loop", EAX, EDX));
+        machine.getProgram().add(new OutInstruction(null, EAX));
+        machine.getProgram().add(new SubInstruction(null, EBX, EDX));
+        machine.getProgram().add(new OutInstruction(null, EBX));
+        machine.getProgram().add(new MulInstruction(null, EAX, EDX));
+        machine.getProgram().add(new OutInstruction(null, EAX));
+        machine.getProgram().add(new MulInstruction(null, EBX, EDX));
+        machine.getProgram().add(new OutInstruction(null, EBX));
+        machine.getProgram().add(new MovInstruction(null, EBP, Integer.MIN_VALUE));
+        machine.getProgram().add(new DivInstruction(null, EBP, ECX));
+        machine.getProgram().add(new OutInstruction(null, EBP));
+        machine.getProgram().add(new SubInstruction(null, EDX, ESI));
+        machine.getProgram().add(new JnzInstruction(null, EDX, "loop"));
+        machine.getLabels().addLabel("loop", 5);
+        return machine;
+    }
+
+    @Test
+    void everyEngineWrapsAndSaturates() {
+        for (OverflowPolicy policy : new OverflowPolicy[] {OverflowPolicy.WRAP, OverflowPolicy.SATURATE}) {
+            for (boolean fusing : new boolean[] {false, true}) {
+                Machine interpreted = overflowing(policy, Machine.Engine.INTERPRETER, fusing);
+                interpreted.execute();
+                for (Machine.Engine engine : new Machine.Engine[] {Machine.Engine.COMPACT, Machine.Engine.BYTECODE}) {
+                    Machine machine = overflowing(policy, engine, fusing);
+                    machine.execute();
+                    String name = policy + " " + engine + (fusing ? " fused" : "");
+                    Assertions.assertEquals(interpreted.getOutput().toString(), machine.getOutput().toString(), name);
+                    Assertions.assertEquals(interpreted.getRegisters(), machine.getRegisters(), name);
+                    Assertions.assertEquals(interpreted.getInstructionsExecuted(), machine.getInstructionsExecuted(),
+                            name);
+                }
+            }
+        }
+    }
+
+    @Test
+    void everyEngineDividesByZeroUnderSaturate() {
+        for (Machine.Engine engine : Machine.Engine.values()) {
+            Machine machine = new Machine(new Registers(), OverflowPolicy.SATURATE);
+            machine.setEngine(engine);
+            machine.getProgram().add(new MovInstruction(null, EAX, 7));
+            machine.getProgram().add(new DivInstruction(null, EAX, EBX));
+            ExecutionResult result = machine.run();
+            Assertions.assertEquals(ExecutionResult.Termination.TRAP, result.getTermination(), engine.name());
+            Assertions.assertEquals(1, result.getInstructionsRetired(), engine.name());
+            Assertions.assertEquals(7, machine.getRegisters().get(EAX), engine.name());
+        }
+    }
+
+    @Test
+    void onlyTheInterpreterWidens() {
+        Machine machine = doubling(OverflowPolicy.WIDEN);
+        for (Machine.Engine engine : new Machine.Engine[] {Machine.Engine.COMPACT, Machine.Engine.BYTECODE}) {
+            Exception exception = assertThrows(UnsupportedOperationException.class, () -> machine.setEngine(engine));
+            Assertions.assertEquals("Only the INTERPRETER engine supports the WIDEN overflow policy",
+                    exception.getMessage());
+        }
+        Assertions.assertEquals(Machine.Engine.INTERPRETER, machine.getEngine());
+    }
+
+    @Test
+    void fusionHappensUnderEveryPolicy() {
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            Machine machine = new Machine(new Registers(), policy);
+            machine.getProgram().add(new MovInstruction(null, EAX, 5));
+            machine.getProgram().add(new MovInstruction(null, EBX, 1));
+            machine.getProgram().add(new SubInstruction("loop", EAX, EBX));
+            machine.getProgram().add(new JnzInstruction(null, EAX, "loop"));
+            machine.getLabels().addLabel("loop", 2);
+            machine.setFusing(true);
+            machine.setOutput(NullOutputSink.INSTANCE);
+            machine.execute();
+            Assertions.assertEquals(1, machine.getFusions(), policy.name());
+            Assertions.assertEquals(12, machine.getInstructionsExecuted(), policy.name());
+            Assertions.assertEquals(0, machine.getRegisters().get(EAX), policy.name());
+        }
+    }
+
+    @Test
+    void fusedSubFollowsThePolicy() {
+        Machine machine = new Machine(new Registers(), OverflowPolicy.SATURATE);
+        machine.getProgram().add(new MovInstruction(null, EAX, Integer.MIN_VALUE));
+        machine.getProgram().add(new MovInstruction(null, EBX, 1));
+        machine.getProgram().add(new SubInstruction(null, EAX, EBX));
+        machine.getProgram().add(new JnzInstruction(null, EAX, "end"));
+        machine.getProgram().add(new MovInstruction("end", ECX, 1));
+        machine.getLabels().addLabel("end", 4);
+        machine.setFusing(true);
+        machine.execute();
+        Assertions.assertEquals(1, machine.getFusions());
+        Assertions.assertEquals(Integer.MIN_VALUE, machine.getRegisters().get(EAX));
+    }
+
+    @Test
+    void specialiseAFusedSub() {
+        SubJnzInstruction fused = new SubJnzInstruction(new SubInstruction(null, EAX, EBX),
+                new JnzInstruction(null, EAX, "loop"), 2, 0);
+        Assertions.assertSame(fused, OverflowPolicy.TRAP.specialise(fused));
+        Instruction specialised = OverflowPolicy.WIDEN.specialise(fused);
+        Assertions.assertInstanceOf(WideningInstruction.class, ((SubJnzInstruction) specialised).getSubtraction());
+        Assertions.assertEquals(fused.toString(), specialised.toString());
+    }
+}
@@ -0,0 +1,129 @@
+package sml;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelTranslationTest {
+    private static ForkJoinPool pool;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    private Path write(String source) throws IOException {
+        Path file = directory.resolve("source.sml");
+        Files.writeString(file, source, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static String generate(int lines) {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            if (i % 7 == 0)
+                source.append("l").append(i % 500).append(": ");
+            switch (i % 4) {
+                case 0 -> source.append("mov EAX ").append(i);
+                case 1 -> source.append("add EAX EBX");
+                case 2 -> source.append("jnz EAX l").append(i % 500);
+                default -> source.append("out EAX");
+            }
+            source.append((i % 3 == 0) ? "\r\n" : "\n");
+            if (i % 11 == 0)
+                source.append('\n');
+        }
+        return source.toString();
+    }
+
+    /*
+     * Translates the file both line by line and in the given number of chunks, checking that the program, labels and
+     * reported errors are the same.
+     */
+    private static void assertSameTranslation(Path file, int chunks) throws IOException {
+        PrintStream out = System.out;
+        ByteArrayOutputStream expectedOutput = new ByteArrayOutputStream();
+        ByteArrayOutputStream actualOutput = new ByteArrayOutputStream();
+        Machine expected = new Machine(new Registers());
+        Machine actual = new Machine(new Registers());
+        try {
+            System.setOut(new PrintStream(expectedOutput));
+            new Translator(file.toString(), InstructionFactory.getInstance())
+                    .readAndTranslate(expected.getLabels(), expected.getProgram());
+            System.setOut(new PrintStream(actualOutput));
+            ParallelTranslation.translate(file, InstructionFactory.getInstance(), pool, true, false, chunks,
+                    actual.getLabels(), actual.getProgram());
+        } finally {
+            System.setOut(out);
+        }
+        Assertions.assertEquals(expected.getProgram(), actual.getProgram(), chunks + " chunks");
+        Assertions.assertEquals(expected.getLabels(), actual.getLabels(), chunks + " chunks");
+        Assertions.assertEquals(expectedOutput.toString(), actualOutput.toString(), chunks + " chunks");
+    }
+
+    @Test
+    void chunksMatchLineByLineTranslation() throws IOException {
+        Path file = write(generate(5000));
+        for (int chunks = 1; chunks <= 40; chunks += 3)
+            assertSameTranslation(file, chunks);
+    }
+
+    @Test
+    void failureInAChunkDiscardsTheLaterChunks() throws IOException {
+        String source = generate(2000);
+        int middle = source.indexOf('\n', source.length() / 2) + 1;
+        Path file = write(source.substring(0, middle) + "bad EAX EBX\n" + source.substring(middle));
+        for (int chunks = 1; chunks <= 16; chunks++)
+            assertSameTranslation(file, chunks);
+    }
+
+    @Test
+    void emptyFile() throws IOException {
+        assertSameTranslation(write(""), 4);
+    }
+
+    @Test
+    void largeFileThroughTranslator() throws IOException {
+        Path file = write(generate(200_000));
+        Machine expected = new Machine(new Registers());
+        Machine actual = new Machine(new Registers());
+        PrintStream out = System.out;
+        try {
+            System.setOut(new PrintStream(new ByteArrayOutputStream()));
+            Translator.mapped(file.toString(), InstructionFactory.getInstance())
+                    .readAndTranslate(expected.getLabels(), expected.getProgram());
+            Translator.parallel(file.toString(), InstructionFactory.getInstance(), pool)
+                    .readAndTranslate(actual.getLabels(), actual.getProgram());
+        } finally {
+            System.setOut(out);
+        }
+        Assertions.assertEquals(expected.getProgram(), actual.getProgram());
+        Assertions.assertEquals(expected.getLabels(), actual.getLabels());
+    }
+
+    @Test
+    void missingFile() {
+        Translator translator = Translator.parallel(directory.resolve("missing.sml").toString(),
+                InstructionFactory.getInstance(), pool);
+        Machine machine = new Machine(new Registers());
+        Assertions.assertThrows(IOException.class, () -> translator.readAndTranslate(machine.getLabels(), machine.getProgram()));
+    }
+}
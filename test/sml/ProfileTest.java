@@ -0,0 +1,126 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ProfileTest {
+    private static final String COUNTDOWN = """
+            mov EAX 3
+            mov EBX 1
+            loop: sub EAX EBX
+            jnz EAX loop
+            out EAX
+            """;
+
+    private Machine machine;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        machine = new Machine(new Registers());
+        machine.setOutput(new MemoryOutputSink());
+        Translator.fromSource(COUNTDOWN, InstructionFactory.getInstance())
+                .readAndTranslate(machine.getLabels(), machine.getProgram());
+    }
+
+    @Test
+    void noProfileUnlessProfiling() {
+        machine.execute();
+        Assertions.assertNull(machine.getProfile());
+    }
+
+    @Test
+    void countsEachAddress() {
+        machine.setProfiling(true);
+        machine.execute();
+        Profile profile = machine.getProfile();
+        Assertions.assertEquals(5, profile.size());
+        long[] expected = {1, 1, 3, 3, 1};
+        for (int address = 0; address < expected.length; address++) {
+            Assertions.assertEquals(expected[address], profile.getCount(address), "address " + address);
+            Assertions.assertTrue(profile.getNanos(address) >= 0);
+        }
+        Assertions.assertEquals(machine.getInstructionsExecuted(), profile.getTotalCount());
+    }
+
+    @Test
+    void countsEachOpcode() {
+        machine.setProfiling(true);
+        machine.execute();
+        Profile profile = machine.getProfile();
+        Assertions.assertEquals(List.of("mov", "sub", "jnz", "out"), profile.getOpcodes());
+        Assertions.assertEquals(2, profile.getCount("mov"));
+        Assertions.assertEquals(3, profile.getCount("sub"));
+        Assertions.assertEquals(3, profile.getCount("jnz"));
+        Assertions.assertEquals(1, profile.getCount("out"));
+        Assertions.assertEquals(0, profile.getCount("div"));
+        Assertions.assertEquals(profile.getNanos(2), profile.getNanos("sub"));
+    }
+
+    @Test
+    void locationsFollowLabels() {
+        machine.setProfiling(true);
+        machine.execute();
+        Profile profile = machine.getProfile();
+        Assertions.assertEquals("@0", profile.getLocation(0));
+        Assertions.assertEquals("@1", profile.getLocation(1));
+        Assertions.assertEquals("loop", profile.getLocation(2));
+        Assertions.assertEquals("loop+1", profile.getLocation(3));
+        Assertions.assertEquals("loop+2", profile.getLocation(4));
+    }
+
+    @Test
+    void reportListsHotSpots() {
+        machine.setProfiling(true);
+        machine.execute();
+        String report = machine.getProfile().report(2);
+        Assertions.assertTrue(report.startsWith("9 instructions executed in "), report);
+        String[] lines = report.split("\n");
+        Assertions.assertTrue(lines[1].contains("location"), report);
+        Assertions.assertTrue(lines[4].isBlank(), report); // only two addresses are listed
+        for (String opcode : List.of("mov", "sub", "jnz", "out")) {
+            Assertions.assertTrue(report.lines().anyMatch(line -> line.trim().startsWith(opcode + " ")), report);
+        }
+        Assertions.assertTrue(machine.getProfile().report(5).contains("loop+1           jnz EAX loop"),
+                machine.getProfile().report(5));
+    }
+
+    @Test
+    void fusedInstructionsAreCountedAtTheirFirstAddress() {
+        machine.setProfiling(true);
+        machine.setFusing(true);
+        machine.execute();
+        Profile profile = machine.getProfile();
+        Assertions.assertEquals(3, profile.getCount(2));
+        Assertions.assertEquals(0, profile.getCount(3));
+        Assertions.assertEquals(9, machine.getInstructionsExecuted());
+    }
+
+    @Test
+    void profileIsKeptWhenAnInstructionFails() throws IOException {
+        Translator.fromSource("mov EAX 1\nmov EBX 0\ndiv EAX EBX\nout EAX\n", InstructionFactory.getInstance())
+                .readAndTranslate(machine.getLabels(), machine.getProgram());
+        machine.setProfiling(true);
+        assertThrows(RuntimeException.class, () -> machine.execute());
+        Profile profile = machine.getProfile();
+        Assertions.assertEquals(2, profile.getTotalCount());
+        Assertions.assertEquals(0, profile.getCount(2));
+    }
+
+    @Test
+    void onlyTheInterpreterProfiles() {
+        machine.setProfiling(true);
+        Exception exception = assertThrows(UnsupportedOperationException.class,
+                () -> machine.setEngine(Machine.Engine.COMPACT));
+        Assertions.assertEquals("Only the INTERPRETER engine can profile programs", exception.getMessage());
+        machine.setProfiling(false);
+        machine.setEngine(Machine.Engine.BYTECODE);
+        exception = assertThrows(UnsupportedOperationException.class, () -> machine.setProfiling(true));
+        Assertions.assertEquals("Only the INTERPRETER engine can profile programs", exception.getMessage());
+    }
+}
@@ -0,0 +1,168 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static sml.Registers.Register.*;
+
+public class ProgramCacheTest {
+    private static final String FACTORIAL = """
+            mov EAX 6
+            mov EBX 1
+            mov ECX 1
+            f: mul EBX EAX
+            sub EAX ECX
+            jnz EAX f
+            out EBX
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void hitsAndMisses() {
+        ProgramCache cache = new ProgramCache(10, 1000);
+        TranslatedProgram first = cache.getSource(FACTORIAL);
+        TranslatedProgram second = cache.getSource(FACTORIAL);
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(0, cache.getEvictions());
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals(7, cache.getInstructions());
+    }
+
+    @Test
+    void filesWithTheSameContentsShareAProgram() throws IOException {
+        Path a = Files.writeString(directory.resolve("a.sml"), FACTORIAL);
+        Path b = Files.writeString(directory.resolve("b.sml"), FACTORIAL);
+        ProgramCache cache = new ProgramCache(10, 1000);
+        Assertions.assertSame(cache.get(a.toString()), cache.get(b.toString()));
+        Assertions.assertSame(cache.get(a.toString()), cache.getSource(FACTORIAL));
+        Assertions.assertEquals(3, cache.getHits());
+    }
+
+    @Test
+    void programIsTheTranslation() throws IOException {
+        Machine expected = new Machine(new Registers());
+        Translator.fromSource(FACTORIAL, InstructionFactory.getInstance())
+                .readAndTranslate(expected.getLabels(), expected.getProgram());
+        Machine machine = new Machine(new Registers());
+        new ProgramCache(10, 1000).getSource(FACTORIAL).loadInto(machine);
+        Assertions.assertEquals(expected.getProgram(), machine.getProgram());
+        Assertions.assertEquals(expected.getLabels(), machine.getLabels());
+    }
+
+    @Test
+    void leastRecentlyUsedEvictedByCount() {
+        ProgramCache cache = new ProgramCache(2, 1000);
+        TranslatedProgram a = cache.getSource("out EAX\n");
+        cache.getSource("out EBX\n");
+        cache.getSource("out EAX\n");
+        cache.getSource("out ECX\n");
+        Assertions.assertEquals(1, cache.getEvictions());
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertSame(a, cache.getSource("out EAX\n"));
+        cache.getSource("out EBX\n");
+        Assertions.assertEquals(4, cache.getMisses());
+        Assertions.assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    void leastRecentlyUsedEvictedBySize() {
+        ProgramCache cache = new ProgramCache(10, 10);
+        cache.getSource(FACTORIAL);
+        cache.getSource("out EAX\nout EBX\n");
+        cache.getSource("mov EAX 1\nmov EBX 2\nout EAX\n");
+        Assertions.assertEquals(1, cache.getEvictions());
+        Assertions.assertEquals(5, cache.getInstructions());
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    @Test
+    void programTooLargeIsNotKept() {
+        ProgramCache cache = new ProgramCache(10, 5);
+        cache.getSource("out EAX\n");
+        TranslatedProgram program = cache.getSource(FACTORIAL);
+        Assertions.assertEquals(7, program.size());
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals(0, cache.getEvictions());
+        Assertions.assertNotSame(program, cache.getSource(FACTORIAL));
+    }
+
+    @Test
+    void sourceWhichCannotBeTranslatedIsNotKept() {
+        ProgramCache cache = new ProgramCache(10, 1000);
+        String source = "mov EAX 5\nfoo EAX\nout EAX\n";
+        InstructionFormatException first = Assertions.assertThrows(InstructionFormatException.class,
+                () -> cache.getSource(source));
+        InstructionFormatException second = Assertions.assertThrows(InstructionFormatException.class,
+                () -> cache.getSource(source));
+        Assertions.assertEquals("foo", first.getOpcode());
+        Assertions.assertEquals(first.getMessage(), second.getMessage());
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(0, cache.getHits());
+        Assertions.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void sourceWithADuplicateLabelIsNotKept() {
+        ProgramCache cache = new ProgramCache(10, 1000);
+        String source = "a: mov EAX 5\na: out EAX\n";
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cache.getSource(source));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cache.getSource(source));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void programCannotBeChanged() {
+        TranslatedProgram program = new ProgramCache(10, 1000).getSource(FACTORIAL);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> program.getProgram().clear());
+    }
+
+    @Test
+    void sharedProgramRunsOnManyMachinesAtOnce() throws Exception {
+        ProgramCache cache = new ProgramCache(10, 1000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Registers>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(executor.submit(() -> {
+                    Machine machine = new Machine(new Registers());
+                    machine.setOutput(new MemoryOutputSink());
+                    cache.getSource(FACTORIAL).loadInto(machine);
+                    machine.execute();
+                    return machine.getRegisters();
+                }));
+            }
+            for (Future<Registers> future : futures)
+                Assertions.assertEquals(720, future.get().get(EBX));
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(200, cache.getHits() + cache.getMisses());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    void clearKeepsCounts() {
+        ProgramCache cache = new ProgramCache(10, 1000);
+        cache.getSource(FACTORIAL);
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(0, cache.getInstructions());
+        Assertions.assertEquals(1, cache.getMisses());
+        cache.getSource(FACTORIAL);
+        Assertions.assertEquals(2, cache.getMisses());
+    }
+}
@@ -1,7 +1,13 @@
 package sml;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
+import sml.instruction.AddInstruction;
+import sml.instruction.MulInstruction;
+import sml.instruction.SubInstruction;
+
+import java.lang.management.ManagementFactory;
 
 import static sml.Registers.Register.*;
 
@@ -41,4 +47,110 @@ public class RegistersTest {
         Assertions.assertFalse(registers1.equals(registers2));
     }
 
+    @Test
+    void hashCodeWithValuesSymmetryTest() {
+        Registers registers1 = new Registers();
+        Registers registers2 = new Registers();
+        registers1.set(ESI, -4);
+        registers2.set(ESI, -4);
+        Assertions.assertEquals(registers1.hashCode(), registers2.hashCode());
+    }
+
+    @Test
+    void clearResetsAllValuesTest() {
+        Registers registers = new Registers();
+        registers.set(EAX, 1);
+        registers.set(EDI, 2);
+        registers.clear();
+        Assertions.assertEquals(new Registers(), registers);
+    }
+
+    @Test
+    void toStringInRegisterOrderTest() {
+        Registers registers = new Registers();
+        registers.set(EBX, 3);
+        registers.set(EDI, -1);
+        Assertions.assertEquals("[EAX = 0, EBX = 3, ECX = 0, EDX = 0, ESP = 0, EBP = 0, ESI = 0, EDI = -1]",
+                registers.toString());
+    }
+
+    @Test
+    void getLongHoldsValuesBeyondIntTest() {
+        Registers registers = new Registers();
+        registers.setLong(ECX, 1L << 33);
+        Assertions.assertEquals(1L << 33, registers.getLong(ECX));
+        Assertions.assertEquals("[EAX = 0, EBX = 0, ECX = 8589934592, EDX = 0, ESP = 0, EBP = 0, ESI = 0, EDI = 0]",
+                registers.toString());
+    }
+
+    @Test
+    void setIntAfterWideningTest() {
+        Registers registers = new Registers();
+        registers.setLong(ECX, 1L << 33);
+        registers.set(ECX, -5);
+        registers.set(EAX, 7);
+        Assertions.assertEquals(-5, registers.getLong(ECX));
+        Assertions.assertEquals(7, registers.getLong(EAX));
+        Assertions.assertEquals(7, registers.get(EAX));
+    }
+
+    @Test
+    void getNarrowsWideValuesTest() {
+        Registers registers = new Registers();
+        registers.setLong(EDX, (1L << 32) + 9);
+        Assertions.assertEquals(9, registers.get(EDX));
+    }
+
+    @Test
+    void equalsIgnoresHowValuesAreHeldTest() {
+        Registers compact = new Registers();
+        Registers widened = new Registers();
+        compact.set(EAX, 4);
+        widened.setLong(EBX, 1L << 40);
+        widened.set(EBX, 0);
+        widened.setLong(EAX, 4);
+        Assertions.assertEquals(compact, widened);
+        Assertions.assertEquals(compact.hashCode(), widened.hashCode());
+    }
+
+    @Test
+    void arithmeticInstructionsDoNotAllocateTest() {
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        Machine machine = new Machine(new Registers());
+        Registers registers = machine.getRegisters();
+        Instruction[] instructions = {
+                new AddInstruction(null, EAX, EBX),
+                new SubInstruction(null, EAX, EBX),
+                new MulInstruction(null, ECX, EDX)
+        };
+        int iterations = 100_000;
+        int[][] seeds = {
+                // values outside the Integer cache of -128 to 127, so that boxing any of them would allocate
+                {1_000_000, 1_000, 1_000, 1},
+                // values at the limits of int, where the overflow checks must not allocate either
+                {Integer.MAX_VALUE - 1, 1, Integer.MIN_VALUE, 1}
+        };
+
+        for (int[] seed : seeds) {
+            for (int pass = 0; pass < 2; pass++) { // the first pass warms up class loading and lambda linkage
+                registers.set(EAX, seed[0]);
+                registers.set(EBX, seed[1]);
+                registers.set(ECX, seed[2]);
+                registers.set(EDX, seed[3]);
+                long before = threadBean.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < iterations; i++) {
+                    for (Instruction instruction : instructions) {
+                        instruction.execute(machine);
+                    }
+                }
+                long allocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+                if (pass == 1) {
+                    Assertions.assertEquals(0, allocated / ((long) iterations * instructions.length));
+                }
+            }
+        }
+    }
 }
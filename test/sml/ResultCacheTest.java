@@ -0,0 +1,165 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static sml.Registers.Register.*;
+
+public class ResultCacheTest {
+    private static final String FACTORIAL = """
+            mov EAX 6
+            mov EBX 1
+            mov ECX 1
+            f: mul EBX EAX
+            out EBX
+            sub EAX ECX
+            jnz EAX f
+            """;
+
+    @TempDir
+    Path directory;
+
+    private static Machine machine(String source, OverflowPolicy policy) throws IOException {
+        Machine machine = new Machine(new Registers(), policy);
+        machine.setOutput(new MemoryOutputSink());
+        Translator.fromSource(source, InstructionFactory.getInstance())
+                .readAndTranslate(machine.getLabels(), machine.getProgram());
+        return machine;
+    }
+
+    private static Machine machine(String source) throws IOException {
+        return machine(source, OverflowPolicy.TRAP);
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    void hitGivesTheSameResultAsExecution() throws IOException {
+        ResultCache cache = new ResultCache(directory, 1 << 20);
+        Machine executed = machine(FACTORIAL);
+        Assertions.assertFalse(cache.execute(executed));
+        Machine cached = machine(FACTORIAL);
+        cached.getRegisters().set(EDI, 99);
+        Assertions.assertTrue(cache.execute(cached));
+
+        Assertions.assertEquals(executed.getRegisters(), cached.getRegisters());
+        Assertions.assertEquals(executed.getOutput().toString(), cached.getOutput().toString());
+        Assertions.assertEquals(executed.getInstructionsExecuted(), cached.getInstructionsExecuted());
+        Assertions.assertEquals(720, cached.getRegisters().get(EBX));
+        Assertions.assertEquals(6, ((MemoryOutputSink) cached.getOutput()).size());
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void resultsPersistBetweenCaches() throws IOException {
+        new ResultCache(directory, 1 << 20).execute(machine(FACTORIAL));
+        ResultCache cache = new ResultCache(directory, 1 << 20);
+        Assertions.assertTrue(cache.execute(machine(FACTORIAL)));
+    }
+
+    @Test
+    void overflowPolicyIsPartOfTheKey() throws IOException {
+        ResultCache cache = new ResultCache(directory, 1 << 20);
+        cache.execute(machine(FACTORIAL));
+        Assertions.assertFalse(cache.execute(machine(FACTORIAL, OverflowPolicy.WIDEN)));
+        Assertions.assertEquals(2, files().size());
+    }
+
+    @Test
+    void widenedRegistersAreKept() throws IOException {
+        String source = "mov EAX 2147483647\nmov EBX 2\nmul EAX EBX\nout EAX\n";
+        ResultCache cache = new ResultCache(directory, 1 << 20);
+        Machine executed = machine(source, OverflowPolicy.WIDEN);
+        cache.execute(executed);
+        Machine cached = machine(source, OverflowPolicy.WIDEN);
+        Assertions.assertTrue(cache.execute(cached));
+        Assertions.assertEquals(4294967294L, cached.getRegisters().getLong(EAX));
+        Assertions.assertEquals("4294967294" + System.lineSeparator(), cached.getOutput().toString());
+    }
+
+    @Test
+    void failingProgramIsNotCached() throws IOException {
+        ResultCache cache = new ResultCache(directory, 1 << 20);
+        String source = "mov EAX 1\nmov EBX 0\ndiv EAX EBX\n";
+        Assertions.assertThrows(RuntimeException.class, () -> cache.execute(machine(source)));
+        Assertions.assertThrows(RuntimeException.class, () -> cache.execute(machine(source)));
+        Assertions.assertEquals(0, cache.getHits());
+        Assertions.assertTrue(files().isEmpty());
+    }
+
+    @Test
+    void leastRecentlyUsedResultsEvicted() throws IOException {
+        ResultCache cache = new ResultCache(directory, 250);
+        cache.execute(machine("mov EAX 1\nout EAX\n"));
+        long one = cache.getBytes();
+        Assertions.assertTrue(one > 0 && one * 2 <= 250 && one * 3 > 250, "result of " + one + " bytes");
+        cache.execute(machine("mov EAX 2\nout EAX\n"));
+        cache.execute(machine("mov EAX 1\nout EAX\n"));
+        cache.execute(machine("mov EAX 3\nout EAX\n"));
+        Assertions.assertEquals(1, cache.getEvictions());
+        Assertions.assertTrue(cache.getBytes() <= 250);
+        Assertions.assertTrue(cache.execute(machine("mov EAX 1\nout EAX\n")));
+    }
+
+    @Test
+    void resultLargerThanTheBudgetIsNotKept() throws IOException {
+        ResultCache cache = new ResultCache(directory, 100);
+        cache.execute(machine(FACTORIAL));
+        Assertions.assertTrue(files().isEmpty());
+    }
+
+    @Test
+    void outputBeyondTheBudgetIsStillWritten() throws IOException {
+        ResultCache cache = new ResultCache(directory, 120);
+        Machine machine = machine(FACTORIAL);
+        Assertions.assertFalse(cache.execute(machine));
+        Assertions.assertEquals(6, ((MemoryOutputSink) machine.getOutput()).size());
+        Assertions.assertTrue(files().isEmpty());
+    }
+
+    @Test
+    void linkedCodeIsPartOfTheKey() throws IOException {
+        ResultCache cache = new ResultCache(directory, 1 << 20);
+        cache.execute(machine(FACTORIAL));
+        Machine fused = machine("mov EAX 3\nmov EBX 1\nf: sub EAX EBX\njnz EAX f\n");
+        cache.execute(fused);
+        fused = machine("mov EAX 3\nmov EBX 1\nf: sub EAX EBX\njnz EAX f\n");
+        fused.setFusing(true);
+        Assertions.assertFalse(cache.execute(fused));
+        Assertions.assertEquals(1, fused.getFusions());
+        Assertions.assertEquals(3, files().size());
+    }
+
+    @Test
+    void corruptResultIsReplaced() throws IOException {
+        ResultCache cache = new ResultCache(directory, 1 << 20);
+        cache.execute(machine(FACTORIAL));
+        Path file = files().get(0);
+        Files.write(file, new byte[] {1, 2, 3});
+        Assertions.assertFalse(cache.execute(machine(FACTORIAL)));
+        Assertions.assertTrue(cache.execute(machine(FACTORIAL)));
+    }
+
+    @Test
+    void resultsOfOtherVersionsAreRemoved() throws IOException {
+        Path stale = directory.resolve("0123.result");
+        Files.write(stale, new byte[] {'S', 'M', 'L', 'R', 0, 0, 0, 0});
+        Path other = directory.resolve("notes.txt");
+        Files.writeString(other, "kept");
+        new ResultCache(directory, 1 << 20);
+        Assertions.assertFalse(Files.exists(stale));
+        Assertions.assertTrue(Files.exists(other));
+    }
+}
@@ -0,0 +1,165 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sml.instruction.MovInstruction;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SamplingProfilerTest {
+    private static final String COUNTDOWN = """
+            mov EAX 30000000
+            mov EBX 1
+            loop: sub EAX EBX
+            jnz EAX loop
+            out EAX
+            """;
+
+    private Machine machine;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        machine = new Machine(new Registers());
+        machine.setOutput(new MemoryOutputSink());
+        Translator.fromSource(COUNTDOWN, InstructionFactory.getInstance())
+                .readAndTranslate(machine.getLabels(), machine.getProgram());
+    }
+
+    @Test
+    void samplesTheLoop() {
+        try (SamplingProfiler profiler = new SamplingProfiler(machine, Duration.ofNanos(100_000))) {
+            profiler.start();
+            machine.execute();
+            profiler.stop();
+            Assertions.assertFalse(profiler.isSampling());
+
+            long inLoop = profiler.getSamples(2) + profiler.getSamples(3);
+            Assertions.assertTrue(inLoop > 0, profiler.report(5));
+            Assertions.assertEquals(profiler.getSamples(),
+                    profiler.getMissedSamples() + inLoop + profiler.getSamples(0) + profiler.getSamples(1)
+                            + profiler.getSamples(4) + profiler.getSamples(5));
+            Map<String, Long> labels = profiler.getLabelSamples();
+            Assertions.assertEquals(inLoop + profiler.getSamples(4), labels.get("loop"));
+            Assertions.assertEquals("loop", labels.keySet().iterator().next());
+            String report = profiler.report(2);
+            Assertions.assertTrue(report.contains("loop"), report);
+        }
+    }
+
+    @Test
+    void startsAndStopsWhileTheProgramRuns() throws Exception {
+        SamplingProfiler profiler = new SamplingProfiler(machine, Duration.ofNanos(100_000));
+        CompletableFuture<Void> run = CompletableFuture.runAsync(machine::execute);
+        try {
+            while (machine.getLiveProgramCounter() < 0 && !run.isDone())
+                Thread.onSpinWait();
+            profiler.start();
+            Thread.sleep(20);
+            profiler.stop();
+            long samples = profiler.getSamples();
+            Assertions.assertTrue(samples > 0);
+            Thread.sleep(5);
+            Assertions.assertEquals(samples, profiler.getSamples());
+        } finally {
+            run.get(1, TimeUnit.MINUTES);
+        }
+        Assertions.assertEquals(0, machine.getRegisters().get(Registers.Register.EAX));
+    }
+
+    @Test
+    void publishesTheProgramCounterOnlyWhileSampling() throws Exception {
+        CompletableFuture<Void> run = CompletableFuture.runAsync(machine::execute);
+        try {
+            while (machine.getLiveProgramCounter() < 0 && !run.isDone())
+                Thread.onSpinWait();
+            Thread.sleep(5);
+            int unsampled = machine.getLiveProgramCounter();
+            Assertions.assertTrue(unsampled <= 0, "published " + unsampled + " without a sampler");
+            try (SamplingProfiler profiler = new SamplingProfiler(machine, Duration.ofNanos(100_000))) {
+                profiler.start();
+                Thread.sleep(20);
+                profiler.stop();
+                Assertions.assertTrue(run.isDone() || profiler.getSamples(2) + profiler.getSamples(3) > 0,
+                        profiler.report(5));
+            }
+        } finally {
+            run.get(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Test
+    void chargesSamplesToTheInstructionExecuting() {
+        Instruction slow = new Instruction(null, "slow") {
+            @Override
+            public int execute(Machine machine) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return NORMAL_PROGRAM_COUNTER_UPDATE;
+            }
+
+            @Override
+            public String toString() {
+                return "slow";
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                return o == this;
+            }
+
+            @Override
+            public int hashCode() {
+                return 0;
+            }
+        };
+        machine.getLabels().reset();
+        machine.getProgram().clear();
+        machine.getProgram().addAll(List.of(slow, slow, new MovInstruction(null, Registers.Register.EAX, 1)));
+        try (SamplingProfiler profiler = new SamplingProfiler(machine, Duration.ofNanos(100_000))) {
+            profiler.start();
+            machine.execute();
+            profiler.stop();
+            Assertions.assertTrue(profiler.getSamples(0) > 0, profiler.report(3));
+            Assertions.assertTrue(profiler.getSamples(1) > profiler.getSamples(2), profiler.report(3));
+        }
+    }
+
+    @Test
+    void samplesAnIdleMachineAsMissed() throws InterruptedException {
+        SamplingProfiler profiler = new SamplingProfiler(machine, Duration.ofNanos(100_000));
+        profiler.start();
+        Thread.sleep(10);
+        profiler.stop();
+        Assertions.assertTrue(profiler.getSamples() > 0);
+        Assertions.assertEquals(profiler.getSamples(), profiler.getMissedSamples());
+        Assertions.assertTrue(profiler.getLabelSamples().isEmpty());
+
+        profiler.reset();
+        Assertions.assertEquals(0, profiler.getSamples());
+    }
+
+    @Test
+    void cannotStartTwice() {
+        try (SamplingProfiler profiler = new SamplingProfiler(machine)) {
+            profiler.start();
+            Exception exception = assertThrows(IllegalStateException.class, profiler::start);
+            Assertions.assertEquals("The profiler is already sampling", exception.getMessage());
+        }
+    }
+
+    @Test
+    void intervalMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new SamplingProfiler(machine, Duration.ZERO));
+    }
+}
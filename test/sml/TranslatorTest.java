@@ -10,6 +10,7 @@ import java.io.PrintStream;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 public class TranslatorTest {
     private Machine machine;
@@ -208,6 +209,89 @@ public class TranslatorTest {
         Assertions.assertEquals(expectedMessage, outputStreamCaptor.toString().trim());
     }
 
+    @Test
+    void readAndTranslateFromSource() throws Exception {
+        Translator translator = Translator.fromSource("test: mov EAX 1\nout EAX\n", InstructionFactory.getInstance());
+        translator.readAndTranslate(machine.getLabels(), machine.getProgram());
+        Assertions.assertEquals("[test: mov EAX 1, out EAX]", machine.getProgram().toString());
+        Assertions.assertEquals(0, machine.getLabels().getAddress("test"));
+    }
+
+    @Test
+    void readAndTranslateIgnoresExtraWhitespaceAndBlankLines() throws IOException {
+        String source = "  test: \tmov  EAX 1 \r\n\n   \nout \tEAX\t\n";
+        Translator translator = Translator.fromSource(source, InstructionFactory.getInstance());
+        translator.readAndTranslate(machine.getLabels(), machine.getProgram());
+        Assertions.assertEquals("[test: mov EAX 1, out EAX]", machine.getProgram().toString());
+    }
 
+    @Test
+    void readAndTranslateLargeSource() throws IOException {
+        StringBuilder source = new StringBuilder();
+        int lines = 200_000;
+        for (int i = 0; i < lines; i++)
+            source.append("l").append(i).append(": mov EAX ").append(i).append('\n');
+        Translator translator = Translator.fromSource(source.toString(), InstructionFactory.getInstance());
+        translator.readAndTranslate(machine.getLabels(), machine.getProgram());
+        Assertions.assertEquals(lines, machine.getProgram().size());
+        Assertions.assertEquals(lines - 1, machine.getLabels().getAddress("l" + (lines - 1)));
+    }
 
+    @Test
+    void readAndTranslateMappedMatchesReader() throws IOException {
+        File[] files = new File(baseTestFilePath).listFiles();
+        Assertions.assertNotNull(files);
+        for (File file : files) {
+            Machine expected = new Machine(new Registers());
+            new Translator(file.getPath(), InstructionFactory.getInstance())
+                    .readAndTranslate(expected.getLabels(), expected.getProgram());
+            Translator.mapped(file.getPath(), InstructionFactory.getInstance())
+                    .readAndTranslate(machine.getLabels(), machine.getProgram());
+            Assertions.assertEquals(expected.getProgram(), machine.getProgram(), file.getName());
+            Assertions.assertEquals(expected.getLabels(), machine.getLabels(), file.getName());
+        }
+    }
+
+    @Test
+    void readAndTranslateMappedMissingFile() {
+        Translator translator = Translator.mapped(baseTestFilePath + "missing.sml", InstructionFactory.getInstance());
+        Assertions.assertThrows(IOException.class, () -> translator.readAndTranslate(machine.getLabels(), machine.getProgram()));
+    }
+
+    @Test
+    void readAndTranslateSharesEqualUnlabeledInstructions() throws IOException {
+        String source = "add EAX EBX\nmov ECX 2\nadd EAX EBX\nl: add EAX EBX\nmov ECX 2\nmov ECX 3\n";
+        Translator translator = Translator.fromSource(source, InstructionFactory.getInstance());
+        translator.readAndTranslate(machine.getLabels(), machine.getProgram());
+        List<Instruction> program = machine.getProgram();
+        Assertions.assertEquals("[add EAX EBX, mov ECX 2, add EAX EBX, l: add EAX EBX, mov ECX 2, mov ECX 3]",
+                program.toString());
+        Assertions.assertSame(program.get(0), program.get(2));
+        Assertions.assertSame(program.get(1), program.get(4));
+        Assertions.assertNotSame(program.get(0), program.get(3));
+        Assertions.assertEquals("l", program.get(3).getLabel());
+        Assertions.assertNotSame(program.get(1), program.get(5));
+
+        translator.setInterning(false);
+        translator.readAndTranslate(machine.getLabels(), machine.getProgram());
+        Assertions.assertEquals(program.get(0), program.get(2));
+        Assertions.assertNotSame(program.get(0), program.get(2));
+    }
+
+    @Test
+    void readAndTranslateStrictlyThrowsOnABadLine() {
+        Translator translator = Translator.fromSource("mov EAX 5\nfoo EAX\nmov EBX 9\n", InstructionFactory.getInstance());
+        InstructionFormatException exception = Assertions.assertThrows(InstructionFormatException.class,
+                () -> translator.readAndTranslateStrictly(machine.getLabels(), machine.getProgram()));
+        Assertions.assertEquals("foo", exception.getOpcode());
+        Assertions.assertEquals("[mov EAX 5]", machine.getProgram().toString());
+    }
+
+    @Test
+    void readAndTranslateStrictlyThrowsOnADuplicateLabel() {
+        Translator translator = Translator.fromSource("a: mov EAX 5\na: mov EBX 9\n", InstructionFactory.getInstance());
+        Exception exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> translator.readAndTranslateStrictly(machine.getLabels(), machine.getProgram()));
+        Assertions.assertTrue(exception.getMessage().contains("'a'"), exception.getMessage());
+    }
 }
@@ -0,0 +1,41 @@
+package sml;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UnderOverFlowHandlingTest {
+    private final UnderOverFlowHandling handling = new UnderOverFlowHandling() {
+    };
+
+    @Test
+    void addOverUnderFlowsTest() {
+        Assertions.assertTrue(UnderOverFlowHandling.addOverUnderFlows(Integer.MAX_VALUE, 1, Integer.MAX_VALUE + 1));
+        Assertions.assertTrue(UnderOverFlowHandling.addOverUnderFlows(Integer.MIN_VALUE, -1, Integer.MIN_VALUE - 1));
+        Assertions.assertFalse(UnderOverFlowHandling.addOverUnderFlows(Integer.MAX_VALUE, -1, Integer.MAX_VALUE - 1));
+    }
+
+    @Test
+    void subtractOverUnderFlowsTest() {
+        Assertions.assertTrue(UnderOverFlowHandling.subtractOverUnderFlows(Integer.MIN_VALUE, 1, Integer.MIN_VALUE - 1));
+        Assertions.assertTrue(UnderOverFlowHandling.subtractOverUnderFlows(Integer.MAX_VALUE, -1, Integer.MAX_VALUE + 1));
+        Assertions.assertFalse(UnderOverFlowHandling.subtractOverUnderFlows(-1, Integer.MAX_VALUE, Integer.MIN_VALUE));
+    }
+
+    @Test
+    void multiplyOverUnderFlowsTest() {
+        Assertions.assertTrue(UnderOverFlowHandling.multiplyOverUnderFlows(65536, 65536));
+        Assertions.assertTrue(UnderOverFlowHandling.multiplyOverUnderFlows(Integer.MIN_VALUE, -1));
+        Assertions.assertFalse(UnderOverFlowHandling.multiplyOverUnderFlows(-65536, 32768));
+    }
+
+    @Test
+    void exceptionMatchesHandleOverUnderFlowTest() {
+        int res = Integer.MAX_VALUE + 1;
+        Exception expected = assertThrows(ArithmeticException.class, () -> handling.handleOverUnderFlow(
+                Integer.MAX_VALUE, 1, res, "EAX", "EBX", "add", (a, b, c) -> true));
+        Exception actual = UnderOverFlowHandling.overUnderFlowException(Integer.MAX_VALUE, 1, res, "EAX", "EBX", "add");
+        Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+    }
+}
@@ -47,6 +47,34 @@ public class JnzInstructionTest {
         Assertions.assertEquals(2, programCounterInstruction);
     }
 
+    @Test
+    void executeLinkedNonZeroRegister() {
+        registers.set(EAX, 5);
+        Labels labels = new Labels();
+        labels.addLabel("test", 3);
+        Instruction instruction = new JnzInstruction(null, EAX, "test").link(labels);
+        int programCounterInstruction = instruction.execute(machine);
+        Assertions.assertEquals(3, programCounterInstruction);
+    }
+
+    @Test
+    void linkEqualsUnlinked() {
+        Labels labels = new Labels();
+        labels.addLabel("test", 3);
+        Instruction instruction = new JnzInstruction("jump", EAX, "test");
+        Assertions.assertEquals(instruction, instruction.link(labels));
+        Assertions.assertEquals("jump: jnz EAX test", instruction.link(labels).toString());
+    }
+
+    @Test
+    void linkToNonExtantLabel() {
+        Instruction instruction = new JnzInstruction(null, EAX, "test");
+        Exception exception = assertThrows(RuntimeException.class, () -> instruction.link(machine.getLabels()));
+
+        String expectedMessage = "The label test does not exist!  Please check the file containing the instruction set.";
+        Assertions.assertEquals(expectedMessage, exception.getMessage());
+    }
+
     @Test
     void executeToStringNoLabel() {
         Instruction instruction = new JnzInstruction(null, EAX, "jumpToTest");
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import sml.Instruction;
 import sml.Machine;
+import sml.MemoryOutputSink;
 import sml.Registers;
 
 import java.io.ByteArrayOutputStream;
@@ -40,6 +41,7 @@ public class OutInstructionTest {
         registers.set(EAX, 1);
         Instruction instruction = new OutInstruction(null, EAX);
         instruction.execute(machine);
+        machine.getOutput().flush();
         Assertions.assertEquals("1", outputStreamCaptor.toString().trim());
     }
 
@@ -47,9 +49,21 @@ public class OutInstructionTest {
     void executeNullRegister() {
         Instruction instruction = new OutInstruction(null, EAX);
         instruction.execute(machine);
+        machine.getOutput().flush();
         Assertions.assertEquals("0", outputStreamCaptor.toString().trim());
     }
 
+    @Test
+    void executeToMemorySink() {
+        MemoryOutputSink output = new MemoryOutputSink();
+        machine.setOutput(output);
+        registers.set(EAX, -7);
+        Instruction instruction = new OutInstruction(null, EAX);
+        instruction.execute(machine);
+        Assertions.assertArrayEquals(new long[] {-7}, output.getValues());
+        Assertions.assertEquals("", outputStreamCaptor.toString());
+    }
+
     @Test
     void executeToStringNoLabel() {
         registers.set(EAX, 6);
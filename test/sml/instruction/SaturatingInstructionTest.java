@@ -0,0 +1,76 @@
+package sml.instruction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sml.Machine;
+import sml.Registers;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sml.Registers.Register.*;
+
+public class SaturatingInstructionTest {
+    private Machine machine;
+    private Registers registers;
+
+    @BeforeEach
+    void setUp() {
+        machine = new Machine(new Registers());
+        registers = machine.getRegisters();
+    }
+
+    @AfterEach
+    void tearDown() {
+        machine = null;
+        registers = null;
+    }
+
+    @Test
+    void executeAddSaturatesHigh() {
+        registers.set(EAX, Integer.MAX_VALUE);
+        registers.set(EBX, 5);
+        SaturatingInstruction.of(null, "add", EAX, EBX).execute(machine);
+        Assertions.assertEquals(Integer.MAX_VALUE, registers.get(EAX));
+    }
+
+    @Test
+    void executeSubSaturatesLow() {
+        registers.set(EAX, Integer.MIN_VALUE);
+        registers.set(EBX, 5);
+        SaturatingInstruction.of(null, "sub", EAX, EBX).execute(machine);
+        Assertions.assertEquals(Integer.MIN_VALUE, registers.get(EAX));
+    }
+
+    @Test
+    void executeMulSaturatesLow() {
+        registers.set(EAX, -65536);
+        registers.set(EBX, 65536);
+        SaturatingInstruction.of(null, "mul", EAX, EBX).execute(machine);
+        Assertions.assertEquals(Integer.MIN_VALUE, registers.get(EAX));
+    }
+
+    @Test
+    void executeDivSaturatesHigh() {
+        registers.set(EAX, Integer.MIN_VALUE);
+        registers.set(EBX, -1);
+        SaturatingInstruction.of(null, "div", EAX, EBX).execute(machine);
+        Assertions.assertEquals(Integer.MAX_VALUE, registers.get(EAX));
+    }
+
+    @Test
+    void executeInRangeUnchanged() {
+        registers.set(EAX, 7);
+        registers.set(EBX, -3);
+        SaturatingInstruction.of(null, "mul", EAX, EBX).execute(machine);
+        Assertions.assertEquals(-21, registers.get(EAX));
+    }
+
+    @Test
+    void executeDivideByZero() {
+        registers.set(EAX, 1);
+        Exception expected = assertThrows(RuntimeException.class, () -> new DivInstruction(null, EAX, EBX).execute(machine));
+        Exception actual = assertThrows(RuntimeException.class, () -> SaturatingInstruction.of(null, "div", EAX, EBX).execute(machine));
+        Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+    }
+}
@@ -0,0 +1,111 @@
+package sml.instruction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sml.Instruction;
+import sml.Machine;
+import sml.Registers;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sml.Registers.Register.*;
+
+public class SubJnzInstructionTest {
+    private Machine machine;
+    private Registers registers;
+
+    @BeforeEach
+    void setUp() {
+        machine = new Machine(new Registers());
+        registers = machine.getRegisters();
+    }
+
+    @AfterEach
+    void tearDown() {
+        machine = null;
+        registers = null;
+    }
+
+    @Test
+    void executeNonZeroResultJumps() {
+        registers.set(EAX, 5);
+        registers.set(ECX, 1);
+        Instruction instruction = new SubJnzInstruction(new SubInstruction(null, EAX, ECX),
+                new JnzInstruction(null, EAX, "loop"), 7, 2);
+        Assertions.assertEquals(2, instruction.execute(machine));
+        Assertions.assertEquals(4, registers.get(EAX));
+    }
+
+    @Test
+    void executeZeroResultSkipsJnz() {
+        registers.set(EAX, 1);
+        registers.set(ECX, 1);
+        Instruction instruction = new SubJnzInstruction(new SubInstruction(null, EAX, ECX),
+                new JnzInstruction(null, EAX, "loop"), 7, 2);
+        Assertions.assertEquals(9, instruction.execute(machine));
+        Assertions.assertEquals(0, registers.get(EAX));
+    }
+
+    @Test
+    void executeUnderflowThrows() {
+        registers.set(EAX, Integer.MIN_VALUE);
+        registers.set(ECX, 1);
+        Instruction instruction = new SubJnzInstruction(new SubInstruction(null, EAX, ECX),
+                new JnzInstruction(null, EAX, "loop"), 7, 2);
+        assertThrows(ArithmeticException.class, () -> instruction.execute(machine));
+    }
+
+    @Test
+    void executeWithWrappingSubtraction() {
+        registers.set(EAX, Integer.MIN_VALUE);
+        registers.set(ECX, 1);
+        SubInstruction sub = new SubInstruction(null, EAX, ECX);
+        Instruction instruction = new SubJnzInstruction(sub, new JnzInstruction(null, EAX, "loop"), 7, 2)
+                .withSubtraction(WrappingInstruction.of(null, "sub", EAX, ECX));
+        Assertions.assertEquals(2, instruction.execute(machine));
+        Assertions.assertEquals(Integer.MAX_VALUE, registers.get(EAX));
+    }
+
+    @Test
+    void withSubtractionOfOtherRegistersThrows() {
+        SubJnzInstruction instruction = new SubJnzInstruction(new SubInstruction(null, EAX, ECX),
+                new JnzInstruction(null, EAX, "loop"), 7, 2);
+        assertThrows(IllegalArgumentException.class,
+                () -> instruction.withSubtraction(WrappingInstruction.of(null, "sub", EAX, EBX)));
+        assertThrows(IllegalArgumentException.class,
+                () -> instruction.withSubtraction(WrappingInstruction.of(null, "add", EAX, ECX)));
+    }
+
+    @Test
+    void constructMismatchedRegistersThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new SubJnzInstruction(new SubInstruction(null, EAX, ECX),
+                new JnzInstruction(null, EBX, "loop"), 7, 2));
+    }
+
+    @Test
+    void executeToStringWithLabel() {
+        Instruction instruction = new SubJnzInstruction(new SubInstruction("test", EAX, ECX),
+                new JnzInstruction(null, EAX, "loop"), 7, 2);
+        Assertions.assertEquals("test: sub EAX ECX", instruction.toString());
+    }
+
+    @Test
+    void equalsSymmetryTest() {
+        Instruction instruction1 = new SubJnzInstruction(new SubInstruction(null, EAX, ECX),
+                new JnzInstruction(null, EAX, "loop"), 7, 2);
+        Instruction instruction2 = new SubJnzInstruction(new SubInstruction(null, EAX, ECX),
+                new JnzInstruction(null, EAX, "loop"), 7, 2);
+        Assertions.assertTrue(instruction1.equals(instruction2));
+        Assertions.assertEquals(instruction1.hashCode(), instruction2.hashCode());
+    }
+
+    @Test
+    void equalsDifferentAddressAsymmetryTest() {
+        Instruction instruction1 = new SubJnzInstruction(new SubInstruction(null, EAX, ECX),
+                new JnzInstruction(null, EAX, "loop"), 7, 2);
+        Instruction instruction2 = new SubJnzInstruction(new SubInstruction(null, EAX, ECX),
+                new JnzInstruction(null, EAX, "loop"), 8, 2);
+        Assertions.assertFalse(instruction1.equals(instruction2));
+    }
+}
@@ -0,0 +1,80 @@
+package sml.instruction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sml.Machine;
+import sml.Registers;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sml.Registers.Register.*;
+
+public class WideningInstructionTest {
+    private Machine machine;
+    private Registers registers;
+
+    @BeforeEach
+    void setUp() {
+        machine = new Machine(new Registers());
+        registers = machine.getRegisters();
+    }
+
+    @AfterEach
+    void tearDown() {
+        machine = null;
+        registers = null;
+    }
+
+    @Test
+    void executeAddBeyondInt() {
+        registers.set(EAX, Integer.MAX_VALUE);
+        registers.set(EBX, 1);
+        WideningInstruction.of(null, "add", EAX, EBX).execute(machine);
+        Assertions.assertEquals(Integer.MAX_VALUE + 1L, registers.getLong(EAX));
+    }
+
+    @Test
+    void executeDivWide() {
+        registers.setLong(EAX, 1L << 40);
+        registers.set(EBX, 1 << 20);
+        WideningInstruction.of(null, "div", EAX, EBX).execute(machine);
+        Assertions.assertEquals(1L << 20, registers.getLong(EAX));
+    }
+
+    @Test
+    void executeMulBeyondLongThrows() {
+        registers.setLong(EAX, Long.MAX_VALUE);
+        registers.set(EBX, 2);
+        Exception exception = assertThrows(ArithmeticException.class,
+                () -> WideningInstruction.of(null, "mul", EAX, EBX).execute(machine));
+        Assertions.assertTrue(exception.getMessage().contains("overflow in the EAX register"));
+    }
+
+    @Test
+    void executeSubBeyondLongThrows() {
+        registers.setLong(EAX, Long.MIN_VALUE);
+        registers.set(EBX, 1);
+        Exception exception = assertThrows(ArithmeticException.class,
+                () -> WideningInstruction.of(null, "sub", EAX, EBX).execute(machine));
+        Assertions.assertTrue(exception.getMessage().contains("underflow in the EAX register"));
+    }
+
+    @Test
+    void executeDivMinByMinusOneThrows() {
+        registers.setLong(EAX, Long.MIN_VALUE);
+        registers.set(EBX, -1);
+        Exception exception = assertThrows(ArithmeticException.class,
+                () -> WideningInstruction.of(null, "div", EAX, EBX).execute(machine));
+        Assertions.assertTrue(exception.getMessage().contains("overflow in the EAX register"));
+        Assertions.assertEquals(Long.MIN_VALUE, registers.getLong(EAX));
+    }
+
+    @Test
+    void executeDivideByZero() {
+        registers.set(EAX, 1);
+        Exception expected = assertThrows(RuntimeException.class, () -> new DivInstruction(null, EAX, EBX).execute(machine));
+        Exception actual = assertThrows(RuntimeException.class, () -> WideningInstruction.of(null, "div", EAX, EBX).execute(machine));
+        Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+    }
+}
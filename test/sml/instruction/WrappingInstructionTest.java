@@ -0,0 +1,79 @@
+package sml.instruction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sml.Instruction;
+import sml.Machine;
+import sml.Registers;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sml.Registers.Register.*;
+
+public class WrappingInstructionTest {
+    private Machine machine;
+    private Registers registers;
+
+    @BeforeEach
+    void setUp() {
+        machine = new Machine(new Registers());
+        registers = machine.getRegisters();
+    }
+
+    @AfterEach
+    void tearDown() {
+        machine = null;
+        registers = null;
+    }
+
+    @Test
+    void executeAddWraps() {
+        registers.set(EAX, Integer.MAX_VALUE);
+        registers.set(EBX, 1);
+        WrappingInstruction.of(null, "add", EAX, EBX).execute(machine);
+        Assertions.assertEquals(Integer.MIN_VALUE, registers.get(EAX));
+    }
+
+    @Test
+    void executeSubWraps() {
+        registers.set(EAX, Integer.MIN_VALUE);
+        registers.set(EBX, 1);
+        WrappingInstruction.of(null, "sub", EAX, EBX).execute(machine);
+        Assertions.assertEquals(Integer.MAX_VALUE, registers.get(EAX));
+    }
+
+    @Test
+    void executeMulWraps() {
+        registers.set(EAX, 65536);
+        registers.set(EBX, 65536);
+        WrappingInstruction.of(null, "mul", EAX, EBX).execute(machine);
+        Assertions.assertEquals(0, registers.get(EAX));
+    }
+
+    @Test
+    void constructDivThrows() {
+        assertThrows(IllegalArgumentException.class, () -> WrappingInstruction.of(null, "div", EAX, EBX));
+    }
+
+    @Test
+    void executeToStringWithLabel() {
+        Instruction instruction = WrappingInstruction.of("test", "add", EAX, EBX);
+        Assertions.assertEquals("test: add EAX EBX", instruction.toString());
+    }
+
+    @Test
+    void equalsSymmetryTest() {
+        Instruction instruction1 = WrappingInstruction.of("test", "add", EAX, EBX);
+        Instruction instruction2 = WrappingInstruction.of("test", "add", EAX, EBX);
+        Assertions.assertTrue(instruction1.equals(instruction2));
+        Assertions.assertEquals(instruction1.hashCode(), instruction2.hashCode());
+    }
+
+    @Test
+    void equalsOtherPolicyAsymmetryTest() {
+        Instruction instruction1 = WrappingInstruction.of(null, "add", EAX, EBX);
+        Instruction instruction2 = SaturatingInstruction.of(null, "add", EAX, EBX);
+        Assertions.assertFalse(instruction1.equals(instruction2));
+    }
+}
@@ -0,0 +1,154 @@
+package sml.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sml.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class EventsTest {
+    @TempDir
+    Path directory;
+
+    private Recording recording;
+
+    private Machine machine;
+
+    @BeforeEach
+    void setUp() {
+        recording = new Recording();
+        for (String event : List.of("sml.Translation", "sml.Execution", "sml.ArithmeticTrap", "sml.DivideByZero"))
+            recording.enable(event).withoutThreshold();
+        machine = new Machine(new Registers());
+        machine.setOutput(new MemoryOutputSink());
+    }
+
+    @AfterEach
+    void tearDown() {
+        recording.close();
+    }
+
+    private void translate(String source) throws IOException {
+        Translator.fromSource(source, InstructionFactory.getInstance())
+                .readAndTranslate(machine.getLabels(), machine.getProgram());
+    }
+
+    private List<RecordedEvent> stop(String name) throws IOException {
+        recording.stop();
+        Path file = directory.resolve("recording.jfr");
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .toList();
+    }
+
+    @Test
+    void translationIsRecorded() throws IOException {
+        recording.start();
+        translate("mov EAX 1\n\nl: out EAX\n");
+        List<RecordedEvent> events = stop("sml.Translation");
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals("<source>", events.get(0).getString("source"));
+        Assertions.assertEquals(3, events.get(0).getInt("lines"));
+        Assertions.assertEquals(2, events.get(0).getInt("instructions"));
+    }
+
+    @Test
+    void executionIsRecorded() throws IOException {
+        translate("mov EAX 2\nmov EBX 1\nl: sub EAX EBX\njnz EAX l\n");
+        recording.start();
+        machine.execute();
+        List<RecordedEvent> events = stop("sml.Execution");
+        Assertions.assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        Assertions.assertEquals("INTERPRETER", event.getString("engine"));
+        Assertions.assertEquals(4, event.getInt("instructions"));
+        Assertions.assertEquals(6, event.getLong("instructionsExecuted"));
+        Assertions.assertEquals("NORMAL", event.getString("status"));
+        Assertions.assertNull(event.getString("failure"));
+    }
+
+    @Test
+    void failedExecutionIsRecorded() throws IOException {
+        translate("mov EAX 1\nmov EBX 0\ndiv EAX EBX\n");
+        machine.setEngine(Machine.Engine.COMPACT);
+        recording.start();
+        assertThrows(RuntimeException.class, () -> machine.execute());
+        List<RecordedEvent> events = stop("sml.Execution");
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals("COMPACT", events.get(0).getString("engine"));
+        Assertions.assertEquals(2, events.get(0).getLong("instructionsExecuted"));
+        Assertions.assertEquals("TRAP", events.get(0).getString("status"));
+        Assertions.assertEquals(RuntimeException.class.getName(), events.get(0).getString("failure"));
+    }
+
+    @Test
+    void divideByZeroIsRecorded() throws IOException {
+        translate("mov EAX 1\nmov EBX 0\ndiv EAX EBX\n");
+        recording.start();
+        assertThrows(RuntimeException.class, () -> machine.execute());
+        List<RecordedEvent> events = stop("sml.DivideByZero");
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals("EBX", events.get(0).getString("source"));
+    }
+
+    @Test
+    void arithmeticTrapIsRecorded() throws IOException {
+        translate("mov EAX 2147483647\nmov EBX 1\nadd EAX EBX\n");
+        machine.setEngine(Machine.Engine.BYTECODE);
+        recording.start();
+        assertThrows(ArithmeticException.class, () -> machine.execute());
+        List<RecordedEvent> events = stop("sml.ArithmeticTrap");
+        Assertions.assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        Assertions.assertEquals("add", event.getString("opcode"));
+        Assertions.assertEquals("EAX", event.getString("result"));
+        Assertions.assertEquals("EBX", event.getString("source"));
+        Assertions.assertEquals(2147483647L, event.getLong("value1"));
+        Assertions.assertEquals(1L, event.getLong("value2"));
+        Assertions.assertTrue(event.getBoolean("overflow"));
+    }
+
+    @Test
+    void progressIsRecordedPeriodically() throws IOException {
+        translate("mov EAX 40000000\nmov EBX 1\nloop: sub EAX EBX\njnz EAX loop\n");
+        recording.enable("sml.Progress").withPeriod(Duration.ofMillis(10));
+        recording.start();
+        machine.execute();
+        List<RecordedEvent> events = stop("sml.Progress");
+        Assertions.assertFalse(events.isEmpty());
+        for (RecordedEvent event : events) {
+            Assertions.assertEquals("INTERPRETER", event.getString("engine"));
+            Assertions.assertEquals(System.identityHashCode(machine), event.getInt("machine"));
+            int address = event.getInt("address");
+            // -1 if sampled just before or after the interpreter ran
+            Assertions.assertTrue(address >= -1 && address <= 4, "address " + address);
+        }
+    }
+
+    @Test
+    void nothingIsRecordedWhenDisabled() throws IOException {
+        recording.close();
+        recording = new Recording();
+        for (String event : List.of("sml.Translation", "sml.Execution", "sml.ArithmeticTrap", "sml.DivideByZero",
+                "sml.Progress"))
+            recording.disable(event);
+        recording.start();
+        translate("mov EAX 1\nmov EBX 0\ndiv EAX EBX\n");
+        assertThrows(RuntimeException.class, () -> machine.execute());
+        Assertions.assertTrue(stop("sml.Execution").isEmpty());
+        Assertions.assertTrue(RecordingFile.readAllEvents(directory.resolve("recording.jfr")).stream()
+                .noneMatch(event -> event.getEventType().getName().startsWith("sml.")));
+    }
+}